@@ -0,0 +1,187 @@
+package ch.epfl.javass;
+
+import ch.epfl.javass.jass.Jass;
+import ch.epfl.javass.jass.Ladder;
+import ch.epfl.javass.jass.MctsPlayer;
+import ch.epfl.javass.jass.RolloutPolicy;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * This class is used to rank many configurations of simulated players against each other,
+ * without any interface.
+ * <p>
+ * The players are paired by rating over several rounds, each match being played on duplicate
+ * deals, and the standings are printed after each round, with a confidence interval
+ * for the rating of each player.
+ * <p>
+ * This class is designed to be run as the main program, and given arguments
+ * specifying the players and the length of the ladder.
+ *
+ * @author Lúcás Críostóir Meier (300831)
+ * @author Ludovic Burnier (301308)
+ */
+public final class LadderMain {
+    private static final int DEFAULT_ITERATIONS = 10000;
+    private static final int DEFAULT_ROUNDS = 10;
+    private static final int DEFAULT_DEALS = 8;
+    private static final int MIN_PLAYER_COUNT = 2;
+    // The rounds, the deals, the threads and the seed can follow the players
+    private static final int MAX_TRAILING_NUMBER_COUNT = 4;
+    // The types of players, which start their description, as in PlayerBuilder
+    private static final List<String> PLAYER_TYPES = List.of("h", "s", "r");
+
+    private final static String USAGE = "Utilisation: java ch.epfl.javass.LadderMain <j1> <j2> [<j3>...] [rondes] [donnes] [fils] [graine] où :\n" +
+            "  <jN> spécifie le joueur N, de la forme:\n" +
+            "    s:<nom>:<iterations>[:<curiosité>[:<politique>]] un joueur simulé par MCTS, nommé <nom>, faisant <iterations> par décision,\n" +
+            "      avec la constante d'exploration <curiosité>, et jouant les simulations avec <politique>,\n" +
+            "      qui vaut uniforme, heuristique, ou la proportion de cartes jouées au hasard par l'heuristique\n" +
+            "  [rondes] est le nombre de rondes, " + DEFAULT_ROUNDS + " par défaut\n" +
+            "  [donnes] est le nombre de donnes de chaque match, chacune jouée deux fois, " + DEFAULT_DEALS + " par défaut\n" +
+            "  [fils] est le nombre de parties jouées en même temps, le nombre de processeurs par défaut\n" +
+            "  [graine] si donné va rendre l'aléatoire des parties déterministe, avec cette graine comme incipit\n";
+
+    private LadderMain() {
+    }
+
+    private static void fatal(String message) {
+        System.err.println("Erreur : " + message);
+        System.err.print(USAGE);
+        System.exit(1);
+    }
+
+    private static long parseNumber(String number, long min, long max) {
+        try {
+            long n = Long.parseLong(number);
+            if (min <= n && n <= max) {
+                return n;
+            }
+        } catch (NumberFormatException e) {
+            // Handled below
+        }
+        fatal("Nombre invalide: " + number);
+        throw new RuntimeException("Unreachable code");
+    }
+
+    private static int parseInt(String number, int min) {
+        return (int) parseNumber(number, min, Integer.MAX_VALUE);
+    }
+
+    // Whether an argument describes a player rather than a number, i.e. starts with the type of a player
+    private static boolean isPlayer(String arg) {
+        String[] parts = arg.split(":");
+        return parts.length >= 1 && PLAYER_TYPES.contains(parts[0]);
+    }
+
+    private static double parseDouble(String number, String info) {
+        try {
+            double n = Double.parseDouble(number);
+            if (n >= 0) {
+                return n;
+            }
+        } catch (NumberFormatException e) {
+            // Handled below
+        }
+        fatal("Nombre invalide : " + info);
+        throw new RuntimeException("Unreachable code");
+    }
+
+    private static RolloutPolicy parsePolicy(String policy, String info) {
+        switch (policy) {
+            case "uniforme":
+                return RolloutPolicy.UNIFORM;
+            case "heuristique":
+                return RolloutPolicy.HEURISTIC;
+            default:
+                double epsilon = parseDouble(policy, info);
+                if (epsilon > 1) {
+                    fatal("La proportion de cartes jouées au hasard doit être <= 1 : " + info);
+                }
+                return RolloutPolicy.epsilonGreedy(RolloutPolicy.HEURISTIC, epsilon);
+        }
+    }
+
+    // Parse a player of the form s:<name>:<iterations>:<curiosity>:<policy>, every part
+    // but the first being optional, and add it to the ladder
+    private static void addPlayer(Ladder.Builder builder, int index, String info, List<String> names) {
+        String[] parts = info.split(":");
+        if (parts.length > 5) {
+            fatal("Trop de parties dans l'information du joueur : " + info);
+        }
+        if (!parts[0].equals("s")) {
+            fatal("Seuls les joueurs simulés peuvent jouer sans interface : " + info);
+        }
+        int iterations = DEFAULT_ITERATIONS;
+        if (parts.length >= 3 && !parts[2].isEmpty()) {
+            try {
+                iterations = Integer.parseInt(parts[2]);
+            } catch (NumberFormatException e) {
+                fatal("Nombre d'iterations invalide pour MCTS : " + info);
+            }
+            if (iterations < Jass.HAND_SIZE) {
+                fatal("Le nombre d'itérations de MCTS doit être >= 9 : " + info);
+            }
+        }
+        double curiosity = parts.length >= 4 && !parts[3].isEmpty() ? parseDouble(parts[3], info) : -1;
+        RolloutPolicy policy = parts.length == 5 ? parsePolicy(parts[4], info) : null;
+        String name = parts.length >= 2 && !parts[1].isEmpty() ? parts[1] : "Joueur " + (index + 1);
+        if (names.contains(name)) {
+            fatal("Deux joueurs ont le même nom : " + name);
+        }
+        names.add(name);
+
+        int playerIterations = iterations;
+        builder.player(name, (ownId, seed) -> {
+            MctsPlayer.Builder player = new MctsPlayer.Builder(ownId, seed).iterations(playerIterations);
+            if (curiosity >= 0) {
+                player.curiosity(curiosity);
+            }
+            if (policy != null) {
+                player.rolloutPolicy(policy);
+            }
+            return player.build();
+        });
+    }
+
+    private static void print(PrintStream out, List<Ladder.Rating> standings) {
+        for (Ladder.Rating rating : standings) {
+            out.printf("  %-20s %6.0f  [%6.0f, %6.0f]  %4d donnes, %.1f %%%n", rating.name(), rating.rating(),
+                    rating.low(), rating.high(), rating.deals(), 100 * rating.averageScore());
+        }
+    }
+
+    public static void main(String[] args) {
+        int playerCount = 0;
+        while (playerCount < args.length && isPlayer(args[playerCount])) {
+            ++playerCount;
+        }
+        int numberCount = args.length - playerCount;
+        if (playerCount < MIN_PLAYER_COUNT || numberCount > MAX_TRAILING_NUMBER_COUNT) {
+            fatal("Nombre d'arguments invalide");
+        }
+        int rounds = numberCount > 0 ? parseInt(args[playerCount], 1) : DEFAULT_ROUNDS;
+        int deals = numberCount > 1 ? parseInt(args[playerCount + 1], 1) : DEFAULT_DEALS;
+        int threads = numberCount > 2 ? parseInt(args[playerCount + 2], 1) : Runtime.getRuntime().availableProcessors();
+        long seed = numberCount > 3 ? parseNumber(args[playerCount + 3], Long.MIN_VALUE, Long.MAX_VALUE) : new Random().nextLong();
+
+        Ladder.Builder builder = new Ladder.Builder(seed).rounds(rounds).dealsPerMatch(deals).threads(threads);
+        List<String> names = new ArrayList<>(playerCount);
+        for (int i = 0; i < playerCount; ++i) {
+            addPlayer(builder, i, args[i], names);
+        }
+        Ladder ladder = builder.build();
+        long start = System.nanoTime();
+        int[] round = {0};
+        List<Ladder.Rating> standings = ladder.run(s -> {
+            System.err.println("Ronde " + ++round[0] + " / " + rounds + " :");
+            print(System.err, s);
+        });
+
+        System.out.printf("Classement final après %d rondes en %.1f s (%d fils, graine %d) :%n",
+                rounds, (System.nanoTime() - start) / 1e9, threads, seed);
+        print(System.out, standings);
+    }
+}
@@ -0,0 +1,133 @@
+package ch.epfl.javass;
+
+import ch.epfl.javass.jass.Jass;
+import ch.epfl.javass.jass.MctsPlayer;
+import ch.epfl.javass.jass.PlayerId;
+import ch.epfl.javass.jass.TeamId;
+import ch.epfl.javass.jass.Tournament;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * This class is used to play many games between simulated players, without any interface.
+ * <p>
+ * The games are played as fast as possible, spread over several threads, and statistics
+ * about their results are printed at the end: the win rate of each team, the distribution
+ * of their points, and the number of games played per second.
+ * <p>
+ * This class is designed to be run as the main program, and given arguments
+ * specifying the players and the number of games.
+ *
+ * @author Lúcás Críostóir Meier (300831)
+ * @author Ludovic Burnier (301308)
+ */
+public final class TournamentMain {
+    private static final int DEFAULT_ITERATIONS = 10000;
+    private static final int DEFAULT_GAMES = 100;
+    private static final int MIN_ARG_COUNT = PlayerId.COUNT;
+    private static final int MAX_ARG_COUNT = MIN_ARG_COUNT + 3;
+    private static final String[] DEFAULT_NAMES = {"Aline", "Bastien", "Colette", "David"};
+    private static final double[] PERCENTILES = {0.1, 0.5, 0.9};
+
+    private final static String USAGE = "Utilisation: java ch.epfl.javass.TournamentMain <j1>..<j4> [parties] [fils] [graine] où :\n" +
+            "  <jN> spécifie le joueur N, de la forme:\n" +
+            "    s:<nom>:<iterations> un joueur simulé par MCTS, nommé <nom>, faisant <iterations> par décision\n" +
+            "  [parties] est le nombre de parties jouées, " + DEFAULT_GAMES + " par défaut\n" +
+            "  [fils] est le nombre de parties jouées en même temps, le nombre de processeurs par défaut\n" +
+            "  [graine] si donné va rendre l'aléatoire des parties déterministe, avec cette graine comme incipit\n";
+
+    private TournamentMain() {
+    }
+
+    private static void fatal(String message) {
+        System.err.println("Erreur : " + message);
+        System.err.print(USAGE);
+        System.exit(1);
+    }
+
+    private static long parseNumber(String number, long min) {
+        try {
+            long n = Long.parseLong(number);
+            if (n >= min) {
+                return n;
+            }
+        } catch (NumberFormatException e) {
+            // Handled below
+        }
+        fatal("Nombre invalide: " + number);
+        throw new RuntimeException("Unreachable code");
+    }
+
+    // Parse a player of the form s:<name>:<iterations>, the name and iterations being optional,
+    // and add it to the tournament
+    private static void addPlayer(Tournament.Builder builder, PlayerId id, String info) {
+        String[] parts = info.split(":");
+        if (parts.length > 3) {
+            fatal("Trop de parties dans l'information du joueur : " + info);
+        }
+        if (!parts[0].equals("s")) {
+            fatal("Seuls les joueurs simulés peuvent jouer sans interface : " + info);
+        }
+        int iterations = DEFAULT_ITERATIONS;
+        if (parts.length == 3) {
+            try {
+                iterations = Integer.parseInt(parts[2]);
+            } catch (NumberFormatException e) {
+                fatal("Nombre d'iterations invalide pour MCTS : " + info);
+            }
+            if (iterations < Jass.HAND_SIZE) {
+                fatal("Le nombre d'itérations de MCTS doit être >= 9 : " + info);
+            }
+        }
+        String name = parts.length >= 2 && !parts[1].isEmpty() ? parts[1] : DEFAULT_NAMES[id.ordinal()];
+        int playerIterations = iterations;
+        builder.player(id, name, (ownId, seed) -> new MctsPlayer(ownId, seed, playerIterations));
+    }
+
+    private static String teamNames(Tournament tournament, TeamId team) {
+        StringBuilder names = new StringBuilder();
+        for (PlayerId id : PlayerId.ALL) {
+            if (id.team() == team) {
+                names.append(names.length() == 0 ? "" : " et ").append(tournament.names().get(id));
+            }
+        }
+        return names.toString();
+    }
+
+    public static void main(String[] args) {
+        if (args.length < MIN_ARG_COUNT || args.length > MAX_ARG_COUNT) {
+            fatal("Nombre d'arguments invalide");
+        }
+        int games = args.length > 4 ? (int) parseNumber(args[4], 1) : DEFAULT_GAMES;
+        int threads = args.length > 5 ? (int) parseNumber(args[5], 1) : Runtime.getRuntime().availableProcessors();
+        long seed = args.length > 6 ? parseNumber(args[6], Long.MIN_VALUE) : new Random().nextLong();
+
+        Tournament.Builder builder = new Tournament.Builder(seed).games(games).threads(threads);
+        for (PlayerId id : PlayerId.ALL) {
+            addPlayer(builder, id, args[id.ordinal()]);
+        }
+        Tournament tournament = builder.build();
+        int step = Math.max(1, games / 10);
+        Tournament.Result result = tournament.run(finished -> {
+            if (finished % step == 0) {
+                System.err.println(finished + " / " + games + " parties jouées");
+            }
+        });
+
+        System.out.printf("%d parties en %.1f s (%.3f parties/s, %d fils, graine %d)%n",
+                result.games(), result.seconds(), result.gamesPerSecond(), threads, seed);
+        for (TeamId team : TeamId.ALL) {
+            System.out.printf("Équipe %d (%s) : %d victoires, %.1f %% ± %.1f %%%n", team.ordinal() + 1,
+                    teamNames(tournament, team), result.wins(team),
+                    100 * result.winRate(team), 100 * result.winRateMargin(team));
+            int[] percentiles = new int[PERCENTILES.length];
+            for (int i = 0; i < PERCENTILES.length; ++i) {
+                percentiles[i] = result.pointsPercentile(team, PERCENTILES[i]);
+            }
+            System.out.printf("  points : moyenne %.1f, écart type %.1f, min %d, déciles 1/5/9 %s, max %d%n",
+                    result.meanPoints(team), result.pointsDeviation(team), result.pointsPercentile(team, 0),
+                    Arrays.toString(percentiles), result.pointsPercentile(team, 1));
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package ch.epfl.javass;
+
+import ch.epfl.javass.jass.TrumpSimulator;
+import ch.epfl.javass.jass.TrumpTable;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * This class is used to compute the table players can look their trump up in.
+ * <p>
+ * Every hand a player can be dealt, up to a permutation of the colors, is evaluated
+ * by simulation, which takes a few hours. The table is then written to a file,
+ * which can be given to the players with {@link ch.epfl.javass.jass.MctsPlayer.Builder#trumpTable}.
+ * <p>
+ * This class is designed to be run as the main program, and given arguments
+ * specifying how to compute the table.
+ *
+ * @author Lúcás Críostóir Meier (300831)
+ * @author Ludovic Burnier (301308)
+ */
+public final class TrumpTableGenerator {
+    private static final int DEFAULT_DEALS = 64;
+    private static final long SEED = 0;
+
+    private final static String USAGE = "Utilisation: java ch.epfl.javass.TrumpTableGenerator <fichier> [donnes] [fils] où :\n" +
+            "  <fichier> est le fichier dans lequel écrire la table\n" +
+            "  [donnes] est le nombre de donnes simulées par main, " + DEFAULT_DEALS + " par défaut\n" +
+            "  [fils] est le nombre de fils d'exécution utilisés, 1 par défaut\n";
+
+    private TrumpTableGenerator() {
+    }
+
+    private static void fatal(String message) {
+        System.err.println("Erreur : " + message);
+        System.err.print(USAGE);
+        System.exit(1);
+    }
+
+    private static int parseNumber(String number) {
+        try {
+            int n = Integer.parseInt(number);
+            if (n >= 1) {
+                return n;
+            }
+        } catch (NumberFormatException e) {
+            // Handled below
+        }
+        fatal("Nombre invalide: " + number);
+        throw new RuntimeException("Unreachable code");
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 1 || args.length > 3) {
+            fatal("Nombre d'arguments invalide");
+        }
+        Path path = Paths.get(args[0]);
+        int deals = args.length > 1 ? parseNumber(args[1]) : DEFAULT_DEALS;
+        int threads = args.length > 2 ? parseNumber(args[2]) : 1;
+        long start = System.nanoTime();
+        try (TrumpSimulator simulator = new TrumpSimulator.Builder(SEED).deals(deals).threads(threads).build()) {
+            TrumpTable.generate(path, simulator, deals, written -> {
+                if (written % (1 << 16) == 0) {
+                    long seconds = (System.nanoTime() - start) / 1_000_000_000;
+                    System.out.println(written + " mains évaluées en " + seconds + " s");
+                }
+            });
+        } catch (IOException e) {
+            fatal("Impossible d'écrire la table: " + e.toString());
+        }
+    }
+}
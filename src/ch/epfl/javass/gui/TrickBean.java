@@ -1,6 +1,7 @@
 package ch.epfl.javass.gui;
 
 import ch.epfl.javass.jass.Card;
+import ch.epfl.javass.jass.PackedTrick;
 import ch.epfl.javass.jass.PlayerId;
 import ch.epfl.javass.jass.Trick;
 import javafx.beans.property.ReadOnlyObjectProperty;
@@ -24,6 +25,10 @@ public final class TrickBean {
     // null indicates no player winning this trick
     private final SimpleObjectProperty<PlayerId> winningPlayer = new SimpleObjectProperty<>(null);
     private final ObservableMap<PlayerId, Card> cards = FXCollections.observableHashMap();
+    // The last trick set, and its tally, so that the winning player is updated
+    // by looking at the new card only when a card is added to that trick
+    private int pkTrick = PackedTrick.INVALID;
+    private int pkTally = PackedTrick.EMPTY_TALLY;
 
     /**
      * @return a read-only property for the current trump in the trick
@@ -65,10 +70,19 @@ public final class TrickBean {
      */
     public void setTrick(Trick newTrick) {
         if (newTrick.isEmpty()) {
+            this.pkTally = PackedTrick.EMPTY_TALLY;
             this.winningPlayer.set(null);
         } else {
-            this.winningPlayer.set(newTrick.winningPlayer());
+            int size = newTrick.size();
+            int lastCard = newTrick.card(size - 1).packed();
+            boolean oneCardAdded = this.pkTrick != PackedTrick.INVALID && PackedTrick.size(this.pkTrick) == size - 1
+                    && PackedTrick.withAddedCard(this.pkTrick, lastCard) == newTrick.packed();
+            this.pkTally = oneCardAdded
+                    ? PackedTrick.tallyWithAddedCard(this.pkTally, this.pkTrick, lastCard)
+                    : PackedTrick.tally(newTrick.packed());
+            this.winningPlayer.set(PackedTrick.winningPlayer(newTrick.packed(), this.pkTally));
         }
+        this.pkTrick = newTrick.packed();
         // We only want to commit one version of things
         Map<PlayerId, Card> tmp = new EnumMap<>(PlayerId.class);
         for (PlayerId p : PlayerId.ALL) {
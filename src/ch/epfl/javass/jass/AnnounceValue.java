@@ -35,6 +35,7 @@ public final class AnnounceValue implements Comparable<AnnounceValue> {
         return CardSet.of(cards);
     }
 
+    // Every announce, in the order in which bestSet takes them, and its points
     private final static long[] announces;
     private final static int[] points;
 
@@ -70,21 +71,75 @@ public final class AnnounceValue implements Comparable<AnnounceValue> {
         ++i;
     }
 
+    private static final int COLOR_SIZE = 16;
+    private static final int RANKS_MASK = (1 << Card.Rank.COUNT) - 1;
+
+    // The highest ordinal of the ranks of a packed card set, or 0 if it is empty
+    private static int highestRank(long pkCardSet) {
+        long ranks = pkCardSet | pkCardSet >>> (2 * COLOR_SIZE);
+        ranks |= ranks >>> COLOR_SIZE;
+        ranks &= RANKS_MASK;
+        return ranks == 0 ? 0 : Long.SIZE - 1 - Long.numberOfLeadingZeros(ranks);
+    }
+
+    // The values of the sets announced recently, shared by every game
+    private static final int CACHE_CAPACITY = 1 << 12;
+    private static final AnnounceValueCache CACHE =
+            new AnnounceValueCache(CACHE_CAPACITY, pkCardSet -> new AnnounceValue(CardSet.ofPacked(pkCardSet)));
+
     private final int pointsValue;
     private final int size;
     private final int highestOrdinal;
 
-    private static class CardSetPair {
-        public final CardSet cardSet;
-        public final int points;
+    static final class CardSetPair {
+        final CardSet cardSet;
+        final int points;
 
-        public CardSetPair(CardSet cardSet, int points) {
+        CardSetPair(CardSet cardSet, int points) {
             this.cardSet = cardSet;
             this.points = points;
         }
     }
 
-    private static CardSetPair bestSet(CardSet set, boolean sameSize) {
+    /**
+     * Find the best announce made of some of the cards of a set, or of exactly these cards.
+     * <p>
+     * The announces contained in the set are taken in order, as long as they don't overlap,
+     * and each of them counts as 20 points. This gives the same result as the enumeration
+     * of {@link #bestSetByEnumeration}, without going through its subsets.
+     *
+     * @param set      the set to search for announces
+     * @param sameSize true if the announce must contain exactly the cards of the set
+     * @return the cards of the best announce, which is empty if there is none, and its points
+     */
+    static CardSetPair bestSet(CardSet set, boolean sameSize) {
+        long packed = set.packed();
+        long taken = PackedCardSet.EMPTY;
+        int count = 0;
+        long bestSet = PackedCardSet.EMPTY;
+        int bestCount = 0;
+        for (long announce : announces) {
+            if (PackedCardSet.difference(announce, packed) != PackedCardSet.EMPTY) {
+                continue;
+            }
+            if (PackedCardSet.intersection(taken, announce) != PackedCardSet.EMPTY) {
+                break;
+            }
+            taken = PackedCardSet.union(taken, announce);
+            ++count;
+            if (!sameSize || taken == packed) {
+                bestSet = taken;
+                bestCount = count;
+            }
+        }
+        return new CardSetPair(CardSet.ofPacked(bestSet), bestCount * points[0]);
+    }
+
+    /**
+     * Same as {@link #bestSet}, by going through subsets of the announces contained in the set.
+     * This is the original implementation of bestSet, unchanged: it is much slower, and is kept to check it.
+     */
+    static CardSetPair bestSetByEnumeration(CardSet set, boolean sameSize) {
         int size = set.size();
         long packed = set.packed();
         List<Integer> applying = new ArrayList<>();
@@ -128,12 +183,7 @@ public final class AnnounceValue implements Comparable<AnnounceValue> {
         this.size = set.size();
         CardSetPair pair = bestSet(set, true);
         this.pointsValue = pair.points;
-        int maxOrdinal = 0;
-        for (int i = 0; i < pair.cardSet.size(); ++i) {
-            int ordinal = pair.cardSet.get(i).rank().ordinal();
-            maxOrdinal = Math.max(maxOrdinal, ordinal);
-        }
-        this.highestOrdinal = maxOrdinal;
+        this.highestOrdinal = highestRank(pair.cardSet.packed());
     }
 
     /**
@@ -144,11 +194,27 @@ public final class AnnounceValue implements Comparable<AnnounceValue> {
      * If extra cards are included that are worthless, then the entire CardSet
      * is worth nothing.
      *
+     * The values of the sets used recently are cached, and shared by every thread.
+     *
      * @param set the set to calculate the value of
      * @return an announce value for that set
      */
     public static AnnounceValue fromSet(CardSet set) {
-        return new AnnounceValue(set);
+        return CACHE.get(set.packed());
+    }
+
+    /**
+     * @return the number of calls to {@link #fromSet} whose value was found in the cache
+     */
+    public static long cacheHits() {
+        return CACHE.hits();
+    }
+
+    /**
+     * @return the number of calls to {@link #fromSet} whose value had to be computed
+     */
+    public static long cacheMisses() {
+        return CACHE.misses();
     }
 
     /**
@@ -0,0 +1,105 @@
+package ch.epfl.javass.jass;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongFunction;
+
+/**
+ * A cache of the announce values of packed card sets, of bounded size,
+ * which can be used by several threads at the same time.
+ * <p>
+ * The cache is 2-way set associative: each set of cards can only be stored in the two entries
+ * of a slot, chosen by hashing it. The first entry of a slot holds the value used most recently,
+ * so a value found in the second entry is moved to the first one, and a new value replaces
+ * the one in the second entry. Entries are immutable and replaced atomically, so a race
+ * can at worst forget a value, which is then simply computed again.
+ *
+ * @author Lúcás Críostóir Meier (300831)
+ * @author Ludovic Burnier (301308)
+ */
+final class AnnounceValueCache {
+    private static final class Entry {
+        final long pkCardSet;
+        final AnnounceValue value;
+
+        Entry(long pkCardSet, AnnounceValue value) {
+            this.pkCardSet = pkCardSet;
+            this.value = value;
+        }
+    }
+
+    private final AtomicReferenceArray<Entry> entries;
+    private final int slotMask;
+    private final LongFunction<AnnounceValue> compute;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Construct a new empty cache
+     *
+     * @param capacity the minimal number of entries, rounded up to a power of two
+     * @param compute  computes the value of a packed card set missing from the cache
+     */
+    AnnounceValueCache(int capacity, LongFunction<AnnounceValue> compute) {
+        assert capacity > 0;
+        int size = Math.max(2, Integer.highestOneBit(capacity - 1) << 1);
+        this.entries = new AtomicReferenceArray<>(size);
+        this.slotMask = size / 2 - 1;
+        this.compute = compute;
+    }
+
+    // The index of the first entry of the slot of a set
+    private int slot(long pkCardSet) {
+        long h = pkCardSet * 0x9E37_79B9_7F4A_7C15L;
+        h ^= h >>> 32;
+        return ((int) h & this.slotMask) << 1;
+    }
+
+    /**
+     * Return the announce value of a set, computing it if it isn't in the cache
+     *
+     * @param pkCardSet the packed card set
+     * @return its announce value
+     */
+    AnnounceValue get(long pkCardSet) {
+        int first = slot(pkCardSet);
+        Entry recent = this.entries.get(first);
+        if (recent != null && recent.pkCardSet == pkCardSet) {
+            this.hits.increment();
+            return recent.value;
+        }
+        Entry older = this.entries.get(first + 1);
+        if (older != null && older.pkCardSet == pkCardSet) {
+            this.hits.increment();
+            this.entries.set(first, older);
+            this.entries.set(first + 1, recent);
+            return older.value;
+        }
+        this.misses.increment();
+        Entry entry = new Entry(pkCardSet, this.compute.apply(pkCardSet));
+        this.entries.set(first + 1, recent);
+        this.entries.set(first, entry);
+        return entry.value;
+    }
+
+    /**
+     * @return the number of entries of this cache
+     */
+    int capacity() {
+        return this.entries.length();
+    }
+
+    /**
+     * @return the number of values found in this cache
+     */
+    long hits() {
+        return this.hits.sum();
+    }
+
+    /**
+     * @return the number of values that had to be computed
+     */
+    long misses() {
+        return this.misses.sum();
+    }
+}
@@ -0,0 +1,228 @@
+package ch.epfl.javass.jass;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Contains utility functions numbering the hands of a player up to a permutation of the colors,
+ * which doesn't change anything to the choice of the trump.
+ * <p>
+ * The canonical form of a hand gives the cards of the color with the most cards to the first color,
+ * those of the color with the second most to the second one, and so on, ties being broken by
+ * comparing the packed subsets of the colors. Canonical hands are then numbered from 0 to
+ * {@link #COUNT} - 1 in constant time: a hand is described by the number of cards of each color,
+ * then by the subset of ranks of each color, colors with the same number of cards
+ * forming a multiset, ranked with the combinatorial number system.
+ *
+ * @author Lúcás Críostóir Meier (300831)
+ * @author Ludovic Burnier (301308)
+ */
+final class CanonicalHand {
+    private static final int RANKS = Card.Rank.COUNT;
+    private static final int COLORS = Card.Color.COUNT;
+    private static final int COLOR_BITS = Long.SIZE / COLORS;
+    private static final int RANK_MASK = (1 << RANKS) - 1;
+    private static final int MAX_BINOMIAL = 160;
+
+    // BINOMIALS[n][k] = n choose k, for k <= COLORS + 1
+    private static final long[][] BINOMIALS = new long[MAX_BINOMIAL][COLORS + 2];
+    // The rank of each subset of ranks among the subsets of the same size, in increasing order
+    private static final int[] SUBSET_RANKS = new int[1 << RANKS];
+    // The subsets of each size, in increasing order
+    private static final int[][] SUBSETS = new int[RANKS + 1][];
+    // The sizes of the colors of each shape, in decreasing order,
+    // and the first rank of the hands of each shape
+    private static final int[][] SHAPES;
+    private static final long[] SHAPE_OFFSETS;
+    // The index of each shape, by shapeKey
+    private static final int[] SHAPE_INDICES = new int[1000];
+
+    /**
+     * The number of canonical hands
+     */
+    static final int COUNT;
+
+    static {
+        for (int n = 0; n < MAX_BINOMIAL; ++n) {
+            BINOMIALS[n][0] = 1;
+            for (int k = 1; k <= Math.min(n, COLORS + 1); ++k) {
+                BINOMIALS[n][k] = BINOMIALS[n - 1][k - 1] + (k <= n - 1 ? BINOMIALS[n - 1][k] : 0);
+            }
+        }
+        int[] sizes = new int[RANKS + 1];
+        for (int s = 0; s <= RANKS; ++s) {
+            SUBSETS[s] = new int[(int) binomial9(s)];
+        }
+        for (int subset = 0; subset < 1 << RANKS; ++subset) {
+            int size = Integer.bitCount(subset);
+            SUBSET_RANKS[subset] = sizes[size];
+            SUBSETS[size][sizes[size]++] = subset;
+        }
+
+        List<int[]> shapes = new ArrayList<>();
+        for (int a = RANKS; a >= 0; --a) {
+            for (int b = Math.min(a, Jass.HAND_SIZE - a); b >= 0; --b) {
+                for (int c = Math.min(b, Jass.HAND_SIZE - a - b); c >= 0; --c) {
+                    int d = Jass.HAND_SIZE - a - b - c;
+                    if (d <= c) {
+                        shapes.add(new int[] {a, b, c, d});
+                    }
+                }
+            }
+        }
+        SHAPES = shapes.toArray(new int[0][]);
+        SHAPE_OFFSETS = new long[SHAPES.length + 1];
+        Arrays.fill(SHAPE_INDICES, -1);
+        for (int s = 0; s < SHAPES.length; ++s) {
+            SHAPE_INDICES[shapeKey(SHAPES[s])] = s;
+            SHAPE_OFFSETS[s + 1] = SHAPE_OFFSETS[s] + shapeSize(SHAPES[s]);
+        }
+        COUNT = Math.toIntExact(SHAPE_OFFSETS[SHAPES.length]);
+    }
+
+    private CanonicalHand() {
+    }
+
+    private static long binomial9(int k) {
+        long result = 1;
+        for (int i = 0; i < k; ++i) {
+            result = result * (RANKS - i) / (i + 1);
+        }
+        return result;
+    }
+
+    private static int shapeKey(int[] sizes) {
+        return sizes[0] * 100 + sizes[1] * 10 + sizes[2];
+    }
+
+    // The number of hands of a shape, colors of the same size forming multisets
+    private static long shapeSize(int[] sizes) {
+        long size = 1;
+        for (int first = 0; first < COLORS; ) {
+            int end = groupEnd(sizes, first);
+            size *= multisets(SUBSETS[sizes[first]].length, end - first);
+            first = end;
+        }
+        return size;
+    }
+
+    // The end of the group of colors having the same size as the first one
+    private static int groupEnd(int[] sizes, int first) {
+        int end = first + 1;
+        while (end < COLORS && sizes[end] == sizes[first]) {
+            ++end;
+        }
+        return end;
+    }
+
+    // The number of multisets of m elements taken among n
+    private static long multisets(int n, int m) {
+        return BINOMIALS[n + m - 1][m];
+    }
+
+    private static int subset(long pkHand, int color) {
+        return (int) (pkHand >>> (color * COLOR_BITS)) & RANK_MASK;
+    }
+
+    /**
+     * Compute the canonical form of a hand
+     *
+     * @param pkHand the hand, with 9 cards
+     * @param colors filled with the ordinal of the color of the hand
+     *               moved to each color of the canonical hand
+     * @return the canonical hand
+     */
+    static long canonicalize(long pkHand, int[] colors) {
+        // Sort by decreasing size, then decreasing subset, with an insertion sort
+        int[] keys = new int[COLORS];
+        for (int c = 0; c < COLORS; ++c) {
+            int subset = subset(pkHand, c);
+            int key = (Integer.bitCount(subset) << RANKS) | subset;
+            int j = c;
+            while (j > 0 && keys[j - 1] < key) {
+                keys[j] = keys[j - 1];
+                colors[j] = colors[j - 1];
+                --j;
+            }
+            keys[j] = key;
+            colors[j] = c;
+        }
+        long canonical = PackedCardSet.EMPTY;
+        for (int c = 0; c < COLORS; ++c) {
+            canonical |= (long) (keys[c] & RANK_MASK) << (c * COLOR_BITS);
+        }
+        return canonical;
+    }
+
+    /**
+     * @param pkCanonicalHand a canonical hand
+     * @return the number of that hand, between 0 and COUNT - 1
+     */
+    static int rank(long pkCanonicalHand) {
+        int[] sizes = new int[COLORS];
+        for (int c = 0; c < COLORS; ++c) {
+            sizes[c] = Integer.bitCount(subset(pkCanonicalHand, c));
+        }
+        int shape = SHAPE_INDICES[shapeKey(sizes)];
+        assert shape >= 0 && Arrays.equals(SHAPES[shape], sizes);
+        long rank = 0;
+        for (int first = 0; first < COLORS; ) {
+            int end = groupEnd(sizes, first);
+            int m = end - first;
+            long groupRank = 0;
+            for (int j = 0; j < m; ++j) {
+                // Turn the decreasing ranks of the multiset into strictly decreasing ones
+                int q = SUBSET_RANKS[subset(pkCanonicalHand, first + j)] + (m - 1 - j);
+                groupRank += BINOMIALS[q][m - j];
+            }
+            rank = rank * multisets(SUBSETS[sizes[first]].length, m) + groupRank;
+            first = end;
+        }
+        return Math.toIntExact(SHAPE_OFFSETS[shape] + rank);
+    }
+
+    /**
+     * @param rank the number of a canonical hand, between 0 and COUNT - 1
+     * @return the canonical hand with that number
+     */
+    static long unrank(int rank) {
+        int shape = 0;
+        while (SHAPE_OFFSETS[shape + 1] <= rank) {
+            ++shape;
+        }
+        int[] sizes = SHAPES[shape];
+        long rest = rank - SHAPE_OFFSETS[shape];
+        // The groups were combined from the first to the last, so the last one comes out first
+        long[] groupRanks = new long[COLORS];
+        for (int first = COLORS - 1; first >= 0; ) {
+            int start = first;
+            while (start > 0 && sizes[start - 1] == sizes[first]) {
+                --start;
+            }
+            long count = multisets(SUBSETS[sizes[first]].length, first - start + 1);
+            groupRanks[start] = rest % count;
+            rest /= count;
+            first = start - 1;
+        }
+        long hand = PackedCardSet.EMPTY;
+        for (int first = 0; first < COLORS; ) {
+            int end = groupEnd(sizes, first);
+            int m = end - first;
+            long groupRank = groupRanks[first];
+            int q = SUBSETS[sizes[first]].length + m - 1;
+            for (int j = 0; j < m; ++j) {
+                // The largest q such that q choose (m - j) fits in what is left
+                while (BINOMIALS[q][m - j] > groupRank) {
+                    --q;
+                }
+                groupRank -= BINOMIALS[q][m - j];
+                int subset = SUBSETS[sizes[first]][q - (m - 1 - j)];
+                hand |= (long) subset << ((first + j) * COLOR_BITS);
+                --q;
+            }
+            first = end;
+        }
+        return hand;
+    }
+}
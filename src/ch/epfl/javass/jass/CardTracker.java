@@ -0,0 +1,176 @@
+package ch.epfl.javass.jass;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Keeps track of what a player can deduce about the hands of the others
+ * during a turn, from the cards they play and the announces they make.
+ * <p>
+ * The tracker is fed with the same information as a {@link Player}, through methods
+ * of the same names, and gives, for each player, the cards it might still hold,
+ * along with the cards it is known to hold.
+ * <p>
+ * A player that doesn't follow the base color of a trick has no card of that color left,
+ * except possibly the jack of trump, and a player that plays a trump lower than
+ * one already in the trick, without following, only has such trumps left.
+ *
+ * @author Lúcás Críostóir Meier (300831)
+ * @author Ludovic Burnier (301308)
+ */
+public final class CardTracker {
+    private final PlayerId ownId;
+    private final long[] possible = new long[PlayerId.COUNT];
+    private final long[] known = new long[PlayerId.COUNT];
+    // The union of the known cards
+    private long allKnown = PackedCardSet.EMPTY;
+    private long played = PackedCardSet.EMPTY;
+    private long ownHand = PackedCardSet.EMPTY;
+
+    /**
+     * Construct a new tracker, knowing nothing yet
+     *
+     * @param ownId the id of the player using the tracker
+     */
+    public CardTracker(PlayerId ownId) {
+        this.ownId = ownId;
+        reset();
+    }
+
+    private void reset() {
+        Arrays.fill(this.possible, PackedCardSet.ALL_CARDS);
+        Arrays.fill(this.known, PackedCardSet.EMPTY);
+        this.allKnown = PackedCardSet.EMPTY;
+        this.played = PackedCardSet.EMPTY;
+    }
+
+    /**
+     * @return the id of the player using this tracker
+     */
+    public PlayerId ownId() {
+        return this.ownId;
+    }
+
+    /**
+     * Record the new hand of the player using this tracker
+     *
+     * @param newHand the cards that player holds
+     */
+    public void updateHand(CardSet newHand) {
+        this.ownHand = newHand.packed();
+    }
+
+    /**
+     * Start tracking a new turn, forgetting everything but our hand
+     *
+     * @param trump the trump of the new turn
+     */
+    public void setTrump(Card.Color trump) {
+        reset();
+    }
+
+    /**
+     * Record the cards played in a trick, and what they tell us about the hands of their players.
+     * This can be called several times with the same trick.
+     *
+     * @param newTrick the current trick
+     */
+    public void updateTrick(Trick newTrick) {
+        int pkTrick = newTrick.packed();
+        if (PackedTurnState.isTerminal(pkTrick) || PackedTrick.isEmpty(pkTrick)) {
+            return;
+        }
+        Card.Color trump = PackedTrick.trump(pkTrick);
+        Card.Color base = PackedTrick.baseColor(pkTrick);
+        long baseCards = PackedCardSet.subsetOfColor(PackedCardSet.ALL_CARDS, base);
+        long trumpCards = PackedCardSet.subsetOfColor(PackedCardSet.ALL_CARDS, trump);
+        if (base == trump) {
+            // The jack of trump never has to be played
+            baseCards = PackedCardSet.remove(baseCards, PackedCard.pack(trump, Card.Rank.JACK));
+        }
+        int bestTrump = PackedCard.INVALID;
+        for (int i = 0; i < PackedTrick.size(pkTrick); ++i) {
+            int pkCard = PackedTrick.card(pkTrick, i);
+            int player = PackedTrick.player(pkTrick, i).ordinal();
+            this.played = PackedCardSet.add(this.played, pkCard);
+            Card.Color color = PackedCard.color(pkCard);
+            if (color != base) {
+                if (color != trump) {
+                    // Playing another color is only allowed without cards of the base color
+                    this.possible[player] = PackedCardSet.difference(this.possible[player], baseCards);
+                } else if (PackedCard.isValid(bestTrump) && PackedCard.isBetter(trump, bestTrump, pkCard)) {
+                    // Undercutting is only allowed with nothing but lower trumps
+                    long lowerTrumps = PackedCardSet.difference(trumpCards, PackedCardSet.trumpAbove(bestTrump));
+                    this.possible[player] = PackedCardSet.intersection(this.possible[player], lowerTrumps);
+                }
+            }
+            if (color == trump && (!PackedCard.isValid(bestTrump) || PackedCard.isBetter(trump, pkCard, bestTrump))) {
+                bestTrump = pkCard;
+            }
+        }
+    }
+
+    /**
+     * Record the cards the players announced, which they are then known to hold
+     *
+     * @param announces the cards announced by each player
+     */
+    public void setAnnounce(Map<PlayerId, CardSet> announces) {
+        for (Map.Entry<PlayerId, CardSet> announce : announces.entrySet()) {
+            int player = announce.getKey().ordinal();
+            long cards = announce.getValue().packed();
+            this.known[player] = PackedCardSet.union(this.known[player], cards);
+            this.possible[player] = PackedCardSet.union(this.possible[player], cards);
+            this.allKnown = PackedCardSet.union(this.allKnown, cards);
+        }
+    }
+
+    /**
+     * Return the cards a player might still hold, given everything this tracker was told.
+     * For the player using the tracker, this is exactly its hand.
+     *
+     * @param player the player to look at
+     * @return the packed set of cards that player might hold
+     */
+    public long packedPossibleCards(PlayerId player) {
+        if (player == this.ownId) {
+            return this.ownHand;
+        }
+        int i = player.ordinal();
+        long knownByOthers = PackedCardSet.difference(this.allKnown, this.known[i]);
+        long excluded = PackedCardSet.union(PackedCardSet.union(this.played, this.ownHand), knownByOthers);
+        return PackedCardSet.difference(this.possible[i], excluded);
+    }
+
+    /**
+     * @param player the player to look at
+     * @return the cards that player might hold
+     * @see #packedPossibleCards(PlayerId)
+     */
+    public CardSet possibleCards(PlayerId player) {
+        return CardSet.ofPacked(packedPossibleCards(player));
+    }
+
+    /**
+     * Return the cards a player is known to hold, because it announced them
+     * and hasn't played them yet. For the player using the tracker, this is exactly its hand.
+     *
+     * @param player the player to look at
+     * @return the packed set of cards that player holds for sure
+     */
+    public long packedKnownCards(PlayerId player) {
+        if (player == this.ownId) {
+            return this.ownHand;
+        }
+        return PackedCardSet.difference(this.known[player.ordinal()], this.played);
+    }
+
+    /**
+     * @param player the player to look at
+     * @return the cards that player holds for sure
+     * @see #packedKnownCards(PlayerId)
+     */
+    public CardSet knownCards(PlayerId player) {
+        return CardSet.ofPacked(packedKnownCards(player));
+    }
+}
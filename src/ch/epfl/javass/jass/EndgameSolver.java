@@ -0,0 +1,197 @@
+package ch.epfl.javass.jass;
+
+/**
+ * Solves the end of a turn exactly, once the hands of all the players are known,
+ * with an alpha-beta search working on the packed components of the turn state.
+ * <p>
+ * Positions already solved are kept in a transposition table, keyed by the unplayed
+ * cards and the current trick: as long as the deal doesn't change, these determine the hands
+ * of the players. Every position also records which teams haven't won any trick yet,
+ * since this decides who can still get the match bonus.
+ * <p>
+ * The cards able to win the current trick are tried first, which makes cutoffs happen early.
+ * A solver keeps its buffers from one search to the next, and can't be shared between threads.
+ *
+ * @author Lúcás Críostóir Meier (300831)
+ * @author Ludovic Burnier (301308)
+ */
+final class EndgameSolver {
+    private static final int TABLE_BITS = 16;
+    private static final int TABLE_MASK = (1 << TABLE_BITS) - 1;
+    // The kind of value stored in the table
+    private static final byte EXACT = 0;
+    private static final byte LOWER_BOUND = 1;
+    private static final byte UPPER_BOUND = 2;
+    // More than the points a team can make in a turn
+    private static final int INFINITY = 1 << 20;
+    private static final int MAX_PLIES = Card.Color.COUNT * Card.Rank.COUNT;
+    private static final int MAX_MOVES = Card.Color.COUNT * Card.Rank.COUNT;
+
+    private final long[] tableUnplayedCards = new long[1 << TABLE_BITS];
+    // The trick, along with the match flags in the upper bits
+    private final long[] tableKeys = new long[1 << TABLE_BITS];
+    private final int[] tableValues = new int[1 << TABLE_BITS];
+    private final int[] tableMoves = new int[1 << TABLE_BITS];
+    private final byte[] tableBounds = new byte[1 << TABLE_BITS];
+    // Entries from another deal are ignored, which avoids clearing the table
+    private final int[] tableGenerations = new int[1 << TABLE_BITS];
+    private int generation = 0;
+
+    private final int[][] moves = new int[MAX_PLIES][MAX_MOVES];
+    private final int[][] moveKeys = new int[MAX_PLIES][MAX_MOVES];
+    private final long[] hands = new long[PlayerId.COUNT];
+    private TeamId team;
+    private long nodes = 0;
+
+    /**
+     * @return the number of positions visited since this solver was created
+     */
+    long nodes() {
+        return this.nodes;
+    }
+
+    /**
+     * Compute, for a given deal, the number of points a team will make from now on
+     * after playing each of a set of cards, assuming that everybody then plays perfectly.
+     *
+     * @param pkScore         the current score
+     * @param pkUnplayedCards the cards that have yet to be played
+     * @param pkTrick         the current trick, which can't be full or invalid
+     * @param hands           the cards held by each player, indexed by ordinal
+     * @param team            the team whose points are computed
+     * @param cards           the cards the next player can play
+     * @param values          filled with the value of each of these cards, in order
+     */
+    void solve(long pkScore, long pkUnplayedCards, int pkTrick, long[] hands, TeamId team, long cards, int[] values) {
+        System.arraycopy(hands, 0, this.hands, 0, PlayerId.COUNT);
+        this.team = team;
+        // A new deal makes every entry of the table invalid
+        ++this.generation;
+        for (int i = 0; i < PackedCardSet.size(cards); ++i) {
+            values[i] = play(pkScore, pkUnplayedCards, pkTrick, PackedCardSet.get(cards, i), -INFINITY, INFINITY, 0);
+        }
+    }
+
+    // The value of playing a card, relative to the current score
+    private int play(long pkScore, long pkUnplayedCards, int pkTrick, int pkCard, int alpha, int beta, int ply) {
+        long unplayed = PackedCardSet.remove(pkUnplayedCards, pkCard);
+        int trick = PackedTrick.withAddedCard(pkTrick, pkCard);
+        long score = PackedTurnState.collectedScore(pkScore, trick);
+        int gain = PackedScore.turnPoints(score, this.team) - PackedScore.turnPoints(pkScore, this.team);
+        trick = PackedTurnState.collectedTrick(trick);
+        return gain + search(score, unplayed, trick, alpha - gain, beta - gain, ply + 1);
+    }
+
+    // Only the teams that haven't won a trick yet matter for the match bonus
+    private static int matchFlags(long pkScore) {
+        int flags = 0;
+        for (TeamId t : TeamId.ALL) {
+            if (PackedScore.turnTricks(pkScore, t) == 0) {
+                flags |= 1 << t.ordinal();
+            }
+        }
+        return flags;
+    }
+
+    private static int slot(long pkUnplayedCards, long key) {
+        long h = (pkUnplayedCards ^ Long.rotateLeft(key, 29)) * 0x9E37_79B9_7F4A_7C15L;
+        return (int) (h >>> (Long.SIZE - TABLE_BITS)) & TABLE_MASK;
+    }
+
+    private int search(long pkScore, long pkUnplayedCards, int pkTrick, int alpha, int beta, int ply) {
+        if (PackedTurnState.isTerminal(pkTrick)) {
+            return 0;
+        }
+        ++this.nodes;
+        long key = Integer.toUnsignedLong(pkTrick) | ((long) matchFlags(pkScore) << Integer.SIZE);
+        int slot = slot(pkUnplayedCards, key);
+        int tableMove = PackedCard.INVALID;
+        boolean hit = this.tableGenerations[slot] == this.generation
+                && this.tableUnplayedCards[slot] == pkUnplayedCards
+                && this.tableKeys[slot] == key;
+        if (hit) {
+            int value = this.tableValues[slot];
+            byte bound = this.tableBounds[slot];
+            if (bound == EXACT
+                    || (bound == LOWER_BOUND && value >= beta)
+                    || (bound == UPPER_BOUND && value <= alpha)) {
+                return value;
+            }
+            tableMove = this.tableMoves[slot];
+        }
+
+        PlayerId player = PackedTrick.player(pkTrick, PackedTrick.size(pkTrick));
+        boolean maximizing = player.team() == this.team;
+        int count = orderedMoves(pkUnplayedCards, pkTrick, player, tableMove, ply);
+        int[] plyMoves = this.moves[ply];
+
+        int originalAlpha = alpha;
+        int originalBeta = beta;
+        int best = maximizing ? -INFINITY : INFINITY;
+        int bestMove = plyMoves[0];
+        for (int i = 0; i < count && alpha < beta; ++i) {
+            int value = play(pkScore, pkUnplayedCards, pkTrick, plyMoves[i], alpha, beta, ply);
+            if (maximizing ? value > best : value < best) {
+                best = value;
+                bestMove = plyMoves[i];
+            }
+            if (maximizing) {
+                alpha = Math.max(alpha, value);
+            } else {
+                beta = Math.min(beta, value);
+            }
+        }
+
+        byte bound = best <= originalAlpha ? UPPER_BOUND : best >= originalBeta ? LOWER_BOUND : EXACT;
+        this.tableGenerations[slot] = this.generation;
+        this.tableUnplayedCards[slot] = pkUnplayedCards;
+        this.tableKeys[slot] = key;
+        this.tableValues[slot] = best;
+        this.tableBounds[slot] = bound;
+        this.tableMoves[slot] = bestMove;
+        return best;
+    }
+
+    // Fill the moves of a ply, best first, and return how many there are
+    private int orderedMoves(long pkUnplayedCards, int pkTrick, PlayerId player, int tableMove, int ply) {
+        long hand = PackedCardSet.intersection(this.hands[player.ordinal()], pkUnplayedCards);
+        // This can only be empty if the deal was inconsistent
+        long playable = PackedTrick.playableCards(pkTrick, PackedCardSet.isEmpty(hand) ? pkUnplayedCards : hand);
+        Card.Color trump = PackedTrick.trump(pkTrick);
+        int winning = PackedCard.INVALID;
+        for (int i = 0; i < PackedTrick.size(pkTrick); ++i) {
+            int card = PackedTrick.card(pkTrick, i);
+            if (i == 0 || PackedCard.isBetter(trump, card, winning)) {
+                winning = card;
+            }
+        }
+
+        int[] plyMoves = this.moves[ply];
+        int[] keys = this.moveKeys[ply];
+        int count = PackedCardSet.size(playable);
+        for (int i = 0; i < count; ++i) {
+            int card = PackedCardSet.get(playable, i);
+            int points = PackedCard.points(trump, card);
+            int key;
+            if (card == tableMove) {
+                key = Integer.MAX_VALUE;
+            } else if (!PackedCard.isValid(winning) || PackedCard.isBetter(trump, card, winning)) {
+                // Taking the trick with many points comes first
+                key = (1 << 8) + points;
+            } else {
+                // Otherwise, give away as few points as possible
+                key = -points;
+            }
+            // Insertion sort, by decreasing key
+            int j = i;
+            while (j > 0 && keys[j - 1] < key) {
+                plyMoves[j] = plyMoves[j - 1];
+                keys[j] = keys[j - 1];
+                --j;
+            }
+            plyMoves[j] = card;
+            keys[j] = key;
+        }
+        return count;
+    }
+}
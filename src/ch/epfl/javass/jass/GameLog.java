@@ -0,0 +1,485 @@
+package ch.epfl.javass.jass;
+
+import ch.epfl.javass.Preconditions;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * The record of a game of Jass, from which the game can be replayed, and which can be
+ * written to and read from a compact binary log, holding any number of games one after the other.
+ * <p>
+ * The deals aren't stored, since they only depend on the seed of the game. A log starts with
+ * a magic number and the version of the format, as a big-endian int and a byte. Each game then
+ * starts with a {@code GAME} byte, the seed of the game as a big-endian long, and the name of every
+ * player, as its length in bytes followed by its UTF-8 encoding. It is followed by its turns,
+ * and ends with an {@code END} byte once it is over. Each turn starts with one byte holding its
+ * trump, the player who chose it, and whether that player delegated the choice to its partner.
+ * Every card played is then stored as its packed representation, on a byte. In the first trick,
+ * each card is preceded by the announce of its player: the number of cards of the announce,
+ * followed by those cards. A game therefore takes around 40 bytes per turn.
+ * <p>
+ * A game isn't over until its {@code END} byte, so a log cut short, or a game abandoned
+ * before its end, can still be read, and replayed up to its last complete trick.
+ *
+ * @author Lúcás Críostóir Meier (300831)
+ * @author Ludovic Burnier (301308)
+ */
+public final class GameLog {
+    private static final int MAGIC = 0x4A_47_4C_47;
+    private static final int VERSION = 1;
+    private static final int GAME = 0xFE;
+    private static final int END = 0xFF;
+    // Set in the first byte of every turn, and never in a packed card
+    private static final int TURN = 0x80;
+    private static final int DELEGATED = 0x10;
+    private static final int CHOOSER_SHIFT = 2;
+    private static final int CHOOSER_MASK = 0b11 << CHOOSER_SHIFT;
+    private static final int TRUMP_MASK = 0b11;
+    private static final int MAX_NAME_LENGTH = 0xFF;
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int INITIAL_TURNS = 16;
+    private static final int CARDS_PER_TURN = Jass.TRICKS_PER_TURN * PlayerId.COUNT;
+
+    /**
+     * Writes games to a channel as they are played, through a buffer. A writer is given to the
+     * {@link JassGame} to record, and can record several games one after the other, but not at
+     * the same time: games played in parallel need a writer each.
+     * <p>
+     * Since the methods recording the game are called by the game itself, they report
+     * errors writing to the channel with an {@link UncheckedIOException}.
+     */
+    public static final class Writer implements Closeable {
+        private final WritableByteChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+        /**
+         * Start writing a log to a channel
+         *
+         * @param channel the channel the log is written to, from its current position
+         */
+        public Writer(WritableByteChannel channel) {
+            this.channel = channel;
+            this.buffer.putInt(MAGIC);
+            this.buffer.put((byte) VERSION);
+        }
+
+        private void put(int b) {
+            if (!this.buffer.hasRemaining()) {
+                try {
+                    drain();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            this.buffer.put((byte) b);
+        }
+
+        private void drain() throws IOException {
+            this.buffer.flip();
+            while (this.buffer.hasRemaining()) {
+                this.channel.write(this.buffer);
+            }
+            this.buffer.clear();
+        }
+
+        void startGame(long rngSeed, Map<PlayerId, String> names) {
+            byte[][] encoded = new byte[PlayerId.COUNT][];
+            for (PlayerId id : PlayerId.ALL) {
+                encoded[id.ordinal()] = names.get(id).getBytes(StandardCharsets.UTF_8);
+                Preconditions.checkArgument(encoded[id.ordinal()].length <= MAX_NAME_LENGTH);
+            }
+            put(GAME);
+            for (int shift = Long.SIZE - Byte.SIZE; shift >= 0; shift -= Byte.SIZE) {
+                put((int) (rngSeed >>> shift));
+            }
+            for (byte[] name : encoded) {
+                put(name.length);
+                for (byte b : name) {
+                    put(b);
+                }
+            }
+        }
+
+        void turn(PlayerId chooser, Card.Color trump, boolean delegated) {
+            put(TURN | (delegated ? DELEGATED : 0) | chooser.ordinal() << CHOOSER_SHIFT | trump.ordinal());
+        }
+
+        void announce(CardSet announce) {
+            long pkAnnounce = announce.packed();
+            put(PackedCardSet.size(pkAnnounce));
+            for (long rest = pkAnnounce; !PackedCardSet.isEmpty(rest); rest = PackedCardSet.withoutFirst(rest)) {
+                put(PackedCardSet.first(rest));
+            }
+        }
+
+        void card(Card card) {
+            put(card.packed());
+        }
+
+        void endGame() {
+            put(END);
+        }
+
+        /**
+         * Write every byte recorded so far to the channel
+         *
+         * @throws IOException if the channel can't be written to
+         */
+        public void flush() throws IOException {
+            drain();
+        }
+
+        /**
+         * Write every byte recorded so far to the channel, and close it
+         *
+         * @throws IOException if the channel can't be written to or closed
+         */
+        @Override
+        public void close() throws IOException {
+            try {
+                drain();
+            } finally {
+                this.channel.close();
+            }
+        }
+    }
+
+    /**
+     * Reads the games of a log from a channel, one after the other
+     */
+    public static final class Reader {
+        private final ReadableByteChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+        /**
+         * Start reading a log from a channel
+         *
+         * @param channel the channel the log is read from, from its current position
+         * @throws IOException              if the channel can't be read
+         * @throws IllegalArgumentException if the channel doesn't start with a log
+         */
+        public Reader(ReadableByteChannel channel) throws IOException {
+            this.channel = channel;
+            this.buffer.limit(0);
+            int magic = 0;
+            for (int i = 0; i < Integer.BYTES; ++i) {
+                magic = magic << Byte.SIZE | nextByteOfGame();
+            }
+            Preconditions.checkArgument(magic == MAGIC && nextByteOfGame() == VERSION);
+        }
+
+        // Return the next byte without consuming it, or -1 at the end of the channel
+        private int peekByte() throws IOException {
+            while (!this.buffer.hasRemaining()) {
+                this.buffer.clear();
+                int read = this.channel.read(this.buffer);
+                this.buffer.flip();
+                if (read < 0) {
+                    return -1;
+                }
+            }
+            return Byte.toUnsignedInt(this.buffer.get(this.buffer.position()));
+        }
+
+        private int nextByte() throws IOException {
+            int b = peekByte();
+            if (b >= 0) {
+                this.buffer.get();
+            }
+            return b;
+        }
+
+        // Return the next byte, which must be there
+        private int nextByteOfGame() throws IOException {
+            int b = nextByte();
+            Preconditions.checkArgument(b >= 0);
+            return b;
+        }
+
+        /**
+         * Read the next game of the log
+         *
+         * @return the game, or null if there are no more games
+         * @throws IOException              if the channel can't be read
+         * @throws IllegalArgumentException if the log is invalid, or cut short in the header of a game
+         */
+        public GameLog next() throws IOException {
+            int tag = nextByte();
+            if (tag < 0) {
+                return null;
+            }
+            Preconditions.checkArgument(tag == GAME);
+            long rngSeed = 0;
+            for (int i = 0; i < Long.BYTES; ++i) {
+                rngSeed = rngSeed << Byte.SIZE | nextByteOfGame();
+            }
+            Map<PlayerId, String> names = new EnumMap<>(PlayerId.class);
+            for (PlayerId id : PlayerId.ALL) {
+                byte[] name = new byte[nextByteOfGame()];
+                for (int i = 0; i < name.length; ++i) {
+                    name[i] = (byte) nextByteOfGame();
+                }
+                names.put(id, new String(name, StandardCharsets.UTF_8));
+            }
+
+            byte[] turns = new byte[INITIAL_TURNS];
+            long[] announces = new long[turns.length * PlayerId.COUNT];
+            byte[] cards = new byte[turns.length * CARDS_PER_TURN];
+            int turnCount = 0;
+            int cardCount = 0;
+            boolean complete = false;
+            // Read trick by trick, a trick cut short being ignored
+            while (true) {
+                int next = peekByte();
+                if (next < 0 || next == GAME) {
+                    break;
+                }
+                this.buffer.get();
+                if (next == END) {
+                    complete = true;
+                    break;
+                }
+                if (cardCount == turnCount * CARDS_PER_TURN) {
+                    Preconditions.checkArgument((next & ~(DELEGATED | CHOOSER_MASK | TRUMP_MASK)) == TURN);
+                    if (turnCount == turns.length) {
+                        turns = Arrays.copyOf(turns, 2 * turns.length);
+                        announces = Arrays.copyOf(announces, 2 * announces.length);
+                        cards = Arrays.copyOf(cards, 2 * cards.length);
+                    }
+                    turns[turnCount++] = (byte) next;
+                    continue;
+                }
+                if (!readTrick(next, turns[turnCount - 1], announces, turnCount - 1, cards, cardCount)) {
+                    break;
+                }
+                cardCount += PlayerId.COUNT;
+            }
+            return new GameLog(rngSeed, names, Arrays.copyOf(turns, turnCount),
+                    Arrays.copyOf(announces, turnCount * PlayerId.COUNT), Arrays.copyOf(cards, cardCount), complete);
+        }
+
+        // Read a trick starting with a given byte, and return false if the log ends before its end
+        private boolean readTrick(int first, byte turn, long[] announces, int turnIndex, byte[] cards, int cardCount) throws IOException {
+            boolean firstTrick = cardCount % CARDS_PER_TURN == 0;
+            int firstPlayer = (turn & CHOOSER_MASK) >> CHOOSER_SHIFT;
+            // The announces are only kept with the whole trick
+            long[] trickAnnounces = new long[PlayerId.COUNT];
+            int next = first;
+            for (int i = 0; i < PlayerId.COUNT; ++i) {
+                if (i > 0) {
+                    next = nextByte();
+                }
+                if (firstTrick && next >= 0) {
+                    Preconditions.checkArgument(next <= Jass.HAND_SIZE);
+                    long announce = PackedCardSet.EMPTY;
+                    for (int size = next; size > 0; --size) {
+                        int pkCard = nextByte();
+                        if (pkCard < 0) {
+                            return false;
+                        }
+                        Preconditions.checkArgument(PackedCard.isValid(pkCard));
+                        announce = PackedCardSet.add(announce, pkCard);
+                    }
+                    trickAnnounces[(firstPlayer + i) % PlayerId.COUNT] = announce;
+                    next = nextByte();
+                }
+                if (next < 0) {
+                    return false;
+                }
+                Preconditions.checkArgument(PackedCard.isValid(next));
+                cards[cardCount + i] = (byte) next;
+            }
+            if (firstTrick) {
+                System.arraycopy(trickAnnounces, 0, announces, turnIndex * PlayerId.COUNT, PlayerId.COUNT);
+            }
+            return true;
+        }
+    }
+
+    private final long rngSeed;
+    private final Map<PlayerId, String> names;
+    // The first byte of each turn, as stored in the log
+    private final byte[] turns;
+    // The announce of each player, by ordinal, for each turn
+    private final long[] announces;
+    // Every card played, in order
+    private final byte[] cards;
+    private final boolean complete;
+
+    private GameLog(long rngSeed, Map<PlayerId, String> names, byte[] turns, long[] announces, byte[] cards, boolean complete) {
+        this.rngSeed = rngSeed;
+        this.names = Collections.unmodifiableMap(names);
+        this.turns = turns;
+        this.announces = announces;
+        this.cards = cards;
+        this.complete = complete;
+    }
+
+    /**
+     * @return the seed the game was created with
+     */
+    public long rngSeed() {
+        return this.rngSeed;
+    }
+
+    /**
+     * @return the names of the players
+     */
+    public Map<PlayerId, String> names() {
+        return this.names;
+    }
+
+    /**
+     * @return true if the game was recorded until its end
+     */
+    public boolean isComplete() {
+        return this.complete;
+    }
+
+    /**
+     * @return the number of turns started in the game
+     */
+    public int turnCount() {
+        return this.turns.length;
+    }
+
+    /**
+     * @return the number of tricks recorded, all turns combined
+     */
+    public int trickCount() {
+        return this.cards.length / PlayerId.COUNT;
+    }
+
+    /**
+     * @param turn the index of a turn
+     * @return the trump of that turn
+     * @throws IndexOutOfBoundsException if turn isn't the index of a recorded turn
+     */
+    public Card.Color trump(int turn) {
+        return Card.Color.ALL.get(this.turns[Preconditions.checkIndex(turn, this.turns.length)] & TRUMP_MASK);
+    }
+
+    /**
+     * @param turn the index of a turn
+     * @return the player who had to choose the trump of that turn, who played first
+     * @throws IndexOutOfBoundsException if turn isn't the index of a recorded turn
+     */
+    public PlayerId firstPlayer(int turn) {
+        return PlayerId.ALL.get((this.turns[Preconditions.checkIndex(turn, this.turns.length)] & CHOOSER_MASK) >> CHOOSER_SHIFT);
+    }
+
+    /**
+     * @param turn the index of a turn
+     * @return true if the first player of that turn delegated the choice of the trump to its partner
+     * @throws IndexOutOfBoundsException if turn isn't the index of a recorded turn
+     */
+    public boolean isTrumpDelegated(int turn) {
+        return (this.turns[Preconditions.checkIndex(turn, this.turns.length)] & DELEGATED) != 0;
+    }
+
+    /**
+     * @param turn   the index of a turn
+     * @param player a player
+     * @return the announce that player made in that turn, which is empty if the first trick
+     * of the turn wasn't recorded
+     * @throws IndexOutOfBoundsException if turn isn't the index of a recorded turn
+     */
+    public CardSet announce(int turn, PlayerId player) {
+        Preconditions.checkIndex(turn, this.turns.length);
+        return CardSet.ofPacked(this.announces[turn * PlayerId.COUNT + player.ordinal()]);
+    }
+
+    /**
+     * @param index the index of a card played, all turns combined
+     * @return that card
+     * @throws IndexOutOfBoundsException if index isn't the index of a recorded card
+     */
+    public Card card(int index) {
+        return Card.ofPacked(this.cards[Preconditions.checkIndex(index, this.cards.length)]);
+    }
+
+    /**
+     * Create a new game identical to this one, whose players make the recorded choices.
+     * The game hasn't started, and can be played up to the end of the last recorded trick.
+     *
+     * @return the new game
+     */
+    public JassGame replay() {
+        Cursor cursor = new Cursor();
+        Map<PlayerId, Player> players = new EnumMap<>(PlayerId.class);
+        for (PlayerId id : PlayerId.ALL) {
+            players.put(id, new ReplayPlayer(cursor, id));
+        }
+        return new JassGame(this.rngSeed, players, this.names);
+    }
+
+    /**
+     * Create a new game identical to this one, and play it up to the end of a given trick.
+     * The trick is full, but not collected.
+     *
+     * @param tricks the number of tricks to play, all turns combined
+     * @return the game, after that trick
+     * @throws IllegalArgumentException if tricks isn't between 0 and the number of recorded tricks
+     */
+    public JassGame fastForward(int tricks) {
+        Preconditions.checkArgument(0 <= tricks && tricks <= trickCount());
+        JassGame game = replay();
+        for (int i = 0; i < tricks; ++i) {
+            game.advanceToEndOfNextTrick();
+        }
+        return game;
+    }
+
+    /**
+     * @param tricks the number of tricks played, all turns combined
+     * @return the state of the turn at the end of that trick, which is full but not collected
+     * @throws IllegalArgumentException if tricks isn't between 1 and the number of recorded tricks
+     */
+    public TurnState turnState(int tricks) {
+        Preconditions.checkArgument(tricks >= 1);
+        return fastForward(tricks).turnState();
+    }
+
+    // The number of cards replayed, shared by the players of a replayed game
+    private static final class Cursor {
+        int cards = 0;
+    }
+
+    private final class ReplayPlayer implements Player {
+        private final Cursor cursor;
+        private final PlayerId ownId;
+
+        ReplayPlayer(Cursor cursor, PlayerId ownId) {
+            this.cursor = cursor;
+            this.ownId = ownId;
+        }
+
+        @Override
+        public Card cardToPlay(TurnState state, CardSet hand) {
+            Card card = card(this.cursor.cards++);
+            Preconditions.checkArgument(hand.contains(card));
+            return card;
+        }
+
+        @Override
+        public Card.Color chooseTrump(CardSet hand, boolean canDelegate) {
+            int turn = this.cursor.cards / CARDS_PER_TURN;
+            return canDelegate && isTrumpDelegated(turn) ? null : trump(turn);
+        }
+
+        @Override
+        public CardSet announce(CardSet hand) {
+            return GameLog.this.announce(this.cursor.cards / CARDS_PER_TURN, this.ownId);
+        }
+    }
+}
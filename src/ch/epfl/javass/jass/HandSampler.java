@@ -0,0 +1,187 @@
+package ch.epfl.javass.jass;
+
+import java.util.SplittableRandom;
+
+/**
+ * Deals the cards a player can't see to the other players at random,
+ * consistently with the number of cards each of them still holds,
+ * with the cards each of them is known not to have, and with the cards
+ * each of them is known to have.
+ * <p>
+ * A sampler keeps its buffers from one deal to the next, so that dealing
+ * doesn't allocate any memory. This also means that it can't be shared between threads.
+ *
+ * @author Lúcás Críostóir Meier (300831)
+ * @author Ludovic Burnier (301308)
+ */
+final class HandSampler {
+    // After this many failed attempts, we stop respecting the sizes of the hands
+    private static final int MAX_ATTEMPTS = 32;
+
+    private final int[] cards = new int[Card.Color.COUNT * Card.Rank.COUNT];
+    private final int[] sizes = new int[PlayerId.COUNT];
+    private final int[] room = new int[PlayerId.COUNT];
+    private final long[] possible = new long[PlayerId.COUNT];
+    private final long[] trackedPossible = new long[PlayerId.COUNT];
+    private final long[] trackedKnown = new long[PlayerId.COUNT];
+    // The cards only one player can have, given to that player in every deal
+    private final long[] forced = new long[PlayerId.COUNT];
+    private PlayerId ownId;
+    private long ownHand;
+    private long free;
+    private int freeCount;
+    private boolean consistent;
+
+    /**
+     * Prepare the deals for a given state of the turn, using what a tracker knows
+     *
+     * @param tracker         the tracker of the player whose hand is known
+     * @param ownHand         the cards that player holds
+     * @param pkUnplayedCards the cards that have yet to be played
+     * @param pkTrick         the current trick, which can't be invalid
+     */
+    void reset(CardTracker tracker, long ownHand, long pkUnplayedCards, int pkTrick) {
+        for (PlayerId p : PlayerId.ALL) {
+            this.trackedPossible[p.ordinal()] = tracker.packedPossibleCards(p);
+            this.trackedKnown[p.ordinal()] = tracker.packedKnownCards(p);
+        }
+        reset(tracker.ownId(), ownHand, pkUnplayedCards, pkTrick, this.trackedPossible, this.trackedKnown);
+    }
+
+    /**
+     * Prepare the deals for a given state of the turn
+     *
+     * @param ownId           the player whose hand is known
+     * @param ownHand         the cards that player holds
+     * @param pkUnplayedCards the cards that have yet to be played
+     * @param pkTrick         the current trick, which can't be invalid
+     * @param possibleCards   the cards each player might hold, indexed by ordinal
+     * @param knownCards      the cards each player holds for sure, indexed by ordinal
+     */
+    void reset(PlayerId ownId, long ownHand, long pkUnplayedCards, int pkTrick, long[] possibleCards, long[] knownCards) {
+        this.ownId = ownId;
+        this.ownHand = PackedCardSet.intersection(ownHand, pkUnplayedCards);
+        long hidden = PackedCardSet.difference(pkUnplayedCards, this.ownHand);
+
+        int trickSize = PackedTrick.size(pkTrick);
+        int firstPlayer = PackedTrick.player(pkTrick, 0).ordinal();
+        long allKnown = PackedCardSet.EMPTY;
+        for (PlayerId p : PlayerId.ALL) {
+            if (p != ownId) {
+                allKnown = PackedCardSet.union(allKnown, knownCards[p.ordinal()]);
+            }
+        }
+        int totalRoom = 0;
+        for (PlayerId p : PlayerId.ALL) {
+            int i = p.ordinal();
+            if (p == ownId) {
+                this.sizes[i] = 0;
+                this.possible[i] = PackedCardSet.EMPTY;
+                continue;
+            }
+            int position = (i - firstPlayer + PlayerId.COUNT) % PlayerId.COUNT;
+            this.sizes[i] = Jass.HAND_SIZE - PackedTrick.index(pkTrick) - (position < trickSize ? 1 : 0);
+            // Known cards can't be held by anyone else, which forces them below
+            long knownByOthers = PackedCardSet.difference(allKnown, knownCards[i]);
+            long candidates = PackedCardSet.union(possibleCards[i], knownCards[i]);
+            this.possible[i] = PackedCardSet.difference(PackedCardSet.intersection(candidates, hidden), knownByOthers);
+            totalRoom += this.sizes[i];
+        }
+
+        this.free = hidden;
+        this.consistent = totalRoom == PackedCardSet.size(hidden);
+        for (PlayerId p : PlayerId.ALL) {
+            int i = p.ordinal();
+            long others = PackedCardSet.EMPTY;
+            for (PlayerId q : PlayerId.ALL) {
+                if (q != p) {
+                    others = PackedCardSet.union(others, this.possible[q.ordinal()]);
+                }
+            }
+            this.forced[i] = PackedCardSet.difference(this.possible[i], others);
+            this.free = PackedCardSet.difference(this.free, this.forced[i]);
+            if (PackedCardSet.size(this.forced[i]) > this.sizes[i]) {
+                this.consistent = false;
+            }
+        }
+        this.freeCount = PackedCardSet.size(this.free);
+        for (int c = 0; c < this.freeCount; ++c) {
+            int pkCard = PackedCardSet.get(this.free, c);
+            boolean held = false;
+            for (long p : this.possible) {
+                held |= PackedCardSet.contains(p, pkCard);
+            }
+            // Nobody can have this card, what we know is wrong
+            this.consistent &= held;
+            this.cards[c] = pkCard;
+        }
+    }
+
+    /**
+     * Deal the hidden cards into a set of hands, the hand of the player
+     * given to {@link #reset} being the one it holds
+     *
+     * @param rng   the generator used to deal the cards
+     * @param hands the array to fill, indexed by ordinal
+     */
+    void deal(SplittableRandom rng, long[] hands) {
+        if (this.consistent) {
+            for (int attempt = 0; attempt < MAX_ATTEMPTS; ++attempt) {
+                if (tryDeal(rng, hands, true)) {
+                    return;
+                }
+            }
+        }
+        tryDeal(rng, hands, false);
+    }
+
+    // Deal the free cards in a random order, giving each one to a player that can have it,
+    // with a probability proportional to the room left in their hand.
+    // If we don't respect the sizes of the hands, this always succeeds
+    private boolean tryDeal(SplittableRandom rng, long[] hands, boolean respectSizes) {
+        for (PlayerId p : PlayerId.ALL) {
+            int i = p.ordinal();
+            hands[i] = this.forced[i];
+            this.room[i] = this.sizes[i] - PackedCardSet.size(this.forced[i]);
+        }
+        hands[this.ownId.ordinal()] = this.ownHand;
+        for (int c = 0; c < this.freeCount; ++c) {
+            // Partial Fisher-Yates shuffle of the free cards
+            int swap = c + rng.nextInt(this.freeCount - c);
+            int pkCard = this.cards[swap];
+            this.cards[swap] = this.cards[c];
+            this.cards[c] = pkCard;
+
+            int total = 0;
+            for (int i = 0; i < PlayerId.COUNT; ++i) {
+                total += weight(i, pkCard, respectSizes);
+            }
+            if (total == 0) {
+                if (respectSizes) {
+                    return false;
+                }
+                // Even ignoring the sizes, nobody can have it, so anyone else takes it
+                int i = (this.ownId.ordinal() + 1 + rng.nextInt(PlayerId.COUNT - 1)) % PlayerId.COUNT;
+                hands[i] = PackedCardSet.add(hands[i], pkCard);
+                continue;
+            }
+            int chosen = rng.nextInt(total);
+            for (int i = 0; i < PlayerId.COUNT; ++i) {
+                chosen -= weight(i, pkCard, respectSizes);
+                if (chosen < 0) {
+                    hands[i] = PackedCardSet.add(hands[i], pkCard);
+                    --this.room[i];
+                    break;
+                }
+            }
+        }
+        return true;
+    }
+
+    private int weight(int player, int pkCard, boolean respectSizes) {
+        if (!PackedCardSet.contains(this.possible[player], pkCard)) {
+            return 0;
+        }
+        return respectSizes ? Math.max(this.room[player], 0) : 1;
+    }
+}
@@ -0,0 +1,58 @@
+package ch.epfl.javass.jass;
+
+import java.util.SplittableRandom;
+
+/**
+ * The rule based policy given by {@link RolloutPolicy#HEURISTIC}
+ *
+ * @author Lúcás Críostóir Meier (300831)
+ * @author Ludovic Burnier (301308)
+ */
+final class HeuristicRolloutPolicy implements RolloutPolicy {
+    @Override
+    public int cardToPlay(int pkTrick, long pkPlayableCards, SplittableRandom rng) {
+        int size = PackedTrick.size(pkTrick);
+        if (size == 0) {
+            return RolloutPolicy.UNIFORM.cardToPlay(pkTrick, pkPlayableCards, rng);
+        }
+        Card.Color trump = PackedTrick.trump(pkTrick);
+        int winning = PackedTrick.card(pkTrick, 0);
+        int winner = 0;
+        for (int i = 1; i < size; ++i) {
+            int card = PackedTrick.card(pkTrick, i);
+            if (PackedCard.isBetter(trump, card, winning)) {
+                winning = card;
+                winner = i;
+            }
+        }
+        TeamId team = PackedTrick.player(pkTrick, size).team();
+        boolean partnerWinning = PackedTrick.player(pkTrick, winner).team() == team;
+
+        int cheapest = PackedCard.INVALID;
+        int cheapestPoints = Integer.MAX_VALUE;
+        int cheapestWinning = PackedCard.INVALID;
+        int cheapestWinningPoints = Integer.MAX_VALUE;
+        int richest = PackedCard.INVALID;
+        int richestPoints = -1;
+        for (long rest = pkPlayableCards; !PackedCardSet.isEmpty(rest); rest = PackedCardSet.withoutFirst(rest)) {
+            int card = PackedCardSet.first(rest);
+            int points = PackedCard.points(trump, card);
+            if (points < cheapestPoints) {
+                cheapest = card;
+                cheapestPoints = points;
+            }
+            if (PackedCard.isBetter(trump, card, winning) && points < cheapestWinningPoints) {
+                cheapestWinning = card;
+                cheapestWinningPoints = points;
+            }
+            if (PackedCard.color(card) != trump && points > richestPoints) {
+                richest = card;
+                richestPoints = points;
+            }
+        }
+        if (partnerWinning) {
+            return PackedCard.isValid(richest) ? richest : cheapest;
+        }
+        return PackedCard.isValid(cheapestWinning) ? cheapestWinning : cheapest;
+    }
+}
@@ -14,6 +14,8 @@ public final class JassGame {
     private final Map<PlayerId, Player> players;
     private final Map<PlayerId, String> playerNames;
     private final Random shuffleRng;
+    // This can be null, indicating that the game isn't recorded
+    private final GameLog.Writer log;
     // State
     // This can be null, indicating that we have yet to start the game
     private TurnState turnState;
@@ -21,12 +23,31 @@ public final class JassGame {
     private final Map<PlayerId, CardSet> playerHands = new EnumMap<>(PlayerId.class);
     private PlayerId lastTurnStarter;
     private boolean gameOver;
+    // null until the game is over
+    private TeamId winningTeam;
     // Whether or not this is the first trick of a given turn
     // we need to keep track of this to handle announces.
     private boolean firstTrick = false;
 
 
     public JassGame(long rngSeed, Map<PlayerId, Player> players, Map<PlayerId, String> playerNames) {
+        this(rngSeed, players, playerNames, null);
+    }
+
+    /**
+     * Construct a new game, recording it as it is played
+     *
+     * @param rngSeed     the seed the deals are drawn from
+     * @param players     the player of each id
+     * @param playerNames the name of each player
+     * @param log         the writer the game is recorded to, or null to not record it
+     * @throws IllegalArgumentException if a name is too long to be recorded
+     */
+    public JassGame(long rngSeed, Map<PlayerId, Player> players, Map<PlayerId, String> playerNames, GameLog.Writer log) {
+        this.log = log;
+        if (log != null) {
+            log.startGame(rngSeed, playerNames);
+        }
         this.players = Collections.unmodifiableMap(new EnumMap<>(players));
         this.playerNames = Collections.unmodifiableMap(new EnumMap<>(playerNames));
         for (PlayerId id : PlayerId.ALL) {
@@ -38,10 +59,14 @@ public final class JassGame {
 
     private Card.Color nextTrump(PlayerId chooser) {
         Card.Color trump = players.get(chooser).chooseTrump(playerHands.get(chooser), true);
-        if (trump == null) {
+        boolean delegated = trump == null;
+        if (delegated) {
             PlayerId mate = PlayerId.ALL.get((chooser.ordinal() + 2) % 4);
             trump = players.get(mate).chooseTrump(playerHands.get(mate), false);
         }
+        if (this.log != null) {
+            this.log.turn(chooser, trump, delegated);
+        }
         for (Player player : players.values()) {
             player.setTrump(trump);
         }
@@ -138,12 +163,37 @@ public final class JassGame {
         return this.gameOver;
     }
 
+    /**
+     * @return the team that won the game, or null if it isn't over
+     */
+    public TeamId winningTeam() {
+        return this.winningTeam;
+    }
+
+    /**
+     * @return the score of the game so far, which is the initial one before the game starts
+     */
+    public Score score() {
+        return this.turnState == null ? Score.INITIAL : this.turnState.score();
+    }
+
+    /**
+     * @return the state of the current turn, or null if the game hasn't started
+     */
+    TurnState turnState() {
+        return this.turnState;
+    }
+
     private void checkWinningTeam() {
         if (this.turnState == null) return;
 
         for (TeamId id : TeamId.ALL) {
             if (this.turnState.score().totalPoints(id) >= Jass.WINNING_POINTS) {
                 this.gameOver = true;
+                this.winningTeam = id;
+                if (this.log != null) {
+                    this.log.endGame();
+                }
 
                 for (Player player : this.players.values()) {
                     player.setWinningTeam(id);
@@ -194,8 +244,14 @@ public final class JassGame {
             if (this.firstTrick) {
                 announceOrder.add(nextId);
                 announces.put(nextId, next.announce(hand));
+                if (this.log != null) {
+                    this.log.announce(announces.get(nextId));
+                }
             }
             Card choice = next.cardToPlay(this.turnState, hand);
+            if (this.log != null) {
+                this.log.card(choice);
+            }
             this.turnState = this.turnState.withNewCardPlayed(choice);
             setHand(nextId, hand.remove(choice));
             informOfTrick();
@@ -0,0 +1,341 @@
+package ch.epfl.javass.jass;
+
+import ch.epfl.javass.Preconditions;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.function.Consumer;
+
+/**
+ * Ranks several players against each other, by playing matches between them
+ * and maintaining a Glicko rating for each one, along with its deviation.
+ * <p>
+ * The ladder is played in rounds. At the start of each round, the players are sorted by rating
+ * and paired with their neighbors, the pairs alternating between rounds so that everyone meets
+ * players both above and below them. Each match is played on a number of duplicate deals:
+ * every deal is played twice with the same seed, each player holding the cards of the other
+ * one in the second game, which removes most of the luck of the deal from the result.
+ * The score of a player on a deal is half a point per game won. The games of a round
+ * are played in parallel, and the ratings are updated at the end of each round,
+ * which is a rating period for Glicko.
+ * <p>
+ * The players don't change during a ladder, so their deviations never increase.
+ * The results only depend on the seed of the ladder, and not on the number of threads,
+ * as long as the players themselves are deterministic, which pondering ones aren't.
+ *
+ * @author Lúcás Críostóir Meier (300831)
+ * @author Ludovic Burnier (301308)
+ */
+public final class Ladder {
+    private static final double INITIAL_RATING = 1500;
+    private static final double INITIAL_DEVIATION = 350;
+    private static final double Q = Math.log(10) / 400;
+    // The width of a 95% confidence interval, in deviations
+    private static final double INTERVAL_DEVIATIONS = 1.96;
+
+    /**
+     * A builder allowing to configure a Ladder
+     */
+    public static final class Builder {
+        private final long rngSeed;
+        private final List<String> names = new ArrayList<>();
+        private final List<Tournament.PlayerFactory> factories = new ArrayList<>();
+        private int rounds = 10;
+        private int dealsPerMatch = 8;
+        private int threads = 1;
+
+        /**
+         * Start building a new Ladder
+         *
+         * @param rngSeed the seed from which the seeds of every deal are drawn
+         */
+        public Builder(long rngSeed) {
+            this.rngSeed = rngSeed;
+        }
+
+        /**
+         * Add a player to the ladder. The player plays with itself as its teammate.
+         *
+         * @param name    the name of the player, which must be unique
+         * @param factory creates the player in each game
+         * @return this builder
+         * @throws IllegalArgumentException if a player with that name was already added
+         */
+        public Builder player(String name, Tournament.PlayerFactory factory) {
+            Preconditions.checkArgument(!this.names.contains(name));
+            this.names.add(name);
+            this.factories.add(factory);
+            return this;
+        }
+
+        /**
+         * @param rounds the number of rounds to play, 10 by default
+         * @return this builder
+         * @throws IllegalArgumentException if rounds &lt; 1
+         */
+        public Builder rounds(int rounds) {
+            Preconditions.checkArgument(rounds >= 1);
+            this.rounds = rounds;
+            return this;
+        }
+
+        /**
+         * @param deals the number of duplicate deals of each match, each played twice, 8 by default
+         * @return this builder
+         * @throws IllegalArgumentException if deals &lt; 1
+         */
+        public Builder dealsPerMatch(int deals) {
+            Preconditions.checkArgument(deals >= 1);
+            this.dealsPerMatch = deals;
+            return this;
+        }
+
+        /**
+         * @param threads the number of games played at the same time, 1 by default
+         * @return this builder
+         * @throws IllegalArgumentException if threads &lt; 1
+         */
+        public Builder threads(int threads) {
+            Preconditions.checkArgument(threads >= 1);
+            this.threads = threads;
+            return this;
+        }
+
+        /**
+         * @return a new Ladder with the options given to this builder
+         * @throws IllegalArgumentException if fewer than 2 players were added
+         */
+        public Ladder build() {
+            Preconditions.checkArgument(this.names.size() >= 2);
+            return new Ladder(this);
+        }
+    }
+
+    /**
+     * The rating of a player of a ladder, at some point of the ladder
+     */
+    public static final class Rating {
+        private final String name;
+        private final double rating;
+        private final double deviation;
+        private final int deals;
+        private final double score;
+
+        private Rating(String name, double rating, double deviation, int deals, double score) {
+            this.name = name;
+            this.rating = rating;
+            this.deviation = deviation;
+            this.deals = deals;
+            this.score = score;
+        }
+
+        /**
+         * @return the name of the player
+         */
+        public String name() {
+            return this.name;
+        }
+
+        /**
+         * @return the rating of the player, 1500 before it plays
+         */
+        public double rating() {
+            return this.rating;
+        }
+
+        /**
+         * @return the deviation of the rating of the player, 350 before it plays
+         */
+        public double deviation() {
+            return this.deviation;
+        }
+
+        /**
+         * @return the lower bound of the 95% confidence interval of the rating
+         */
+        public double low() {
+            return this.rating - INTERVAL_DEVIATIONS * this.deviation;
+        }
+
+        /**
+         * @return the upper bound of the 95% confidence interval of the rating
+         */
+        public double high() {
+            return this.rating + INTERVAL_DEVIATIONS * this.deviation;
+        }
+
+        /**
+         * @return the number of duplicate deals played by the player
+         */
+        public int deals() {
+            return this.deals;
+        }
+
+        /**
+         * @return the average score of the player on its deals, between 0 and 1
+         */
+        public double averageScore() {
+            return this.deals == 0 ? 0 : this.score / this.deals;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: %.0f ± %.0f", this.name, this.rating, INTERVAL_DEVIATIONS * this.deviation);
+        }
+    }
+
+    private final List<String> names;
+    private final List<Tournament.PlayerFactory> factories;
+    private final int rounds;
+    private final int dealsPerMatch;
+    private final int threads;
+    private final SplittableRandom rng;
+    // The state of each player, by index
+    private final double[] ratings;
+    private final double[] deviations;
+    private final int[] deals;
+    private final double[] scores;
+
+    private Ladder(Builder builder) {
+        this.names = new ArrayList<>(builder.names);
+        this.factories = new ArrayList<>(builder.factories);
+        this.rounds = builder.rounds;
+        this.dealsPerMatch = builder.dealsPerMatch;
+        this.threads = builder.threads;
+        this.rng = new SplittableRandom(builder.rngSeed);
+        int count = this.names.size();
+        this.ratings = new double[count];
+        this.deviations = new double[count];
+        this.deals = new int[count];
+        this.scores = new double[count];
+        Arrays.fill(this.ratings, INITIAL_RATING);
+        Arrays.fill(this.deviations, INITIAL_DEVIATION);
+    }
+
+    /**
+     * @return the ratings of the players, from the best rated to the worst rated
+     */
+    public List<Rating> standings() {
+        List<Rating> standings = new ArrayList<>(this.names.size());
+        for (int i = 0; i < this.names.size(); ++i) {
+            standings.add(new Rating(this.names.get(i), this.ratings[i], this.deviations[i], this.deals[i], this.scores[i]));
+        }
+        standings.sort(Comparator.comparingDouble(Rating::rating).reversed());
+        return Collections.unmodifiableList(standings);
+    }
+
+    /**
+     * Play every round of this ladder
+     *
+     * @param afterRound called with the standings after each round
+     * @return the final standings
+     */
+    public List<Rating> run(Consumer<List<Rating>> afterRound) {
+        for (int round = 0; round < this.rounds; ++round) {
+            playRound(pairings(round));
+            afterRound.accept(standings());
+        }
+        return standings();
+    }
+
+    /**
+     * Pair the players by rating: the first with the second, the third with the fourth, and so on,
+     * in even rounds, and the second with the third, and so on, the last one meeting the first one,
+     * in odd rounds. With an odd number of players, one of them doesn't play.
+     *
+     * @param round the number of the round
+     * @return the indices of the players of each match, two by two
+     */
+    List<int[]> pairings(int round) {
+        int count = this.names.size();
+        List<Integer> order = new ArrayList<>(count);
+        for (int i = 0; i < count; ++i) {
+            order.add(i);
+        }
+        // The sort is stable, so the players with the same rating stay in the order they were added
+        order.sort(Comparator.comparingDouble((Integer i) -> this.ratings[i]).reversed());
+        if (round % 2 == 1) {
+            Collections.rotate(order, -1);
+        }
+        List<int[]> pairs = new ArrayList<>(count / 2);
+        for (int i = 0; i + 1 < count; i += 2) {
+            pairs.add(new int[]{order.get(i), order.get(i + 1)});
+        }
+        return pairs;
+    }
+
+    private void playRound(List<int[]> pairs) {
+        // The games of each pair, deal by deal, the first player holding the cards of team 1 first
+        List<Callable<TeamId>> games = new ArrayList<>(2 * pairs.size() * this.dealsPerMatch);
+        for (int[] pair : pairs) {
+            for (int d = 0; d < this.dealsPerMatch; ++d) {
+                long dealSeed = this.rng.nextLong();
+                games.add(() -> play(dealSeed, pair[0], pair[1]));
+                games.add(() -> play(dealSeed, pair[1], pair[0]));
+            }
+        }
+        List<TeamId> winners = Tournament.runAll(games, this.threads);
+
+        // Glicko: the sums over the deals of each player, computed with the ratings before the round
+        int count = this.names.size();
+        double[] inverseD2 = new double[count];
+        double[] weightedScores = new double[count];
+        int game = 0;
+        for (int[] pair : pairs) {
+            for (int d = 0; d < this.dealsPerMatch; ++d) {
+                double score = 0;
+                score += winners.get(game++) == TeamId.TEAM_1 ? 0.5 : 0;
+                score += winners.get(game++) == TeamId.TEAM_2 ? 0.5 : 0;
+                addResult(pair[0], pair[1], score, inverseD2, weightedScores);
+                addResult(pair[1], pair[0], 1 - score, inverseD2, weightedScores);
+            }
+        }
+        for (int i = 0; i < count; ++i) {
+            if (inverseD2[i] == 0) {
+                continue;
+            }
+            double precision = 1 / (this.deviations[i] * this.deviations[i]) + inverseD2[i];
+            this.ratings[i] += Q / precision * weightedScores[i];
+            this.deviations[i] = Math.sqrt(1 / precision);
+        }
+    }
+
+    private void addResult(int player, int opponent, double score, double[] inverseD2, double[] weightedScores) {
+        double g = g(this.deviations[opponent]);
+        double expected = expectedScore(this.ratings[player], this.ratings[opponent], this.deviations[opponent]);
+        inverseD2[player] += Q * Q * g * g * expected * (1 - expected);
+        weightedScores[player] += g * (score - expected);
+        ++this.deals[player];
+        this.scores[player] += score;
+    }
+
+    private static double g(double deviation) {
+        return 1 / Math.sqrt(1 + 3 * Q * Q * deviation * deviation / (Math.PI * Math.PI));
+    }
+
+    /**
+     * @return the score a player is expected to make against an opponent, according to Glicko
+     */
+    static double expectedScore(double rating, double opponentRating, double opponentDeviation) {
+        return 1 / (1 + Math.pow(10, -g(opponentDeviation) * (rating - opponentRating) / 400));
+    }
+
+    // Play a deal with the first player holding the cards of team 1, and return the winning team
+    private TeamId play(long dealSeed, int first, int second) {
+        Map<PlayerId, Tournament.PlayerFactory> factories = new EnumMap<>(PlayerId.class);
+        Map<PlayerId, String> names = new EnumMap<>(PlayerId.class);
+        for (PlayerId id : PlayerId.ALL) {
+            int player = id.team() == TeamId.TEAM_1 ? first : second;
+            factories.put(id, this.factories.get(player));
+            names.put(id, this.names.get(player));
+        }
+        return Tournament.play(dealSeed, factories, names).winningTeam();
+    }
+}
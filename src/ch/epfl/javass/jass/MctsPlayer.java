@@ -2,189 +2,1032 @@ package ch.epfl.javass.jass;
 
 import ch.epfl.javass.Preconditions;
 
-import java.util.ArrayDeque;
-import java.util.Collection;
-import java.util.Iterator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
 import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * MctsPlayer is a player that makes decisions on which cards to play
  * based on a Monte Carlo tree search algorithm. Every time it needs to
  * play a card, it constructs a new search tree, and evaluates it with
- * a certain depth.
+ * a certain depth. When the cards played in the meantime have been reported
+ * through {@link #updateTrick(Trick)}, the part of the previous tree matching
+ * the current state is kept instead, along with the simulations it contains.
+ * Below the tree, the simulations are played out following a {@link RolloutPolicy}.
+ * Optionally, a simulation also counts for every card the players chose later in it,
+ * which gives a rough value to the nodes quickly (RAVE).
+ * <p>
+ * The search can be spread over several threads, in one of two ways:
+ * each thread can build an independent tree from the same state, the statistics
+ * of the children of the roots being merged before choosing the card to play,
+ * or all the threads can descend the same tree concurrently.
+ * <p>
+ * Instead of a fixed number of iterations, the player can also be given a time
+ * budget for each decision, in which case it searches until that time has run out.
+ * <p>
+ * Finally, the player can ponder: while the other players are choosing their cards,
+ * it keeps growing the retained tree on a background thread.
+ * <p>
+ * The player keeps track of what it learns about the hands of the others with a
+ * {@link CardTracker}, and never lets them play cards they can't have. By default, it assumes
+ * that any other player might hold any of the remaining cards. It can instead deal the cards
+ * it can't see at every iteration, consistently with what it knows, and only let the other
+ * players play cards they hold in that deal, which is known as information set Monte Carlo tree search.
+ * <p>
+ * Near the end of a turn, the player can also stop searching at random: it then deals the
+ * cards it can't see a number of times, solves each deal exactly, and plays the card
+ * that is the best on average.
+ * <p>
+ * The same position can often be reached by playing the same cards in a different order.
+ * Optionally, the player keeps the statistics of the positions it reached in a transposition
+ * table, so that the nodes of such a position share what the search learned about it.
+ * <p>
+ * The trump is the color with the strongest cards in the hand of the player, unless it is chosen
+ * by playing out whole turns with each color, using a {@link TrumpSimulator},
+ * or looked up in a {@link TrumpTable} computed beforehand.
+ * <p>
+ * The nodes of the trees are stored in arrays allocated once, when the player
+ * is constructed, so that searching doesn't keep the garbage collector busy.
  *
  * @author Lúcás Críostóir Meier (300831)
  * @author Ludovic Burnier (301308)
  */
-public final class MctsPlayer implements Player {
+public final class MctsPlayer implements Player, AutoCloseable {
+    /**
+     * The ways a search can be spread over several threads
+     */
+    public enum Parallelism {
+        /**
+         * Each thread builds its own tree, and the roots are merged at the end.
+         * The results only depend on the seed and the number of threads.
+         */
+        ROOT,
+        /**
+         * All threads share a single tree. This gives deeper trees for the same time,
+         * but the results are no longer deterministic.
+         */
+        TREE
+    }
 
-    // turnState must not be terminal when calling this method
-    private static long packedNextHand(TurnState turnState, PlayerId ownId, long firstHand) {
-        assert !turnState.isTerminal();
+    /**
+     * Holds information about the last search a MctsPlayer ran.
+     * <p>
+     * This is useful to compare the throughput of different machines or options.
+     */
+    public static final class SearchStatistics {
+        /**
+         * The statistics of a player that hasn't searched yet
+         */
+        public static final SearchStatistics EMPTY = new SearchStatistics(0, 0);
 
-        boolean mePlaying = turnState.nextPlayer() == ownId;
-        long cardSet;
-        if (mePlaying) {
-            cardSet = PackedCardSet.intersection(firstHand, turnState.packedUnplayedCards());
-        } else {
-            cardSet = PackedCardSet.difference(turnState.packedUnplayedCards(), firstHand);
+        private final long iterations;
+        private final long elapsedNanos;
+        private final long tableProbes;
+        private final long tableHits;
+
+        private SearchStatistics(long iterations, long elapsedNanos) {
+            this(iterations, elapsedNanos, 0, 0);
         }
-        return PackedTrick.playableCards(turnState.packedTrick(), cardSet);
-    }
 
-    private static final class Node {
-        private final TurnState turnState;
-        private final Node[] children;
-        private final long unusedCards;
-        // This will be unused in the case of the root node
-        private int totalPoints = 0;
-        private int numberOfFinishedTurns = 0;
+        private SearchStatistics(long iterations, long elapsedNanos, long tableProbes, long tableHits) {
+            this.iterations = iterations;
+            this.elapsedNanos = elapsedNanos;
+            this.tableProbes = tableProbes;
+            this.tableHits = tableHits;
+        }
 
-        private Node(TurnState turnState, long hand) {
-            this.turnState = turnState;
-            this.children = new Node[PackedCardSet.size(hand)];
-            this.unusedCards = hand;
+        /**
+         * @return the number of simulations that were run, over all threads
+         */
+        public long iterations() {
+            return this.iterations;
         }
 
-        private double vScore(Node child, double c) {
-            if (child.numberOfFinishedTurns > 0) {
-                double vScore = ((double) child.totalPoints) / child.numberOfFinishedTurns;
-                vScore += c * Math.sqrt(2 * Math.log(this.numberOfFinishedTurns) / child.numberOfFinishedTurns);
-                return vScore;
-            } else {
-                return Double.POSITIVE_INFINITY;
-            }
+        /**
+         * @return the wall clock time the search took, in nanoseconds
+         */
+        public long elapsedNanos() {
+            return this.elapsedNanos;
         }
 
-        private int bestChild(double c) {
-            if (this.children.length == 1) {
-                return 0;
-            }
-            double bestScore = Double.NEGATIVE_INFINITY;
-            int bestIndex = -1;
-            for (int i = 0; i < this.children.length; i++) {
-                Node child = this.children[i];
-                if (child != null) {
-                    double vScore = vScore(child, c);
-                    if (vScore > bestScore) {
-                        bestScore = vScore;
-                        bestIndex = i;
-                    }
-                }
-            }
-            return bestIndex;
-        }
-
-        // Returns null if we can't add a node
-        private Collection<Node> addNode(long firstHand, PlayerId ownId) {
-            return realAddNode(this, firstHand, ownId, new ArrayDeque<>());
-        }
-
-        private static Collection<Node> realAddNode(Node root, long firstHand, PlayerId ownId, ArrayDeque<Node> path) {
-            Node currentNode = root;
-            for (; ; ) {
-                // Try and insert directly below the currentNode
-                for (int i = 0; i < currentNode.children.length; ++i) {
-                    Node child = currentNode.children[i];
-                    if (child == null) {
-                        Card toPlay = Card.ofPacked(PackedCardSet.get(currentNode.unusedCards, i));
-                        TurnState nextTurnState = currentNode.turnState.withNewCardPlayedAndTrickCollected(toPlay);
-                        Node newNode;
-                        if (nextTurnState.isTerminal()) {
-                            newNode = new Node(nextTurnState, PackedCardSet.EMPTY);
-                        } else {
-                            long nextHand = packedNextHand(nextTurnState, ownId, firstHand);
-                            newNode = new Node(nextTurnState, nextHand);
-                        }
-                        currentNode.children[i] = newNode;
-                        path.addFirst(currentNode);
-                        path.addFirst(currentNode.children[i]);
-                        return path;
-                    }
-                }
-                path.addFirst(currentNode);
-                // Recurse with the most promising direct child
-                int bestIndex = currentNode.bestChild(CURIOSITY);
-                if (bestIndex < 0) {
-                    return path;
-                }
-                currentNode = currentNode.children[bestIndex];
+        /**
+         * Return the proportion of the nodes created during the search whose position
+         * was already in the transposition table, i.e., had been reached by another path
+         *
+         * @return the hit rate of the table, between 0 and 1, or 0 if there is no table
+         */
+        public double transpositionHitRate() {
+            return this.tableProbes == 0 ? 0 : (double) this.tableHits / this.tableProbes;
+        }
+
+        @Override
+        public String toString() {
+            String s = this.iterations + " iterations in " + this.elapsedNanos / 1_000_000 + " ms";
+            if (this.tableProbes > 0) {
+                s += String.format(", %.1f%% transpositions", 100 * transpositionHitRate());
             }
+            return s;
         }
     }
 
+    /**
+     * A builder allowing to configure the search of a MctsPlayer
+     */
+    public static final class Builder {
+        private final PlayerId ownId;
+        private final long rngSeed;
+        private int iterations = DEFAULT_ITERATIONS;
+        private int threads = 1;
+        private Parallelism parallelism = Parallelism.ROOT;
+        // 0 means that the number of iterations is used instead
+        private long timeBudgetMillis = 0;
+        private boolean reuseTree = true;
+        // 0 means that the player doesn't ponder
+        private int ponderLimit = 0;
+        // 0 means that the capacity is deduced from the other options
+        private int treeCapacity = 0;
+        private boolean determinize = false;
+        // 0 means that the endgame is searched like the rest of the turn
+        private int endgameCards = 0;
+        // 0 means that there is no transposition table
+        private int tableEntries = 0;
+        private RolloutPolicy rolloutPolicy = DEFAULT_ROLLOUT_POLICY;
+        private double curiosity = DEFAULT_CURIOSITY;
+        // 0 means that RAVE isn't used
+        private int raveEquivalence = 0;
+        private boolean earlyStopping = false;
+        // 0 means that the trump is chosen without simulating
+        private int trumpDeals = DEFAULT_TRUMP_DEALS;
+        // null means that the trump isn't looked up
+        private TrumpTable trumpTable = null;
+
+        /**
+         * Start building a new MctsPlayer
+         *
+         * @param ownId   the id of the player
+         * @param rngSeed the seed used for the simulations
+         */
+        public Builder(PlayerId ownId, long rngSeed) {
+            this.ownId = ownId;
+            this.rngSeed = rngSeed;
+        }
+
+        /**
+         * @param iterations the total number of simulations to run for each decision
+         * @return this builder
+         * @throws IllegalArgumentException if iterations &lt; 9
+         */
+        public Builder iterations(int iterations) {
+            Preconditions.checkArgument(iterations >= Jass.HAND_SIZE);
+            this.iterations = iterations;
+            return this;
+        }
+
+        /**
+         * With root parallelism, each thread grows its own tree, so a player takes
+         * up to as many times the memory of a single tree as it has threads.
+         *
+         * @param threads the number of threads to search with
+         * @return this builder
+         * @throws IllegalArgumentException if threads &lt; 1
+         */
+        public Builder threads(int threads) {
+            Preconditions.checkArgument(threads >= 1);
+            this.threads = threads;
+            return this;
+        }
+
+        /**
+         * @param parallelism how the search is spread when using more than one thread
+         * @return this builder
+         */
+        public Builder parallelism(Parallelism parallelism) {
+            this.parallelism = parallelism;
+            return this;
+        }
+
+        /**
+         * Have the player search until a certain time has elapsed for each card,
+         * instead of running a fixed number of iterations.
+         * <p>
+         * The number of nodes of its trees then can't be deduced from the number of iterations,
+         * so each tree can grow up to 2^19 nodes, taking about 48 bytes each, or 24 MB,
+         * unless {@link #treeCapacity} says otherwise.
+         *
+         * @param millis the time the player can take to choose a card, in milliseconds
+         * @return this builder
+         * @throws IllegalArgumentException if millis &lt;= 0
+         */
+        public Builder timeBudget(long millis) {
+            Preconditions.checkArgument(millis > 0);
+            this.timeBudgetMillis = millis;
+            return this;
+        }
+
+        /**
+         * Choose whether or not the player keeps its tree from one card to the next.
+         * This is enabled by default.
+         *
+         * @param reuseTree true if the subtree of the previous decision should be reused
+         * @return this builder
+         */
+        public Builder reuseTree(boolean reuseTree) {
+            this.reuseTree = reuseTree;
+            return this;
+        }
+
+        /**
+         * Have the player keep searching on a background thread while the other players
+         * are choosing their cards. Pondering stops once the tree contains a given
+         * number of simulations, which bounds the memory it uses.
+         * <p>
+         * This only has an effect when the tree is reused.
+         * <p>
+         * How many simulations are run in the background depends on how long the other
+         * players take to play, so the results are no longer deterministic.
+         *
+         * @param maxIterations the number of simulations after which pondering stops
+         * @return this builder
+         * @throws IllegalArgumentException if maxIterations &lt; 0
+         */
+        public Builder ponder(int maxIterations) {
+            Preconditions.checkArgument(maxIterations >= 0);
+            this.ponderLimit = maxIterations;
+            return this;
+        }
+
+        /**
+         * Set the number of nodes each search tree can hold.
+         * Once a tree is full, the simulations keep running from its leaves,
+         * but the tree doesn't grow anymore.
+         * <p>
+         * By default, this is deduced from the number of iterations, or from
+         * the time budget, along with the pondering limit.
+         * <p>
+         * The memory of a tree is only allocated as it grows, each node taking about 48 bytes,
+         * 8 more with a transposition table, and 8 more with RAVE.
+         *
+         * @param nodes the maximum number of nodes in a tree
+         * @return this builder
+         * @throws IllegalArgumentException if nodes &lt;= 9
+         */
+        public Builder treeCapacity(int nodes) {
+            Preconditions.checkArgument(nodes > Jass.HAND_SIZE);
+            this.treeCapacity = nodes;
+            return this;
+        }
+
+        /**
+         * Choose whether or not the player deals the cards it can't see
+         * to the other players at each iteration, instead of assuming that
+         * they can all play any of them. This is disabled by default.
+         *
+         * @param determinize true if the hands of the other players should be sampled
+         * @return this builder
+         */
+        public Builder determinize(boolean determinize) {
+            this.determinize = determinize;
+            return this;
+        }
+
+        /**
+         * Have the player solve the end of each turn exactly, over random deals
+         * of the cards it can't see, once it has few enough cards left.
+         * This is disabled by default, and 3 cards is usually a good compromise.
+         * <p>
+         * The solver ignores the number of iterations and the time budget, and the time it takes
+         * grows very quickly with the number of cards: solving from 4 cards per hand already takes
+         * tens of milliseconds per card, which is why no more than 4 are allowed.
+         *
+         * @param cardsPerHand the number of cards in hand from which the endgame is solved,
+         *                     0 to never solve it
+         * @return this builder
+         * @throws IllegalArgumentException if cardsPerHand isn't between 0 and 4
+         */
+        public Builder endgame(int cardsPerHand) {
+            Preconditions.checkArgument(0 <= cardsPerHand && cardsPerHand <= MAX_ENDGAME_CARDS);
+            this.endgameCards = cardsPerHand;
+            return this;
+        }
+
+        /**
+         * Have the player share the statistics of identical positions reached through
+         * different sequences of cards, using a table with a fixed number of entries.
+         * Each entry takes 20 bytes, and the least useful ones are replaced once the table is full.
+         * This is disabled by default.
+         * <p>
+         * With root parallelism, the trees of all threads share the table,
+         * so the results are no longer deterministic.
+         *
+         * @param entries the number of entries of the table, rounded up to a power of two,
+         *                0 to not use a table
+         * @return this builder
+         * @throws IllegalArgumentException if entries isn't between 0 and 2^26
+         */
+        public Builder transpositionTable(int entries) {
+            Preconditions.checkArgument(0 <= entries && entries <= TranspositionTable.MAX_CAPACITY);
+            this.tableEntries = entries;
+            return this;
+        }
+
+        /**
+         * Set how the cards are chosen during the simulations, once they leave the tree.
+         * By default, the cards are chosen at random, following {@link RolloutPolicy#UNIFORM}.
+         *
+         * @param policy the policy used by every player in the simulations
+         * @return this builder
+         */
+        public Builder rolloutPolicy(RolloutPolicy policy) {
+            this.rolloutPolicy = policy;
+            return this;
+        }
+
+        /**
+         * Set how much the search favors the cards it hasn't explored much,
+         * over those with the best average points. This is 40 by default.
+         *
+         * @param curiosity the exploration constant of the search
+         * @return this builder
+         * @throws IllegalArgumentException if curiosity &lt; 0
+         */
+        public Builder curiosity(double curiosity) {
+            Preconditions.checkArgument(curiosity >= 0);
+            this.curiosity = curiosity;
+            return this;
+        }
+
+        /**
+         * Have the player blend the value of each node with the results of all the simulations
+         * in which the same player played the same card later on, instead of right away.
+         * The weight of these results decreases as the node is visited, and is 1/2 once it has
+         * been visited a given number of times. This is disabled by default, and mostly helps
+         * with few iterations.
+         *
+         * @param equivalence the number of visits after which the node's own results
+         *                    weigh as much as the blended ones, 0 to disable RAVE
+         * @return this builder
+         * @throws IllegalArgumentException if equivalence &lt; 0
+         */
+        public Builder rave(int equivalence) {
+            Preconditions.checkArgument(equivalence >= 0);
+            this.raveEquivalence = equivalence;
+            return this;
+        }
+
+        /**
+         * Have the player stop searching as soon as the most visited card can't be
+         * overtaken by another one in the iterations that are left, and play that card.
+         * Without this option, which is disabled by default, the player plays the card
+         * with the best average score once all the iterations have been run.
+         * <p>
+         * This only has an effect when the player searches on a single thread,
+         * for a fixed number of iterations.
+         *
+         * @param earlyStopping true if the search should stop once its result is certain
+         * @return this builder
+         */
+        public Builder earlyStopping(boolean earlyStopping) {
+            this.earlyStopping = earlyStopping;
+            return this;
+        }
+
+        /**
+         * Set the number of deals the player simulates to choose a trump,
+         * with a {@link TrumpSimulator} using the same threads and time budget as the search.
+         * With 0 deals, which is the default, the player chooses the color with the strongest
+         * cards in its hand instead.
+         *
+         * @param deals the number of deals to simulate, 0 to not simulate
+         * @return this builder
+         * @throws IllegalArgumentException if deals &lt; 0
+         */
+        public Builder trumpDeals(int deals) {
+            Preconditions.checkArgument(deals >= 0);
+            this.trumpDeals = deals;
+            return this;
+        }
+
+        /**
+         * Have the player look its trump up in a precomputed table, instead of simulating deals.
+         * A table can be shared by several players.
+         *
+         * @param table the table giving the trump to choose for each hand
+         * @return this builder
+         */
+        public Builder trumpTable(TrumpTable table) {
+            this.trumpTable = table;
+            return this;
+        }
+
+        /**
+         * @return a new MctsPlayer with the options given to this builder
+         */
+        public MctsPlayer build() {
+            return new MctsPlayer(this);
+        }
+    }
+
+    private static final int DEFAULT_ITERATIONS = 10_000;
+    private static final double DEFAULT_CURIOSITY = 40;
+    // The number of losing turns a thread puts on the nodes it's exploring in a shared tree
+    private static final int VIRTUAL_LOSS = 3;
+    // Reading the clock is not free, so we only do it every so often
+    private static final int CLOCK_CHECK_INTERVAL = 64;
+    // Neither is looking for the two most visited children of the root
+    private static final int LEAD_CHECK_INTERVAL = 64;
+    // Used as a deadline when the search isn't limited in time
+    private static final long NO_DEADLINE = Long.MAX_VALUE;
+    // A single search reserves up to about this many nodes per simulation
+    private static final int NODES_PER_ITERATION = 4;
+    private static final int TIMED_TREE_CAPACITY = 1 << 19;
+    private static final int MAX_TREE_CAPACITY = 1 << 23;
+    // The number of deals solved to choose a card in the endgame
+    private static final int ENDGAME_DEALS = 32;
+    // The most cards per hand from which the endgame can be solved in a reasonable time
+    private static final int MAX_ENDGAME_CARDS = 4;
+    private static final int DEFAULT_TRUMP_DEALS = 0;
+    private static final RolloutPolicy DEFAULT_ROLLOUT_POLICY = RolloutPolicy.UNIFORM;
+
     private final PlayerId ownId;
     private final SplittableRandom rng;
     private final int iterations;
-    private static final int CURIOSITY = 40;
+    private final int threads;
+    private final Parallelism parallelism;
+    private final long timeBudgetNanos;
+    private final boolean reuseTree;
+    private final int ponderLimit;
+    private final boolean determinize;
+    private final int endgameCards;
+    private final RolloutPolicy rolloutPolicy;
+    private final boolean earlyStopping;
+    private final double curiosity;
+    // null when the trump is chosen without simulating
+    private final TrumpSimulator trumpSimulator;
+    // null when the trump isn't looked up
+    private final TrumpTable trumpTable;
+    // null when the search runs on the calling thread only
+    private final ExecutorService executor;
+    private volatile SearchStatistics lastSearchStatistics = SearchStatistics.EMPTY;
+    // One tree per thread with root parallelism, a single one otherwise.
+    // The first one holds the retained tree.
+    private final SearchTree[] trees;
+    // The buffers holding the path and the hands of the current simulation, one per thread
+    private final int[][] paths;
+    private final long[][] deals;
+    private final long[][] playedCards;
+    private final HandSampler[] samplers;
+    private final CardTracker tracker;
+    // null when the endgame isn't solved
+    private final EndgameSolver solver;
+    // null when positions don't share their statistics
+    private final TranspositionTable table;
+    // The node of the first tree corresponding to the current state of the turn,
+    // along with the hand used to build that tree. This is NONE if we have no tree to reuse.
+    private int retainedRoot = SearchTree.NONE;
+    private long retainedHand = PackedCardSet.EMPTY;
+    // null when the player doesn't ponder
+    private final ExecutorService ponderer;
+    // The background search currently growing the retained tree, if any
+    private Future<?> pondering = null;
+    private volatile boolean stopPondering = false;
 
+    /**
+     * Construct a new MctsPlayer searching on a single thread
+     *
+     * @param ownId      the id of this player
+     * @param rngSeed    the seed used for the simulations
+     * @param iterations the number of simulations to run for each decision
+     * @throws IllegalArgumentException if iterations &lt; 9
+     */
     public MctsPlayer(PlayerId ownId, long rngSeed, int iterations) {
-        Preconditions.checkArgument(iterations >= Jass.HAND_SIZE);
-        this.ownId = ownId;
-        this.rng = new SplittableRandom(rngSeed);
-        this.iterations = iterations;
+        this(ownId, rngSeed, iterations, 1);
+    }
+
+    /**
+     * Construct a new MctsPlayer spreading its iterations over several threads.
+     * <p>
+     * Each thread builds its own tree with a random generator split from this player's,
+     * which means that the decisions only depend on the seed and the number of threads.
+     *
+     * @param ownId      the id of this player
+     * @param rngSeed    the seed used for the simulations
+     * @param iterations the total number of simulations to run for each decision
+     * @param threads    the number of threads to search with
+     * @throws IllegalArgumentException if iterations &lt; 9 or threads &lt; 1
+     */
+    public MctsPlayer(PlayerId ownId, long rngSeed, int iterations, int threads) {
+        this(new Builder(ownId, rngSeed).iterations(iterations).threads(threads));
+    }
+
+    private MctsPlayer(Builder builder) {
+        this.ownId = builder.ownId;
+        this.rng = new SplittableRandom(builder.rngSeed);
+        this.iterations = builder.iterations;
+        this.threads = builder.threads;
+        this.parallelism = builder.parallelism;
+        this.timeBudgetNanos = builder.timeBudgetMillis * 1_000_000;
+        this.reuseTree = builder.reuseTree;
+        this.ponderLimit = builder.ponderLimit;
+        this.determinize = builder.determinize;
+        this.endgameCards = builder.endgameCards;
+        this.rolloutPolicy = builder.rolloutPolicy;
+        this.earlyStopping = builder.earlyStopping;
+        this.curiosity = builder.curiosity;
+        this.executor = this.threads == 1 ? null : Executors.newFixedThreadPool(this.threads, r -> {
+            Thread t = new Thread(r, "mcts-" + this.ownId);
+            t.setDaemon(true);
+            return t;
+        });
+        this.ponderer = this.ponderLimit == 0 ? null : Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "mcts-ponder-" + this.ownId);
+            t.setDaemon(true);
+            return t;
+        });
+        this.table = builder.tableEntries == 0 ? null : new TranspositionTable(builder.tableEntries, this.executor != null);
+        int treeCount = this.executor != null && this.parallelism == Parallelism.ROOT ? this.threads : 1;
+        this.trees = new SearchTree[treeCount];
+        for (int t = 0; t < treeCount; ++t) {
+            this.trees[t] = new SearchTree(treeCapacity(builder.treeCapacity, t, treeCount), this.table, builder.raveEquivalence);
+        }
+        this.paths = new int[this.threads][SearchTree.MAX_DEPTH];
+        this.deals = new long[this.threads][PlayerId.COUNT];
+        this.playedCards = new long[this.threads][PlayerId.COUNT];
+        this.samplers = new HandSampler[this.threads];
+        for (int t = 0; t < this.threads; ++t) {
+            this.samplers[t] = new HandSampler();
+        }
+        this.tracker = new CardTracker(this.ownId);
+        this.solver = this.endgameCards == 0 ? null : new EndgameSolver();
+        this.trumpTable = builder.trumpTable;
+        if (builder.trumpDeals == 0 || this.trumpTable != null) {
+            this.trumpSimulator = null;
+        } else {
+            TrumpSimulator.Builder trumpBuilder = new TrumpSimulator.Builder(this.rng.nextLong())
+                    .deals(builder.trumpDeals)
+                    .threads(this.threads)
+                    .rolloutPolicy(this.rolloutPolicy);
+            if (builder.timeBudgetMillis > 0) {
+                trumpBuilder.timeBudget(builder.timeBudgetMillis);
+            }
+            // The trump is never chosen during a search, so the simulations can run on its threads
+            if (this.executor != null) {
+                trumpBuilder.executor(this.executor);
+            }
+            this.trumpSimulator = trumpBuilder.build();
+        }
+    }
+
+    // The first tree needs twice the room a search takes, so that the retained tree can be reused
+    private int treeCapacity(int requested, int tree, int treeCount) {
+        if (requested > 0) {
+            return requested;
+        }
+        if (this.timeBudgetNanos > 0) {
+            return TIMED_TREE_CAPACITY;
+        }
+        long iterations = treeCount == 1 ? this.iterations : workerIterations(tree);
+        if (tree == 0) {
+            iterations = 2 * (iterations + this.ponderLimit);
+        }
+        return (int) Math.min(MAX_TREE_CAPACITY, NODES_PER_ITERATION * iterations + SearchTree.MAX_DEPTH);
+    }
+
+    // Play cards chosen by the policy from the given state until the end of the turn, and return the final score.
+    // The cards each player played are added to played, indexed by ordinal.
+    // This works on packed components only, as it is where most of the search time is spent
+    static long sampleEndTurnScore(long pkScore, long pkUnplayedCards, int pkTrick, long[] hands,
+                                           RolloutPolicy policy, SplittableRandom rng, long[] played) {
+        int pkTally = PackedTurnState.isTerminal(pkTrick) ? PackedTrick.EMPTY_TALLY : PackedTrick.tally(pkTrick);
+        while (!PackedTurnState.isTerminal(pkTrick)) {
+            PlayerId player = PackedTrick.player(pkTrick, PackedTrick.size(pkTrick));
+            long hand = PackedCardSet.intersection(hands[player.ordinal()], pkUnplayedCards);
+            // This can only be empty if the deal was inconsistent
+            long cardSet = PackedTrick.playableCards(pkTrick, PackedCardSet.isEmpty(hand) ? pkUnplayedCards : hand);
+            int cardToPlay = policy.cardToPlay(pkTrick, cardSet, rng);
+            played[player.ordinal()] = PackedCardSet.add(played[player.ordinal()], cardToPlay);
+            pkUnplayedCards = PackedCardSet.remove(pkUnplayedCards, cardToPlay);
+            pkTally = PackedTrick.tallyWithAddedCard(pkTally, pkTrick, cardToPlay);
+            pkTrick = PackedTrick.withAddedCard(pkTrick, cardToPlay);
+            pkScore = PackedTurnState.collectedScore(pkScore, pkTrick, pkTally);
+            pkTrick = PackedTurnState.collectedTrick(pkTrick, pkTally);
+        }
+        return pkScore;
+    }
+
+    // Fill hands with what we know of the hands of the players, indexed by ordinal
+    private void fillKnownHands(long packedHand, long[] hands) {
+        for (PlayerId p : PlayerId.ALL) {
+            long possible = PackedCardSet.difference(this.tracker.packedPossibleCards(p), packedHand);
+            hands[p.ordinal()] = p == this.ownId ? packedHand : possible;
+        }
     }
 
-    private Score sampleEndTurnScore(TurnState turnState, long firstHand) {
-        while (!turnState.isTerminal()) {
-            long cardSet = packedNextHand(turnState, this.ownId, firstHand);
-            int cardToPlay = PackedCardSet.get(cardSet, this.rng.nextInt(PackedCardSet.size(cardSet)));
-            turnState = turnState.withNewCardPlayedAndTrickCollected(Card.ofPacked(cardToPlay));
+    // Run simulations until either the number of iterations or the deadline is reached,
+    // growing the tree below root, and return the number of simulations run.
+    // If stopEarly is true, this also stops once the most visited child of the root is certain to stay so.
+    // virtualLoss must be positive if other threads are working on the same tree
+    private int expand(SearchTree tree, int root, long packedHand, int iterations, long deadline,
+                       SplittableRandom rng, int worker, int virtualLoss, boolean stopEarly) {
+        boolean shared = virtualLoss > 0;
+        boolean timed = deadline != NO_DEADLINE;
+        int rootChildren = PackedCardSet.size(tree.cards(root));
+        int[] path = this.paths[worker];
+        long[] deal = this.deals[worker];
+        long[] played = this.playedCards[worker];
+        HandSampler sampler = this.samplers[worker];
+        if (this.determinize) {
+            sampler.reset(this.tracker, packedHand, tree.packedUnplayedCards(root), tree.packedTrick(root));
+        } else {
+            fillKnownHands(packedHand, deal);
+        }
+        int i = 0;
+        for (; i < iterations; i++) {
+            // We want every child of the root to have been explored at least once
+            boolean checkClock = timed && i % CLOCK_CHECK_INTERVAL == 0 && i >= rootChildren;
+            if (checkClock && System.nanoTime() - deadline >= 0) {
+                break;
+            }
+            boolean checkLead = stopEarly && i % LEAD_CHECK_INTERVAL == 0 && i >= rootChildren;
+            if (checkLead && tree.visitLead(root) > iterations - i) {
+                break;
+            }
+            if (this.determinize) {
+                sampler.deal(rng, deal);
+            }
+            int length = tree.select(root, deal, this.curiosity, virtualLoss, path);
+            int leaf = path[length - 1];
+            Arrays.fill(played, PackedCardSet.EMPTY);
+            long pkScore = sampleEndTurnScore(tree.packedScore(leaf), tree.packedUnplayedCards(leaf),
+                    tree.packedTrick(leaf), deal, this.rolloutPolicy, rng, played);
+            // Propagate scores, the points of a node being those of the team that chose to play it
+            for (int k = length - 1; k > 0; --k) {
+                TeamId thisTeam = tree.nextPlayer(path[k - 1]).team();
+                int points = PackedScore.totalPoints(pkScore, thisTeam);
+                tree.addStatistics(path[k], points, 1 - virtualLoss, shared);
+                tree.addToTable(path[k], points);
+            }
+            // we don't need to propagate points to the root
+            tree.addStatistics(root, 0, 1, shared);
+            tree.addAmafStatistics(path, length, played, pkScore, shared);
         }
-        return turnState.score();
+        return i;
+    }
+
+    private <T> List<T> runOnWorkers(List<Callable<T>> tasks) {
+        try {
+            List<T> results = new ArrayList<>(tasks.size());
+            for (Future<T> future : this.executor.invokeAll(tasks)) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private int workerIterations(int worker) {
+        if (this.timeBudgetNanos > 0) {
+            return Integer.MAX_VALUE;
+        }
+        return this.iterations / this.threads + (worker < this.iterations % this.threads ? 1 : 0);
+    }
+
+    // Build one tree per thread, and merge them into the first one
+    // The first thread continues the given tree, the others start from scratch
+    private void searchIndependentTrees(int root, long packedHand, long deadline) {
+        SearchTree firstTree = this.trees[0];
+        long pkScore = firstTree.packedScore(root);
+        long pkUnplayedCards = firstTree.packedUnplayedCards(root);
+        int pkTrick = firstTree.packedTrick(root);
+        long pkCards = firstTree.cards(root);
+        // The generators are split here, in order, so that results stay deterministic
+        List<Callable<Integer>> tasks = new ArrayList<>(this.threads);
+        for (int t = 0; t < this.threads; ++t) {
+            SplittableRandom workerRng = this.rng.split();
+            int workerIterations = workerIterations(t);
+            SearchTree tree = this.trees[t];
+            int worker = t;
+            boolean first = t == 0;
+            tasks.add(() -> {
+                int workerRoot = root;
+                if (!first) {
+                    tree.clear();
+                    workerRoot = tree.newRoot(pkScore, pkUnplayedCards, pkTrick, pkCards);
+                }
+                expand(tree, workerRoot, packedHand, workerIterations, deadline, workerRng, worker, 0, false);
+                return workerRoot;
+            });
+        }
+        List<Integer> roots = runOnWorkers(tasks);
+        for (int t = 1; t < this.threads; ++t) {
+            firstTree.mergeRoot(root, this.trees[t], roots.get(t));
+        }
+    }
+
+    // Have every thread descend the same tree
+    private void searchSharedTree(int root, long packedHand, long deadline) {
+        SearchTree tree = this.trees[0];
+        tree.growToCapacity();
+        List<Callable<Integer>> tasks = new ArrayList<>(this.threads);
+        for (int t = 0; t < this.threads; ++t) {
+            SplittableRandom workerRng = this.rng.split();
+            int workerIterations = workerIterations(t);
+            int worker = t;
+            tasks.add(() -> expand(tree, root, packedHand, workerIterations, deadline, workerRng, worker, VIRTUAL_LOSS, false));
+        }
+        runOnWorkers(tasks);
+    }
+
+    /**
+     * Return information about the last search this player ran,
+     * i.e., the number of simulations and the time it took.
+     * If the last decision was trivial, no search was run.
+     *
+     * @return the statistics of the last search
+     */
+    public SearchStatistics lastSearchStatistics() {
+        return this.lastSearchStatistics;
+    }
+
+    /**
+     * @return the number of simulations that went through the node of the retained tree
+     * matching the current state, 0 if there is no such node
+     */
+    int retainedTurns() {
+        int root = this.retainedRoot;
+        return root == SearchTree.NONE ? 0 : this.trees[0].finishedTurns(root);
+    }
+
+    /**
+     * @return the tree holding the retained node
+     */
+    SearchTree retainedTree() {
+        return this.trees[0];
+    }
+
+    /**
+     * @return the node of the retained tree matching the current state, NONE if there is no such node
+     */
+    int retainedRoot() {
+        return this.retainedRoot;
+    }
+
+    // Whether a tree still has room for a search adding a given number of nodes
+    private static boolean hasRoomFor(SearchTree tree, int nodes) {
+        return tree.size() <= tree.capacity() / 2 - nodes;
+    }
+
+    // Return the retained root if it was built for exactly this state and hand, and NONE otherwise
+    private int reusableTree(TurnState state, long packedHand, long playableHand) {
+        int root = this.retainedRoot;
+        SearchTree tree = this.trees[0];
+        if (root == SearchTree.NONE) {
+            return SearchTree.NONE;
+        }
+        // A search with a fixed number of iterations needs the room it was given, while a timed one
+        // uses whatever room is left, and keeps improving the statistics of a full tree,
+        // as long as the root has children to choose from
+        boolean hasRoom = this.timeBudgetNanos > 0
+                ? tree.hasChildren(root) || hasRoomFor(tree, PackedCardSet.size(playableHand))
+                : hasRoomFor(tree, 0);
+        if (!hasRoom) {
+            return SearchTree.NONE;
+        }
+        boolean sameState = tree.hasState(root, state.packedScore(), state.packedUnplayedCards(), state.packedTrick());
+        boolean sameHand = PackedCardSet.intersection(this.retainedHand, state.packedUnplayedCards()) == packedHand;
+        return sameState && sameHand ? root : SearchTree.NONE;
+    }
+
+    private void startPondering() {
+        int root = this.retainedRoot;
+        SearchTree tree = this.trees[0];
+        if (this.ponderer == null || this.ponderer.isShutdown() || root == SearchTree.NONE || tree.isTerminal(root)) {
+            return;
+        }
+        long packedHand = this.retainedHand;
+        // The nodes created from now on must take into account what we learned since the last search
+        long[] knownHands = new long[PlayerId.COUNT];
+        fillKnownHands(packedHand, knownHands);
+        tree.configure(this.ownId, knownHands, this.determinize);
+        SplittableRandom ponderRng = this.rng.split();
+        // Every simulation reserves less than MAX_DEPTH nodes
+        int batchNodes = CLOCK_CHECK_INTERVAL * SearchTree.MAX_DEPTH;
+        this.stopPondering = false;
+        this.pondering = this.ponderer.submit(() -> {
+            while (!this.stopPondering && tree.finishedTurns(root) < this.ponderLimit && hasRoomFor(tree, batchNodes)) {
+                expand(tree, root, packedHand, CLOCK_CHECK_INTERVAL, NO_DEADLINE, ponderRng, 0, 0, false);
+            }
+        });
+    }
+
+    /**
+     * Stop the background search this player might be running,
+     * waiting for it to be over.
+     * The statistics it gathered are kept for the next decision.
+     */
+    public void cancelPondering() {
+        Future<?> current = this.pondering;
+        if (current == null) {
+            return;
+        }
+        this.stopPondering = true;
+        try {
+            current.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+        this.pondering = null;
+    }
+
+    /**
+     * Stop the background search this player might be running,
+     * as well as the threads it searches and ponders with.
+     * The player can't choose a card with several threads, nor ponder, once it is closed.
+     */
+    @Override
+    public void close() {
+        cancelPondering();
+        if (this.executor != null) {
+            this.executor.shutdown();
+        }
+        if (this.ponderer != null) {
+            this.ponderer.shutdown();
+        }
+    }
+
+    /**
+     * @return whether the background search is still running
+     */
+    boolean isPondering() {
+        Future<?> current = this.pondering;
+        return current != null && !current.isDone();
     }
 
     @Override
     public Card cardToPlay(TurnState state, CardSet hand) {
+        cancelPondering();
         long packedHand = hand.packed();
         long playableHand = PackedTrick.playableCards(state.packedTrick(), packedHand);
+        int root = this.reuseTree ? reusableTree(state, packedHand, playableHand) : SearchTree.NONE;
         // performance shortcut
         if (PackedCardSet.size(playableHand) == 1) {
+            this.retainedRoot = root;
+            this.lastSearchStatistics = SearchStatistics.EMPTY;
             return Card.ofPacked(PackedCardSet.get(playableHand, 0));
         }
-        Node root = new Node(state, playableHand);
-        for (int i = 0; i < this.iterations; i++) {
-            Collection<Node> path = root.addNode(packedHand, this.ownId);
-            Iterator<Node> iter = path.iterator();
-            Node nextNode = iter.next();
-            Score score = sampleEndTurnScore(nextNode.turnState, packedHand);
-            // Propagate scores
-            while (iter.hasNext()) {
-                Node thisNode = nextNode;
-                nextNode = iter.next();
-                TeamId thisTeam = nextNode.turnState.nextPlayer().team();
-                int relevant = score.totalPoints(thisTeam);
-                thisNode.totalPoints += relevant;
-                thisNode.numberOfFinishedTurns++;
-            }
-            // we don't need to propagate points to the root
-            root.numberOfFinishedTurns++;
+        if (PackedCardSet.size(packedHand) <= this.endgameCards) {
+            this.retainedRoot = SearchTree.NONE;
+            return Card.ofPacked(solveEndgame(state, packedHand, playableHand));
+        }
+        SearchTree tree = this.trees[0];
+        if (root == SearchTree.NONE) {
+            tree.clear();
+            root = tree.newRoot(state.packedScore(), state.packedUnplayedCards(), state.packedTrick(), playableHand);
+            this.retainedHand = packedHand;
+        }
+        long[] knownHands = new long[PlayerId.COUNT];
+        fillKnownHands(packedHand, knownHands);
+        for (SearchTree t : this.trees) {
+            t.configure(this.ownId, knownHands, this.determinize);
+        }
+        int previousTurns = tree.finishedTurns(root);
+        long previousProbes = 0;
+        long previousHits = 0;
+        if (this.table != null) {
+            this.table.newSearch();
+            previousProbes = this.table.probes();
+            previousHits = this.table.hits();
+        }
+        long start = System.nanoTime();
+        long deadline = this.timeBudgetNanos > 0 ? start + this.timeBudgetNanos : NO_DEADLINE;
+        boolean stopEarly = this.earlyStopping && this.executor == null && deadline == NO_DEADLINE;
+        if (this.executor == null) {
+            expand(tree, root, packedHand, workerIterations(0), deadline, this.rng, 0, 0, stopEarly);
+        } else if (this.parallelism == Parallelism.ROOT) {
+            searchIndependentTrees(root, packedHand, deadline);
+        } else {
+            searchSharedTree(root, packedHand, deadline);
+        }
+        long iterationsRun = tree.finishedTurns(root) - previousTurns;
+        long elapsed = System.nanoTime() - start;
+        this.lastSearchStatistics = this.table == null
+                ? new SearchStatistics(iterationsRun, elapsed)
+                : new SearchStatistics(iterationsRun, elapsed, this.table.probes() - previousProbes, this.table.hits() - previousHits);
+        this.retainedRoot = this.reuseTree ? root : SearchTree.NONE;
+        int index = stopEarly ? tree.mostVisitedChildIndex(root) : tree.bestChildIndex(root, 0, false);
+        if (index < 0) {
+            // The tree was too full to explore the root, which a new tree always avoids
+            return Card.ofPacked(this.rolloutPolicy.cardToPlay(state.packedTrick(), playableHand, this.rng));
         }
-        return Card.ofPacked(PackedCardSet.get(playableHand, root.bestChild(0)));
+        return Card.ofPacked(PackedCardSet.get(playableHand, index));
     }
 
-    private final static int[] TRUMP_CARD_VALUES = {4, 4, 4, 7, 5, 7, 6, 6, 7};
-    private final int DELEGATE_LIMIT = 15;
+    // Return the card with the best total value over several deals, each solved exactly
+    private int solveEndgame(TurnState state, long packedHand, long playableHand) {
+        long start = System.nanoTime();
+        HandSampler sampler = this.samplers[0];
+        long[] deal = this.deals[0];
+        sampler.reset(this.tracker, packedHand, state.packedUnplayedCards(), state.packedTrick());
+        int count = PackedCardSet.size(playableHand);
+        int[] values = new int[count];
+        long[] totals = new long[count];
+        for (int d = 0; d < ENDGAME_DEALS; ++d) {
+            sampler.deal(this.rng, deal);
+            this.solver.solve(state.packedScore(), state.packedUnplayedCards(), state.packedTrick(),
+                    deal, this.ownId.team(), playableHand, values);
+            for (int i = 0; i < count; ++i) {
+                totals[i] += values[i];
+            }
+        }
+        int best = 0;
+        for (int i = 1; i < count; ++i) {
+            if (totals[i] > totals[best]) {
+                best = i;
+            }
+        }
+        this.lastSearchStatistics = new SearchStatistics(ENDGAME_DEALS, System.nanoTime() - start);
+        return PackedCardSet.get(playableHand, best);
+    }
 
     @Override
     public Card.Color chooseTrump(CardSet hand, boolean canDelegate) {
-        int[] trumpValues = new int[Card.Color.COUNT];
-        for (int i = 0; i < hand.size(); ++i) {
-            Card card = hand.get(i);
-            trumpValues[card.color().ordinal()] += TRUMP_CARD_VALUES[card.rank().ordinal()];
+        if (this.trumpTable != null) {
+            return this.trumpTable.chooseTrump(hand, canDelegate);
         }
-        int i = 0;
-        int max = trumpValues[i];
-        for (;i < Card.Color.COUNT; ++i) {
-            if (trumpValues[i] > max) {
-                max = trumpValues[i];
-            }
+        if (this.trumpSimulator == null) {
+            return TrumpSimulator.heuristicTrump(hand.packed(), canDelegate);
         }
-        if (canDelegate && max < DELEGATE_LIMIT) {
-            return null;
-        } else {
-            return Card.Color.ALL.get(rng.nextInt(Card.Color.COUNT));
+        return this.trumpSimulator.chooseTrump(this.ownId, hand, canDelegate);
+    }
+
+    @Override
+    public void setTrump(Card.Color trump) {
+        // A new turn is starting, so the last tree is useless
+        cancelPondering();
+        this.retainedRoot = SearchTree.NONE;
+        if (this.table != null) {
+            this.table.clear();
+        }
+        this.tracker.setTrump(trump);
+    }
+
+    @Override
+    public void updateHand(CardSet newHand) {
+        cancelPondering();
+        this.tracker.updateHand(newHand);
+    }
+
+    @Override
+    public void setAnnounce(Map<PlayerId, CardSet> announces, TeamId winner) {
+        cancelPondering();
+        this.tracker.setAnnounce(announces);
+        startPondering();
+    }
+
+    // Follow the last card of newTrick in the retained tree, dropping the tree if it doesn't match
+    private void advanceRetainedTree(Trick newTrick) {
+        int root = this.retainedRoot;
+        SearchTree tree = this.trees[0];
+        if (root == SearchTree.NONE || newTrick.isEmpty() || tree.isTerminal(root)) {
+            return;
+        }
+        int trick = tree.packedTrick(root);
+        // We might be told about the same trick more than once
+        if (trick == newTrick.packed()) {
+            return;
         }
+        int pkCard = newTrick.card(newTrick.size() - 1).packed();
+        if (PackedTrick.isFull(trick) || PackedTrick.withAddedCard(trick, pkCard) != newTrick.packed()) {
+            this.retainedRoot = SearchTree.NONE;
+            return;
+        }
+        this.retainedRoot = tree.descend(root, pkCard);
+    }
+
+    @Override
+    public void updateTrick(Trick newTrick) {
+        cancelPondering();
+        this.tracker.updateTrick(newTrick);
+        advanceRetainedTree(newTrick);
+        startPondering();
+    }
+
+    @Override
+    public void setWinningTeam(TeamId winningTeam) {
+        cancelPondering();
+        this.retainedRoot = SearchTree.NONE;
     }
 
     @Override
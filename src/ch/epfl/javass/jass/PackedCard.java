@@ -88,6 +88,14 @@ public final class PackedCard {
         assert isValid(pkCardL);
         assert isValid(pkCardR);
 
+        return (BEATS[tableIndex(trump, pkCardL)] & (1L << pkCardR)) != 0;
+    }
+
+    /**
+     * Same as {@link #isBetter}, but following the rules instead of looking the result up.
+     * This is used to fill the tables.
+     */
+    static boolean isBetterByRules(Card.Color trump, int pkCardL, int pkCardR) {
         boolean leftTrump = color(pkCardL) == trump;
         boolean rightTrump = color(pkCardR) == trump;
         if (leftTrump && !rightTrump) {
@@ -119,10 +127,46 @@ public final class PackedCard {
     public static int points(Card.Color trump, int pkCard) {
         assert isValid(pkCard);
 
+        return CARD_POINTS[tableIndex(trump, pkCard)];
+    }
+
+    /**
+     * Same as {@link #points}, but following the rules instead of looking the result up.
+     * This is used to fill the tables.
+     */
+    static int pointsByRules(Card.Color trump, int pkCard) {
         Card.Color color = color(pkCard);
         return (color == trump ? TRUMP_POINTS : POINTS)[rank(pkCard).ordinal()];
     }
 
+    // The tables are indexed by the trump, followed by a packed card.
+    // BEATS contains, for each card, the set of cards it is better than, with one bit per packed card,
+    // and CARD_POINTS its points. The entries of invalid packed cards are left empty.
+    private static final int CARD_COUNT = 1 << (RANK_SIZE + COLOR_SIZE);
+    private static final long[] BEATS = new long[Card.Color.COUNT * CARD_COUNT];
+    private static final byte[] CARD_POINTS = new byte[Card.Color.COUNT * CARD_COUNT];
+
+    static {
+        for (Card.Color trump : Card.Color.ALL) {
+            for (int pkCardL = 0; pkCardL < CARD_COUNT; ++pkCardL) {
+                if (!isValid(pkCardL)) {
+                    continue;
+                }
+                int index = tableIndex(trump, pkCardL);
+                CARD_POINTS[index] = (byte) pointsByRules(trump, pkCardL);
+                for (int pkCardR = 0; pkCardR < CARD_COUNT; ++pkCardR) {
+                    if (isValid(pkCardR) && isBetterByRules(trump, pkCardL, pkCardR)) {
+                        BEATS[index] |= 1L << pkCardR;
+                    }
+                }
+            }
+        }
+    }
+
+    private static int tableIndex(Card.Color trump, int pkCard) {
+        return trump.ordinal() << (RANK_SIZE + COLOR_SIZE) | pkCard;
+    }
+
     /**
      * Calculate a string representation of this card.
      *
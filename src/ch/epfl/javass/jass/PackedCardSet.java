@@ -22,6 +22,24 @@ public final class PackedCardSet {
     public static final long ALL_CARDS = 0x1FF_01FF_01FF_01FFL;
 
     private static final int COLOR_SIZE = 16;
+    private static final int RANK_COUNT = Card.Rank.COUNT;
+    private static final int COLOR_MASK = (1 << COLOR_SIZE) - 1;
+    private static final int RANKS_MASK = (1 << RANK_COUNT) - 1;
+    // The ranks of a color are 9 bits, and the index in them 4 bits
+    private static final int INDEX_BITS = 4;
+    // SELECT[ranks << INDEX_BITS | i] is the position of the ith bit set in ranks
+    private static final byte[] SELECT = new byte[1 << (RANK_COUNT + INDEX_BITS)];
+
+    static {
+        for (int ranks = 0; ranks < 1 << RANK_COUNT; ++ranks) {
+            int i = 0;
+            for (int bit = 0; bit < RANK_COUNT; ++bit) {
+                if ((ranks & (1 << bit)) != 0) {
+                    SELECT[ranks << INDEX_BITS | i++] = (byte) bit;
+                }
+            }
+        }
+    }
 
     private PackedCardSet() {
     }
@@ -114,7 +132,10 @@ public final class PackedCardSet {
     }
 
     /**
-     * Get the ith card, starting from the right, in this set
+     * Get the ith card, starting from the right, in this set.
+     * <p>
+     * This takes constant time: we skip whole colors using the number of cards they contain,
+     * and then look the position of the card up in a table, given the ranks of its color.
      *
      * @param pkCardSet the binary representation of the set
      * @param index     the ith card to get
@@ -123,13 +144,51 @@ public final class PackedCardSet {
     public static int get(long pkCardSet, int index) {
         assert isValid(pkCardSet);
         assert index < size(pkCardSet);
-        for (int i = 0; i < index; ++i) {
-            pkCardSet = pkCardSet ^ Long.lowestOneBit(pkCardSet);
+        if (index == 0) {
+            return Long.numberOfTrailingZeros(pkCardSet);
+        }
+        int shift = 0;
+        int count = Integer.bitCount((int) pkCardSet & COLOR_MASK);
+        while (index >= count) {
+            index -= count;
+            shift += COLOR_SIZE;
+            count = Integer.bitCount((int) (pkCardSet >>> shift) & COLOR_MASK);
         }
+        int ranks = (int) (pkCardSet >>> shift) & RANKS_MASK;
         // The index of the card corresponds exactly with the packed representation
+        return shift + SELECT[ranks << INDEX_BITS | index];
+    }
+
+    /**
+     * Return the card with the smallest packed representation in a set.
+     * Together with {@link #withoutFirst}, this allows to go through the cards of a set:
+     * <pre>
+     *     for (long rest = pkCardSet; !PackedCardSet.isEmpty(rest); rest = PackedCardSet.withoutFirst(rest)) {
+     *         int pkCard = PackedCardSet.first(rest);
+     *     }
+     * </pre>
+     * in the same order as with {@link #get}, but without counting cards.
+     *
+     * @param pkCardSet the binary representation of the set, which can't be empty
+     * @return the packed representation of that card
+     */
+    public static int first(long pkCardSet) {
+        assert isValid(pkCardSet);
+        assert !isEmpty(pkCardSet);
         return Long.numberOfTrailingZeros(pkCardSet);
     }
 
+    /**
+     * Return a set without its card with the smallest packed representation
+     *
+     * @param pkCardSet the binary representation of the set
+     * @return the set without that card, or the empty set if it was empty
+     */
+    public static long withoutFirst(long pkCardSet) {
+        assert isValid(pkCardSet);
+        return pkCardSet & (pkCardSet - 1);
+    }
+
     /**
      * Insert a new card into this set
      *
@@ -24,10 +24,65 @@ public final class PackedTrick {
     private static final int FIRST_PLAYER_SIZE = 2;
     private static final int TRUMP_START = 30;
     private static final int TRUMP_SIZE = 2;
+    private static final int CARDS_MASK = (1 << (PlayerId.COUNT * CARD_SIZE)) - 1;
+
+    /**
+     * The tally of an empty trick, see {@link #tally}
+     */
+    public static final int EMPTY_TALLY = 0;
+    private static final int TALLY_WINNER_SIZE = 2;
+    private static final int TALLY_WINNER_MASK = (1 << TALLY_WINNER_SIZE) - 1;
+
+    // The masks used by playableCards, indexed by playableIndex, given the rank of the best trump card played.
+    // BASE_JACK contains the jack of trump if the base color is trump, since it never has to be played.
+    // FOLLOW contains the cards of the base color, and the trump cards above the best one played.
+    // UNDER_TRUMPS contains the trump cards below the best one played, which can't be played
+    // when the base color can't be followed, unless the hand contains nothing else.
+    private static final int BEST_TRUMP_COUNT = Card.Rank.COUNT + 1;
+    private static final int PLAYABLE_COUNT = Card.Color.COUNT * Card.Color.COUNT * BEST_TRUMP_COUNT;
+    private static final long[] BASE_JACK = new long[PLAYABLE_COUNT];
+    private static final long[] FOLLOW = new long[PLAYABLE_COUNT];
+    private static final long[] UNDER_TRUMPS = new long[PLAYABLE_COUNT];
+    // The rank of the best trump card, by set of the ranks of the trump cards played, as a bit set
+    private static final byte[] BEST_TRUMP_RANKS = new byte[1 << Card.Rank.COUNT];
+
+    static {
+        for (int ranks = 0; ranks < 1 << Card.Rank.COUNT; ++ranks) {
+            int best = Card.Rank.COUNT;
+            for (Card.Rank rank : Card.Rank.ALL) {
+                if ((ranks & (1 << rank.ordinal())) != 0
+                        && (best == Card.Rank.COUNT || rank.trumpOrdinal() > Card.Rank.ALL.get(best).trumpOrdinal())) {
+                    best = rank.ordinal();
+                }
+            }
+            BEST_TRUMP_RANKS[ranks] = (byte) best;
+        }
+        for (Card.Color trump : Card.Color.ALL) {
+            long trumps = PackedCardSet.subsetOfColor(PackedCardSet.ALL_CARDS, trump);
+            long jack = PackedCardSet.singleton(Card.of(trump, Card.Rank.JACK).packed());
+            for (Card.Color base : Card.Color.ALL) {
+                long baseCards = PackedCardSet.subsetOfColor(PackedCardSet.ALL_CARDS, base);
+                for (int best = 0; best < BEST_TRUMP_COUNT; ++best) {
+                    // No trump card was played yet if best is Card.Rank.COUNT
+                    long above = best == Card.Rank.COUNT
+                            ? trumps
+                            : PackedCardSet.trumpAbove(Card.of(trump, Card.Rank.ALL.get(best)).packed());
+                    int index = playableIndex(trump, base, best);
+                    BASE_JACK[index] = base == trump ? jack : PackedCardSet.EMPTY;
+                    FOLLOW[index] = PackedCardSet.union(baseCards, above);
+                    UNDER_TRUMPS[index] = base == trump ? PackedCardSet.EMPTY : PackedCardSet.difference(trumps, above);
+                }
+            }
+        }
+    }
 
     private PackedTrick() {
     }
 
+    private static int playableIndex(Card.Color trump, Card.Color base, int bestTrumpRank) {
+        return (trump.ordinal() * Card.Color.COUNT + base.ordinal()) * BEST_TRUMP_COUNT + bestTrumpRank;
+    }
+
     /**
      * Check if the packed representation trick is valid
      *
@@ -206,7 +261,10 @@ public final class PackedTrick {
 
     /**
      * Return the set of cards that can be played next,
-     * given the current state of the trick
+     * given the current state of the trick.
+     * <p>
+     * The sets of cards involved only depend on the trump, the base color, and the best trump
+     * card played, so they are looked up in tables, and combined with the hand.
      *
      * @param pkTrick the binary representation of the trick
      * @param pkHand  the packed card set representing the hand of the player
@@ -219,6 +277,34 @@ public final class PackedTrick {
         }
         Card.Color trump = trump(pkTrick);
         Card.Color base = baseColor(pkTrick);
+        int trumpRanks = 0;
+        for (int i = 0; i < PlayerId.COUNT - 1; ++i) {
+            int pkCard = card(pkTrick, i);
+            if (pkCard != PackedCard.INVALID && PackedCard.color(pkCard) == trump) {
+                trumpRanks |= 1 << PackedCard.rank(pkCard).ordinal();
+            }
+        }
+        int index = playableIndex(trump, base, BEST_TRUMP_RANKS[trumpRanks]);
+
+        long baseColored = PackedCardSet.subsetOfColor(pkHand, base);
+        if (PackedCardSet.isEmpty(baseColored) || baseColored == BASE_JACK[index]) {
+            long allowed = PackedCardSet.difference(pkHand, UNDER_TRUMPS[index]);
+            return PackedCardSet.isEmpty(allowed) ? pkHand : allowed;
+        }
+        return PackedCardSet.intersection(pkHand, FOLLOW[index]);
+    }
+
+    /**
+     * Same as {@link #playableCards}, but following the rules one by one, without tables.
+     * This is kept to check that the tables are correct.
+     */
+    static long playableCardsByRules(int pkTrick, long pkHand) {
+        assert !isFull(pkTrick);
+        if (isEmpty(pkTrick)) {
+            return pkHand;
+        }
+        Card.Color trump = trump(pkTrick);
+        Card.Color base = baseColor(pkTrick);
 
         long baseColored = PackedCardSet.subsetOfColor(pkHand, base);
         if (PackedCardSet.isEmpty(baseColored)) {
@@ -288,6 +374,103 @@ public final class PackedTrick {
         return PackedTrick.player(pkTrick, bestIndex);
     }
 
+    /**
+     * Compute the tally of a trick from its cards.
+     * <p>
+     * A tally keeps track of the index of the best card of a trick, in its 2 lowest bits,
+     * and of the points of its cards, without the points of the last trick, in the next bits.
+     * It can be updated with {@link #tallyWithAddedCard} as each card is added to the trick,
+     * which allows to know the winner and the points of a full trick without looking at its cards again.
+     * The tally of an empty trick is {@link #EMPTY_TALLY}.
+     *
+     * @param pkTrick the binary representation of the trick
+     * @return the tally of that trick
+     */
+    public static int tally(int pkTrick) {
+        assert isValid(pkTrick);
+
+        int pkTally = EMPTY_TALLY;
+        // The cards are added back one by one to the same trick without any card,
+        // which has every bit of its cards set since they are invalid
+        int partial = pkTrick | CARDS_MASK;
+        for (int i = 0; i < PackedTrick.size(pkTrick); ++i) {
+            int pkCard = PackedTrick.card(pkTrick, i);
+            pkTally = tallyWithAddedCard(pkTally, partial, pkCard);
+            partial = withAddedCard(partial, pkCard);
+        }
+        return pkTally;
+    }
+
+    /**
+     * Return the tally of a trick after adding a card to it
+     *
+     * @param pkTally the tally of the trick before adding the card,
+     *                which is ignored if the trick is empty
+     * @param pkTrick the binary representation of the trick before adding the card, which can't be full
+     * @param pkCard  the card added
+     * @return the tally of the trick with that card
+     */
+    public static int tallyWithAddedCard(int pkTally, int pkTrick, int pkCard) {
+        assert !isFull(pkTrick);
+
+        Card.Color trump = trump(pkTrick);
+        int points = PackedCard.points(trump, pkCard);
+        if (isEmpty(pkTrick)) {
+            return points << TALLY_WINNER_SIZE;
+        }
+        int winner = pkTally & TALLY_WINNER_MASK;
+        if (PackedCard.isBetter(trump, pkCard, card(pkTrick, winner))) {
+            winner = size(pkTrick);
+        }
+        return ((pkTally >>> TALLY_WINNER_SIZE) + points) << TALLY_WINNER_SIZE | winner;
+    }
+
+    /**
+     * Same as {@link #points(int)}, using the tally of the trick
+     *
+     * @param pkTrick the binary representation of the trick, which must be full
+     * @param pkTally the tally of that trick
+     * @return the number of points that trick is worth
+     */
+    public static int points(int pkTrick, int pkTally) {
+        assert isFull(pkTrick);
+        assert pkTally == tally(pkTrick);
+
+        int total = pkTally >>> TALLY_WINNER_SIZE;
+        return isLast(pkTrick) ? total + Jass.LAST_TRICK_ADDITIONAL_POINTS : total;
+    }
+
+    /**
+     * Same as {@link #winningPlayer(int)}, using the tally of the trick
+     *
+     * @param pkTrick the binary representation of the trick, which can't be empty
+     * @param pkTally the tally of that trick
+     * @return the player that played the best card
+     */
+    public static PlayerId winningPlayer(int pkTrick, int pkTally) {
+        assert !isEmpty(pkTrick);
+        assert pkTally == tally(pkTrick);
+
+        return player(pkTrick, pkTally & TALLY_WINNER_MASK);
+    }
+
+    /**
+     * Same as {@link #nextEmpty(int)}, using the tally of the trick
+     *
+     * @param pkTrick the binary representation of the trick, which must be full
+     * @param pkTally the tally of that trick
+     * @return the empty trick right after this one, or INVALID after the last one
+     */
+    public static int nextEmpty(int pkTrick, int pkTally) {
+        assert isFull(pkTrick);
+
+        int nextIndex = PackedTrick.index(pkTrick) + 1;
+        if (nextIndex > 8) {
+            return PackedTrick.INVALID;
+        }
+        return firstEmpty(trump(pkTrick), winningPlayer(pkTrick, pkTally)) | (nextIndex << INDEX_START);
+    }
+
     /**
      * Return a string representation of this trick
      *
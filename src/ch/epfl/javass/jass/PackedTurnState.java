@@ -0,0 +1,104 @@
+package ch.epfl.javass.jass;
+
+/**
+ * Contains utility functions working on the packed components of a turn state,
+ * i.e., a packed score, a packed set of unplayed cards, and a packed trick.
+ * <p>
+ * Together, these allow to play a turn without allocating any object,
+ * which matters in simulations: playing a card amounts to
+ * <pre>
+ *     pkUnplayedCards = PackedCardSet.remove(pkUnplayedCards, pkCard);
+ *     pkTrick = PackedTrick.withAddedCard(pkTrick, pkCard);
+ *     pkScore = PackedTurnState.collectedScore(pkScore, pkTrick);
+ *     pkTrick = PackedTurnState.collectedTrick(pkTrick);
+ * </pre>
+ * which is equivalent to {@link TurnState#withNewCardPlayedAndTrickCollected(Card)}.
+ * <p>
+ * Collecting a trick can also use its tally, kept up to date as the cards are played,
+ * so that the cards of the trick don't have to be compared again:
+ * <pre>
+ *     pkTally = PackedTrick.tallyWithAddedCard(pkTally, pkTrick, pkCard);
+ *     pkTrick = PackedTrick.withAddedCard(pkTrick, pkCard);
+ *     pkScore = PackedTurnState.collectedScore(pkScore, pkTrick, pkTally);
+ *     pkTrick = PackedTurnState.collectedTrick(pkTrick, pkTally);
+ * </pre>
+ *
+ * @author Lúcás Críostóir Meier (300831)
+ * @author Ludovic Burnier (301308)
+ */
+public final class PackedTurnState {
+    private PackedTurnState() {
+    }
+
+    /**
+     * Return the score after collecting a trick, if that trick is full
+     *
+     * @param pkScore the score before collecting the trick
+     * @param pkTrick the trick that was just played on
+     * @return the new score, or pkScore if the trick isn't full
+     */
+    public static long collectedScore(long pkScore, int pkTrick) {
+        assert PackedScore.isValid(pkScore);
+        assert PackedTrick.isValid(pkTrick);
+
+        if (!PackedTrick.isFull(pkTrick)) {
+            return pkScore;
+        }
+        TeamId winningTeam = PackedTrick.winningPlayer(pkTrick).team();
+        return PackedScore.withAdditionalTrick(pkScore, winningTeam, PackedTrick.points(pkTrick));
+    }
+
+    /**
+     * Return the trick to play on after collecting a trick, if that trick is full
+     *
+     * @param pkTrick the trick that was just played on
+     * @return the next empty trick, which is invalid after the last trick,
+     * or pkTrick if the trick isn't full
+     */
+    public static int collectedTrick(int pkTrick) {
+        assert PackedTrick.isValid(pkTrick);
+
+        return PackedTrick.isFull(pkTrick) ? PackedTrick.nextEmpty(pkTrick) : pkTrick;
+    }
+
+    /**
+     * Same as {@link #collectedScore(long, int)}, using the tally of the trick
+     *
+     * @param pkScore the score before collecting the trick
+     * @param pkTrick the trick that was just played on
+     * @param pkTally the tally of that trick
+     * @return the new score, or pkScore if the trick isn't full
+     */
+    public static long collectedScore(long pkScore, int pkTrick, int pkTally) {
+        assert PackedScore.isValid(pkScore);
+        assert PackedTrick.isValid(pkTrick);
+
+        if (!PackedTrick.isFull(pkTrick)) {
+            return pkScore;
+        }
+        TeamId winningTeam = PackedTrick.winningPlayer(pkTrick, pkTally).team();
+        return PackedScore.withAdditionalTrick(pkScore, winningTeam, PackedTrick.points(pkTrick, pkTally));
+    }
+
+    /**
+     * Same as {@link #collectedTrick(int)}, using the tally of the trick
+     *
+     * @param pkTrick the trick that was just played on
+     * @param pkTally the tally of that trick
+     * @return the next empty trick, which is invalid after the last trick,
+     * or pkTrick if the trick isn't full
+     */
+    public static int collectedTrick(int pkTrick, int pkTally) {
+        assert PackedTrick.isValid(pkTrick);
+
+        return PackedTrick.isFull(pkTrick) ? PackedTrick.nextEmpty(pkTrick, pkTally) : pkTrick;
+    }
+
+    /**
+     * @param pkTrick the current trick, possibly invalid
+     * @return true if the turn is over, i.e., all the tricks have been played
+     */
+    public static boolean isTerminal(int pkTrick) {
+        return pkTrick == PackedTrick.INVALID;
+    }
+}
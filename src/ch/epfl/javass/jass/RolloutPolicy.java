@@ -0,0 +1,59 @@
+package ch.epfl.javass.jass;
+
+import ch.epfl.javass.Preconditions;
+
+import java.util.SplittableRandom;
+
+/**
+ * Chooses the cards played by every player during the simulations of a MctsPlayer,
+ * once the search leaves its tree.
+ * <p>
+ * A policy works on packed components only, and is called for every card of every
+ * simulation, so it has to be fast. It must not keep any state, since it is shared
+ * by all the threads of a search.
+ *
+ * @author Lúcás Críostóir Meier (300831)
+ * @author Ludovic Burnier (301308)
+ */
+@FunctionalInterface
+public interface RolloutPolicy {
+    /**
+     * Plays one of the playable cards at random
+     */
+    RolloutPolicy UNIFORM = (pkTrick, pkPlayableCards, rng) ->
+            PackedCardSet.get(pkPlayableCards, rng.nextInt(PackedCardSet.size(pkPlayableCards)));
+
+    /**
+     * Plays like a cautious beginner: when leading, it plays a random card.
+     * When its partner is winning the trick, it gives it as many points as possible
+     * without using a trump. Otherwise, it takes the trick with the cheapest card able
+     * to do so, or gives away the card with the fewest points if it can't.
+     */
+    RolloutPolicy HEURISTIC = new HeuristicRolloutPolicy();
+
+    /**
+     * Return a policy following another one, except for a proportion of the cards,
+     * which are played at random instead
+     *
+     * @param greedy  the policy to follow most of the time
+     * @param epsilon the probability of playing a random card
+     * @return the new policy
+     * @throws IllegalArgumentException if epsilon isn't between 0 and 1
+     */
+    static RolloutPolicy epsilonGreedy(RolloutPolicy greedy, double epsilon) {
+        Preconditions.checkArgument(0 <= epsilon && epsilon <= 1);
+        return (pkTrick, pkPlayableCards, rng) -> rng.nextDouble() < epsilon
+                ? UNIFORM.cardToPlay(pkTrick, pkPlayableCards, rng)
+                : greedy.cardToPlay(pkTrick, pkPlayableCards, rng);
+    }
+
+    /**
+     * Choose the card the next player of a trick plays
+     *
+     * @param pkTrick         the current trick, which can't be full or invalid
+     * @param pkPlayableCards the cards that player can play, which can't be empty
+     * @param rng             the generator to use for random choices
+     * @return the packed card to play, one of pkPlayableCards
+     */
+    int cardToPlay(int pkTrick, long pkPlayableCards, SplittableRandom rng);
+}
@@ -0,0 +1,704 @@
+package ch.epfl.javass.jass;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+
+/**
+ * The tree used by MctsPlayer, stored as parallel arrays of primitives
+ * indexed by node ids, instead of as linked objects.
+ * <p>
+ * Nodes are never freed one by one: the whole tree is cleared before starting
+ * a new one. The arrays start small and are grown as nodes are added, up to the capacity
+ * of the tree, so that a tree only takes the memory its searches need, and once they are
+ * large enough, growing the tree doesn't allocate any memory. The children of a node
+ * occupy a contiguous block of ids, reserved the first time the node is expanded,
+ * and are then initialized one at a time, in the order of the cards of their parent.
+ * <p>
+ * Several threads can grow the same tree, as long as they all pass true
+ * for the shared arguments of these methods, and {@link #growToCapacity} was called before.
+ * Slots are then claimed with compare-and-set operations, and statistics are updated atomically.
+ * <p>
+ * The children of a node depend on the cards each player might hold, given by
+ * {@link #configure}. When the tree is determinized, the cards of the other players
+ * are only known at each iteration, so their nodes have a child for each card
+ * they might hold, and only the cards they can play in the current deal are considered.
+ * Children are then chosen according to the number of times they were available,
+ * as in information set Monte Carlo tree search.
+ * <p>
+ * A tree can also be given a {@link TranspositionTable}: the value of a node is then
+ * the average over every simulation that went through its position, whichever cards
+ * led to it, while the number of times the node itself was visited still decides
+ * how much it is explored.
+ * <p>
+ * Finally, a tree can keep all-moves-as-first (AMAF) statistics: every simulation counts
+ * for each child whose card was played later in it by the same player, wherever that happened.
+ * These statistics are much more numerous, but less accurate, so their weight in the value
+ * of a node decreases as the node itself is visited, which is known as RAVE.
+ *
+ * @author Lúcás Críostóir Meier (300831)
+ * @author Ludovic Burnier (301308)
+ */
+final class SearchTree {
+    /**
+     * Represents the absence of a node
+     */
+    static final int NONE = -1;
+    /**
+     * The maximum length of a path from a root to a leaf, root included
+     */
+    static final int MAX_DEPTH = Card.Color.COUNT * Card.Rank.COUNT + 1;
+
+    // The different states of a slot
+    private static final int EMPTY = 0;
+    private static final int INITIALIZING = 1;
+    private static final int READY = 2;
+    // The number of nodes a new tree has room for before growing its arrays
+    private static final int INITIAL_NODES = 1 << 12;
+
+    private static final VarHandle INTS = MethodHandles.arrayElementVarHandle(int[].class);
+    private static final VarHandle SIZE;
+
+    static {
+        try {
+            SIZE = MethodHandles.lookup().findVarHandle(SearchTree.class, "size", int.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final int capacity;
+    private long[] scores;
+    private long[] unplayedCards;
+    private int[] tricks;
+    // The cards that can be played from each node, one child per card
+    private long[] cards;
+    // Unused in the case of the root node
+    private int[] totalPoints;
+    private int[] finishedTurns;
+    // The number of times each node could have been chosen, only used when determinized
+    private int[] available;
+    private int[] firstChild;
+    private int[] status;
+    private int size = 0;
+    // null when there is no table, the key of the position of each node otherwise
+    private final TranspositionTable table;
+    private long[] keys;
+    // null when AMAF statistics aren't kept
+    private int[] amafPoints;
+    private int[] amafTurns;
+    private final double raveEquivalence;
+
+    private final long[] hands = new long[PlayerId.COUNT];
+    private PlayerId ownId;
+    private boolean determinized;
+
+    /**
+     * Construct a new tree able to hold a certain number of nodes
+     *
+     * @param capacity the maximum number of nodes in the tree
+     */
+    SearchTree(int capacity) {
+        this(capacity, null, 0);
+    }
+
+    /**
+     * Construct a new tree able to hold a certain number of nodes,
+     * possibly sharing the statistics of identical positions through a table,
+     * and possibly keeping AMAF statistics.
+     *
+     * @param capacity        the maximum number of nodes in the tree
+     * @param table           the table holding the statistics of the positions, or null
+     * @param raveEquivalence the number of visits of a node for which its AMAF statistics
+     *                        weigh as much as its own, or 0 to not keep AMAF statistics
+     */
+    SearchTree(int capacity, TranspositionTable table, int raveEquivalence) {
+        this.capacity = capacity;
+        this.table = table;
+        this.raveEquivalence = raveEquivalence;
+        int nodes = Math.min(capacity, INITIAL_NODES);
+        this.keys = table == null ? null : new long[nodes];
+        this.amafPoints = raveEquivalence == 0 ? null : new int[nodes];
+        this.amafTurns = raveEquivalence == 0 ? null : new int[nodes];
+        this.scores = new long[nodes];
+        this.unplayedCards = new long[nodes];
+        this.tricks = new int[nodes];
+        this.cards = new long[nodes];
+        this.totalPoints = new int[nodes];
+        this.finishedTurns = new int[nodes];
+        this.available = new int[nodes];
+        this.firstChild = new int[nodes];
+        this.status = new int[nodes];
+    }
+
+    // Give the arrays room for at least a given number of nodes, doubling their size if that is enough
+    private void grow(int nodes) {
+        int length = (int) Math.min(this.capacity, Math.max(nodes, 2L * this.status.length));
+        if (this.keys != null) {
+            this.keys = Arrays.copyOf(this.keys, length);
+        }
+        if (this.amafTurns != null) {
+            this.amafPoints = Arrays.copyOf(this.amafPoints, length);
+            this.amafTurns = Arrays.copyOf(this.amafTurns, length);
+        }
+        this.scores = Arrays.copyOf(this.scores, length);
+        this.unplayedCards = Arrays.copyOf(this.unplayedCards, length);
+        this.tricks = Arrays.copyOf(this.tricks, length);
+        this.cards = Arrays.copyOf(this.cards, length);
+        this.totalPoints = Arrays.copyOf(this.totalPoints, length);
+        this.finishedTurns = Arrays.copyOf(this.finishedTurns, length);
+        this.available = Arrays.copyOf(this.available, length);
+        this.firstChild = Arrays.copyOf(this.firstChild, length);
+        this.status = Arrays.copyOf(this.status, length);
+    }
+
+    /**
+     * Allocate the room for every node this tree can hold.
+     * The arrays can't grow while several threads are using them, so this must be called
+     * before they share the tree.
+     */
+    void growToCapacity() {
+        if (this.status.length < this.capacity) {
+            grow(this.capacity);
+        }
+    }
+
+    /**
+     * Set what is known about the hands of the players, which determines
+     * the children of the nodes created from now on.
+     *
+     * @param ownId        the id of the player searching
+     * @param hands        the cards each player might hold, indexed by ordinal,
+     *                     the player searching holding exactly its hand
+     * @param determinized true if the hands of the other players are dealt at every iteration
+     */
+    void configure(PlayerId ownId, long[] hands, boolean determinized) {
+        this.ownId = ownId;
+        System.arraycopy(hands, 0, this.hands, 0, PlayerId.COUNT);
+        this.determinized = determinized;
+    }
+
+    // Return the cards the next player might play in a given state
+    private long childCards(long pkUnplayedCards, int pkTrick) {
+        PlayerId player = PackedTrick.player(pkTrick, PackedTrick.size(pkTrick));
+        long hand = PackedCardSet.intersection(this.hands[player.ordinal()], pkUnplayedCards);
+        if (this.determinized && player != this.ownId) {
+            // Which of these cards can be played depends on the deal
+            return hand;
+        }
+        return PackedTrick.playableCards(pkTrick, hand);
+    }
+
+    /**
+     * @return the number of nodes this tree can hold
+     */
+    int capacity() {
+        return this.capacity;
+    }
+
+    /**
+     * @return the number of ids in use, reserved children included
+     */
+    int size() {
+        return this.size;
+    }
+
+    /**
+     * Remove every node from this tree
+     */
+    void clear() {
+        this.size = 0;
+    }
+
+    // Reserve count consecutive ids, returning the first one, or NONE if the tree is full
+    private int reserve(int count, boolean shared) {
+        int start;
+        if (shared) {
+            // The arrays can't grow while other threads are reading them, so we only use the room they have
+            int room = this.status.length;
+            // Avoids overflowing size once the tree is full
+            if ((int) SIZE.getOpaque(this) > room) {
+                return NONE;
+            }
+            start = (int) SIZE.getAndAdd(this, count);
+            if (start > room - count) {
+                return NONE;
+            }
+        } else {
+            start = this.size;
+            if (start > this.capacity - count) {
+                return NONE;
+            }
+            if (start + count > this.status.length) {
+                grow(start + count);
+            }
+            this.size += count;
+        }
+        int end = start + count;
+        Arrays.fill(this.status, start, end, EMPTY);
+        Arrays.fill(this.firstChild, start, end, NONE);
+        Arrays.fill(this.totalPoints, start, end, 0);
+        Arrays.fill(this.finishedTurns, start, end, 0);
+        Arrays.fill(this.available, start, end, 0);
+        if (this.amafTurns != null) {
+            Arrays.fill(this.amafPoints, start, end, 0);
+            Arrays.fill(this.amafTurns, start, end, 0);
+        }
+        return start;
+    }
+
+    /**
+     * Add a new root to this tree, typically after clearing it
+     *
+     * @return the id of the new root, or NONE if the tree is full
+     */
+    int newRoot(long pkScore, long pkUnplayedCards, int pkTrick, long pkCards) {
+        int id = reserve(1, false);
+        if (id != NONE) {
+            this.scores[id] = pkScore;
+            this.unplayedCards[id] = pkUnplayedCards;
+            this.tricks[id] = pkTrick;
+            this.cards[id] = pkCards;
+            this.status[id] = READY;
+        }
+        return id;
+    }
+
+    long packedScore(int node) {
+        return this.scores[node];
+    }
+
+    long packedUnplayedCards(int node) {
+        return this.unplayedCards[node];
+    }
+
+    int packedTrick(int node) {
+        return this.tricks[node];
+    }
+
+    /**
+     * @return the cards that can be played from a node, one for each child
+     */
+    long cards(int node) {
+        return this.cards[node];
+    }
+
+    int totalPoints(int node) {
+        return this.totalPoints[node];
+    }
+
+    int finishedTurns(int node) {
+        return this.finishedTurns[node];
+    }
+
+    boolean isTerminal(int node) {
+        return PackedTurnState.isTerminal(this.tricks[node]);
+    }
+
+    /**
+     * @return true if the ids of the children of a node have been reserved
+     */
+    boolean hasChildren(int node) {
+        return this.firstChild[node] != NONE;
+    }
+
+    /**
+     * @return the player that has to play next in a non terminal node
+     */
+    PlayerId nextPlayer(int node) {
+        int trick = this.tricks[node];
+        return PackedTrick.player(trick, PackedTrick.size(trick));
+    }
+
+    /**
+     * @return true if a node has exactly the state described by the given components
+     */
+    boolean hasState(int node, long pkScore, long pkUnplayedCards, int pkTrick) {
+        return this.scores[node] == pkScore
+                && this.unplayedCards[node] == pkUnplayedCards
+                && this.tricks[node] == pkTrick;
+    }
+
+    void addStatistics(int node, int points, int turns, boolean shared) {
+        if (shared) {
+            INTS.getAndAdd(this.totalPoints, node, points);
+            INTS.getAndAdd(this.finishedTurns, node, turns);
+        } else {
+            this.totalPoints[node] += points;
+            this.finishedTurns[node] += turns;
+        }
+    }
+
+    /**
+     * Add the result of a simulation to the position of a node in the table, if any
+     *
+     * @param node   a node other than a root
+     * @param points the points made by the team that played the card leading to the node
+     */
+    void addToTable(int node, int points) {
+        if (this.table != null) {
+            this.table.add(this.keys[node], points);
+        }
+    }
+
+    /**
+     * Add the result of a simulation to the AMAF statistics of the children of the nodes
+     * of a path, if this tree keeps them: each child gets the points of its team
+     * if its card was played by the same player later in the simulation.
+     *
+     * @param path    the nodes of the path, starting with the root
+     * @param length  the length of the path
+     * @param played  the cards each player played after the last node of the path,
+     *                indexed by ordinal, to which the cards of the path are added
+     * @param pkScore the score at the end of the simulation
+     * @param shared  true if other threads might be growing the tree
+     */
+    void addAmafStatistics(int[] path, int length, long[] played, long pkScore, boolean shared) {
+        if (this.amafTurns == null) {
+            return;
+        }
+        for (int k = length - 2; k >= 0; --k) {
+            int node = path[k];
+            PlayerId player = nextPlayer(node);
+            int p = player.ordinal();
+            // The card leading to the next node of the path
+            played[p] |= PackedCardSet.difference(this.unplayedCards[node], this.unplayedCards[path[k + 1]]);
+            int first = shared ? (int) INTS.getAcquire(this.firstChild, node) : this.firstChild[node];
+            long nodeCards = this.cards[node];
+            int points = PackedScore.totalPoints(pkScore, player.team());
+            for (long rest = PackedCardSet.intersection(nodeCards, played[p]); !PackedCardSet.isEmpty(rest); rest = PackedCardSet.withoutFirst(rest)) {
+                int child = first + childIndex(nodeCards, PackedCardSet.first(rest));
+                if (!isReady(child, shared)) {
+                    continue;
+                }
+                if (shared) {
+                    INTS.getAndAdd(this.amafPoints, child, points);
+                    INTS.getAndAdd(this.amafTurns, child, 1);
+                } else {
+                    this.amafPoints[child] += points;
+                    ++this.amafTurns[child];
+                }
+            }
+        }
+    }
+
+    private boolean isReady(int node, boolean shared) {
+        int s = shared ? (int) INTS.getAcquire(this.status, node) : this.status[node];
+        return s == READY;
+    }
+
+    // Return the first id of the children block of a node, reserving it if needed,
+    // or NONE if the tree is full
+    private int children(int node, boolean shared) {
+        if (!shared) {
+            if (this.firstChild[node] == NONE) {
+                this.firstChild[node] = reserve(PackedCardSet.size(this.cards[node]), false);
+            }
+            return this.firstChild[node];
+        }
+        int first = (int) INTS.getAcquire(this.firstChild, node);
+        if (first != NONE) {
+            return first;
+        }
+        int reserved = reserve(PackedCardSet.size(this.cards[node]), true);
+        if (reserved == NONE) {
+            return NONE;
+        }
+        // If another thread reserved a block at the same time, ours is simply lost
+        int witness = (int) INTS.compareAndExchangeRelease(this.firstChild, node, NONE, reserved);
+        return witness == NONE ? reserved : witness;
+    }
+
+    // Fill a slot with the state reached by playing the indexth card of its parent
+    private void initChild(int child, int parent, int index) {
+        int pkCard = PackedCardSet.get(this.cards[parent], index);
+        long unplayed = PackedCardSet.remove(this.unplayedCards[parent], pkCard);
+        int trick = PackedTrick.withAddedCard(this.tricks[parent], pkCard);
+        this.scores[child] = PackedTurnState.collectedScore(this.scores[parent], trick);
+        trick = PackedTurnState.collectedTrick(trick);
+        this.unplayedCards[child] = unplayed;
+        this.tricks[child] = trick;
+        if (this.table != null) {
+            this.keys[child] = TranspositionTable.key(this.scores[child], unplayed, trick, nextPlayer(parent).team());
+        }
+        this.cards[child] = PackedTurnState.isTerminal(trick)
+                ? PackedCardSet.EMPTY
+                : childCards(unplayed, trick);
+    }
+
+    /**
+     * Return the child of a node reached by playing a given card, creating it if needed.
+     * This can't be used while other threads are growing the tree.
+     *
+     * @return the id of that child, or NONE if the card can't be played or the tree is full
+     */
+    int descend(int node, int pkCard) {
+        long nodeCards = this.cards[node];
+        if (!PackedCardSet.contains(nodeCards, pkCard)) {
+            return NONE;
+        }
+        int first = children(node, false);
+        if (first == NONE) {
+            return NONE;
+        }
+        // The children are ordered like the cards of their parent
+        int index = childIndex(nodeCards, pkCard);
+        int child = first + index;
+        if (this.status[child] == EMPTY) {
+            initChild(child, node, index);
+            this.status[child] = READY;
+        }
+        return child;
+    }
+
+    // The children are ordered like the cards of their parent
+    private static int childIndex(long nodeCards, int pkCard) {
+        return PackedCardSet.size(nodeCards & (PackedCardSet.singleton(pkCard) - 1));
+    }
+
+    private double vScore(int parent, int child, double c) {
+        // The statistics might be modified by other threads, so we read them once
+        int childTurns = this.finishedTurns[child];
+        if (childTurns > 0) {
+            int opportunities = this.determinized ? this.available[child] : this.finishedTurns[parent];
+            double vScore = ((double) this.totalPoints[child]) / childTurns;
+            if (this.table != null) {
+                int entry = this.table.find(this.keys[child]);
+                int positionTurns = entry == TranspositionTable.ABSENT ? 0 : this.table.finishedTurns(entry);
+                if (positionTurns > 0) {
+                    vScore = ((double) this.table.totalPoints(entry)) / positionTurns;
+                }
+            }
+            int amafTurns = this.amafTurns == null ? 0 : this.amafTurns[child];
+            if (amafTurns > 0) {
+                // The weight of the AMAF statistics is 1/2 after raveEquivalence visits
+                double beta = Math.sqrt(this.raveEquivalence / (3 * childTurns + this.raveEquivalence));
+                vScore = (1 - beta) * vScore + beta * this.amafPoints[child] / amafTurns;
+            }
+            vScore += c * Math.sqrt(2 * Math.log(opportunities) / childTurns);
+            return vScore;
+        } else {
+            return Double.POSITIVE_INFINITY;
+        }
+    }
+
+    /**
+     * Return the index of the most promising child of a node, i.e.,
+     * the index of the card to play
+     *
+     * @param node   the node to look at
+     * @param c      how much we favor children that haven't been explored much
+     * @param shared true if other threads might be growing the tree
+     * @return the index of that child, or -1 if no child has been explored
+     */
+    int bestChildIndex(int node, double c, boolean shared) {
+        return bestChildIndex(node, this.cards[node], c, shared);
+    }
+
+    // Same as above, only considering the children of the given cards
+    private int bestChildIndex(int node, long candidates, double c, boolean shared) {
+        long nodeCards = this.cards[node];
+        int first = shared ? (int) INTS.getAcquire(this.firstChild, node) : this.firstChild[node];
+        if (first == NONE) {
+            return -1;
+        }
+        if (PackedCardSet.size(nodeCards) == 1) {
+            return isReady(first, shared) ? 0 : -1;
+        }
+        double bestScore = Double.NEGATIVE_INFINITY;
+        int bestIndex = -1;
+        for (long rest = candidates; !PackedCardSet.isEmpty(rest); rest = PackedCardSet.withoutFirst(rest)) {
+            int i = childIndex(nodeCards, PackedCardSet.first(rest));
+            int child = first + i;
+            if (isReady(child, shared)) {
+                double vScore = vScore(node, child, c);
+                if (vScore > bestScore) {
+                    bestScore = vScore;
+                    bestIndex = i;
+                }
+            }
+        }
+        return bestIndex;
+    }
+
+    /**
+     * Return the index of the child of a node that was visited the most.
+     * This can't be used while other threads are growing the tree.
+     *
+     * @return the index of that child, or -1 if no child has been explored
+     */
+    int mostVisitedChildIndex(int node) {
+        int first = this.firstChild[node];
+        if (first == NONE) {
+            return -1;
+        }
+        int bestIndex = -1;
+        int bestTurns = 0;
+        for (int i = 0; i < PackedCardSet.size(this.cards[node]); ++i) {
+            if (this.status[first + i] == READY && this.finishedTurns[first + i] > bestTurns) {
+                bestTurns = this.finishedTurns[first + i];
+                bestIndex = i;
+            }
+        }
+        return bestIndex;
+    }
+
+    /**
+     * Return by how many visits the most visited child of a node leads the second most visited one.
+     * This can't be used while other threads are growing the tree.
+     *
+     * @return that lead, 0 if the node has less than two children
+     */
+    int visitLead(int node) {
+        int first = this.firstChild[node];
+        int count = PackedCardSet.size(this.cards[node]);
+        if (first == NONE || count < 2) {
+            return 0;
+        }
+        int best = 0;
+        int second = 0;
+        for (int i = 0; i < count; ++i) {
+            int turns = this.status[first + i] == READY ? this.finishedTurns[first + i] : 0;
+            if (turns > best) {
+                second = best;
+                best = turns;
+            } else if (turns > second) {
+                second = turns;
+            }
+        }
+        return best - second;
+    }
+
+    // Count one more opportunity for each existing child of the given cards
+    private void markAvailable(int first, long nodeCards, long candidates, boolean shared) {
+        for (long rest = candidates; !PackedCardSet.isEmpty(rest); rest = PackedCardSet.withoutFirst(rest)) {
+            int child = first + childIndex(nodeCards, PackedCardSet.first(rest));
+            if (!isReady(child, shared)) {
+                continue;
+            }
+            if (shared) {
+                INTS.getAndAdd(this.available, child, 1);
+            } else {
+                ++this.available[child];
+            }
+        }
+    }
+
+    /**
+     * Return the child of a node at a given index, or NONE if it doesn't exist yet
+     */
+    int child(int node, int index, boolean shared) {
+        int first = shared ? (int) INTS.getAcquire(this.firstChild, node) : this.firstChild[node];
+        if (first == NONE || !isReady(first + index, shared)) {
+            return NONE;
+        }
+        return first + index;
+    }
+
+    /**
+     * Walk down from a root, following the most promising children,
+     * until we can create a new node, which ends the path.
+     * <p>
+     * When virtualLoss is positive, the tree is shared with other threads:
+     * every node below the root we walk through gets that many losing turns,
+     * which have to be taken back when propagating the score.
+     *
+     * @param root        the node to start from
+     * @param deal        the hands of the players for this iteration, indexed by ordinal,
+     *                    only used if the tree is determinized
+     * @param curiosity   how much we favor children that haven't been explored much
+     * @param virtualLoss the number of losing turns to add to each node, 0 if the tree isn't shared
+     * @param path        filled with the nodes of the path, starting with the root
+     * @return the length of the path
+     */
+    int select(int root, long[] deal, double curiosity, int virtualLoss, int[] path) {
+        boolean shared = virtualLoss > 0;
+        int node = root;
+        int length = 0;
+        path[length++] = root;
+        for (; ; ) {
+            long nodeCards = this.cards[node];
+            long candidates = nodeCards;
+            if (this.determinized && !isTerminal(node)) {
+                int trick = this.tricks[node];
+                long hand = PackedCardSet.intersection(deal[nextPlayer(node).ordinal()], this.unplayedCards[node]);
+                candidates = PackedCardSet.intersection(nodeCards, PackedTrick.playableCards(trick, hand));
+            }
+            if (PackedCardSet.isEmpty(candidates)) {
+                return length;
+            }
+            int first = children(node, shared);
+            if (first == NONE) {
+                return length;
+            }
+            // Try and insert directly below the node
+            for (long rest = candidates; !PackedCardSet.isEmpty(rest); rest = PackedCardSet.withoutFirst(rest)) {
+                int i = childIndex(nodeCards, PackedCardSet.first(rest));
+                int child = first + i;
+                boolean claimed;
+                if (shared) {
+                    // Another thread might be taking this slot at the same time
+                    claimed = (int) INTS.getAcquire(this.status, child) == EMPTY
+                            && INTS.compareAndSet(this.status, child, EMPTY, INITIALIZING);
+                } else {
+                    claimed = this.status[child] == EMPTY;
+                }
+                if (claimed) {
+                    initChild(child, node, i);
+                    if (this.table != null) {
+                        this.table.probe(this.keys[child]);
+                    }
+                    if (shared) {
+                        this.finishedTurns[child] = virtualLoss;
+                        INTS.setRelease(this.status, child, READY);
+                    } else {
+                        this.status[child] = READY;
+                    }
+                    if (this.determinized) {
+                        markAvailable(first, nodeCards, candidates, shared);
+                    }
+                    path[length++] = child;
+                    return length;
+                }
+            }
+            // Recurse with the most promising direct child
+            int bestIndex = bestChildIndex(node, candidates, curiosity, shared);
+            if (bestIndex < 0) {
+                return length;
+            }
+            if (this.determinized) {
+                markAvailable(first, nodeCards, candidates, shared);
+            }
+            node = first + bestIndex;
+            if (shared) {
+                addStatistics(node, 0, virtualLoss, true);
+            }
+            path[length++] = node;
+        }
+    }
+
+    /**
+     * Add the statistics of the children of a root of another tree, built from the same state,
+     * to the children of a root of this tree.
+     */
+    void mergeRoot(int root, SearchTree that, int thatRoot) {
+        assert this.cards[root] == that.cards[thatRoot];
+        int count = PackedCardSet.size(this.cards[root]);
+        for (int i = 0; i < count; ++i) {
+            int theirs = that.child(thatRoot, i, false);
+            if (theirs == NONE) {
+                continue;
+            }
+            int mine = descend(root, PackedCardSet.get(this.cards[root], i));
+            if (mine != NONE) {
+                addStatistics(mine, that.totalPoints[theirs], that.finishedTurns[theirs], false);
+                this.available[mine] += that.available[theirs];
+                if (this.amafTurns != null) {
+                    this.amafPoints[mine] += that.amafPoints[theirs];
+                    this.amafTurns[mine] += that.amafTurns[theirs];
+                }
+            }
+        }
+        this.finishedTurns[root] += that.finishedTurns[thatRoot];
+    }
+}
@@ -0,0 +1,359 @@
+package ch.epfl.javass.jass;
+
+import ch.epfl.javass.Preconditions;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+
+/**
+ * Plays many complete games of Jass between the same players, without any interface,
+ * spreading the games over several threads, and gathers statistics about their results.
+ * <p>
+ * New players are created for every game, so that games don't share any state,
+ * and the ones that are {@link AutoCloseable} are closed at the end of their game.
+ * Each game has its own seed, from which the deal and the seeds of its players are drawn,
+ * so the results only depend on the seed of the tournament, and not on the number of threads,
+ * as long as the players themselves are deterministic, which pondering ones aren't.
+ *
+ * @author Lúcás Críostóir Meier (300831)
+ * @author Ludovic Burnier (301308)
+ */
+public final class Tournament {
+    /**
+     * Creates the players of each game of a tournament
+     */
+    @FunctionalInterface
+    public interface PlayerFactory {
+        /**
+         * Create a new player
+         *
+         * @param ownId   the id of the player in the game
+         * @param rngSeed the seed the player should use, if it is random
+         * @return the new player
+         */
+        Player create(PlayerId ownId, long rngSeed);
+    }
+
+    /**
+     * A builder allowing to configure a Tournament
+     */
+    public static final class Builder {
+        private final long rngSeed;
+        private final Map<PlayerId, PlayerFactory> factories = new EnumMap<>(PlayerId.class);
+        private final Map<PlayerId, String> names = new EnumMap<>(PlayerId.class);
+        private int games = 100;
+        private int threads = 1;
+
+        /**
+         * Start building a new Tournament
+         *
+         * @param rngSeed the seed from which the seeds of every game are drawn
+         */
+        public Builder(long rngSeed) {
+            this.rngSeed = rngSeed;
+        }
+
+        /**
+         * Set the player playing with a given id in every game
+         *
+         * @param id      the id of the player
+         * @param name    its name
+         * @param factory creates the player of each game
+         * @return this builder
+         */
+        public Builder player(PlayerId id, String name, PlayerFactory factory) {
+            this.names.put(id, name);
+            this.factories.put(id, factory);
+            return this;
+        }
+
+        /**
+         * @param games the number of games to play, 100 by default
+         * @return this builder
+         * @throws IllegalArgumentException if games &lt; 1
+         */
+        public Builder games(int games) {
+            Preconditions.checkArgument(games >= 1);
+            this.games = games;
+            return this;
+        }
+
+        /**
+         * @param threads the number of games played at the same time, 1 by default
+         * @return this builder
+         * @throws IllegalArgumentException if threads &lt; 1
+         */
+        public Builder threads(int threads) {
+            Preconditions.checkArgument(threads >= 1);
+            this.threads = threads;
+            return this;
+        }
+
+        /**
+         * @return a new Tournament with the options given to this builder
+         * @throws IllegalArgumentException if the player of some id wasn't given
+         */
+        public Tournament build() {
+            Preconditions.checkArgument(this.factories.size() == PlayerId.COUNT);
+            return new Tournament(this);
+        }
+    }
+
+    /**
+     * The results of the games of a tournament
+     */
+    public static final class Result {
+        private final int[] wins = new int[TeamId.COUNT];
+        // The final points of each team, by ordinal, sorted
+        private final int[][] points;
+        private final long nanos;
+
+        private Result(TeamId[] winners, int[][] points, long nanos) {
+            for (TeamId winner : winners) {
+                ++this.wins[winner.ordinal()];
+            }
+            this.points = new int[TeamId.COUNT][];
+            for (int t = 0; t < TeamId.COUNT; ++t) {
+                this.points[t] = points[t].clone();
+                Arrays.sort(this.points[t]);
+            }
+            this.nanos = nanos;
+        }
+
+        /**
+         * @return the number of games played
+         */
+        public int games() {
+            return this.points[0].length;
+        }
+
+        /**
+         * @param team a team
+         * @return the number of games won by that team
+         */
+        public int wins(TeamId team) {
+            return this.wins[team.ordinal()];
+        }
+
+        /**
+         * @param team a team
+         * @return the proportion of the games won by that team
+         */
+        public double winRate(TeamId team) {
+            return (double) wins(team) / games();
+        }
+
+        /**
+         * Return the half-width of the 95% confidence interval of the win rate of a team,
+         * using the normal approximation
+         *
+         * @param team a team
+         * @return the margin of error of the win rate of that team
+         */
+        public double winRateMargin(TeamId team) {
+            double p = winRate(team);
+            return 1.96 * Math.sqrt(p * (1 - p) / games());
+        }
+
+        /**
+         * @param team a team
+         * @return the points of that team at the end of each game, in increasing order
+         */
+        public List<Integer> points(TeamId team) {
+            List<Integer> list = new ArrayList<>(games());
+            for (int p : this.points[team.ordinal()]) {
+                list.add(p);
+            }
+            return Collections.unmodifiableList(list);
+        }
+
+        /**
+         * @param team a team
+         * @return the average points of that team at the end of a game
+         */
+        public double meanPoints(TeamId team) {
+            long total = 0;
+            for (int p : this.points[team.ordinal()]) {
+                total += p;
+            }
+            return (double) total / games();
+        }
+
+        /**
+         * @param team a team
+         * @return the standard deviation of the points of that team at the end of a game
+         */
+        public double pointsDeviation(TeamId team) {
+            double mean = meanPoints(team);
+            double squares = 0;
+            for (int p : this.points[team.ordinal()]) {
+                squares += (p - mean) * (p - mean);
+            }
+            return Math.sqrt(squares / games());
+        }
+
+        /**
+         * @param team     a team
+         * @param fraction the fraction of the games, between 0 and 1
+         * @return the points of that team at the end of a game, such that the team made
+         * at most that many points in the given fraction of the games
+         * @throws IllegalArgumentException if fraction isn't between 0 and 1
+         */
+        public int pointsPercentile(TeamId team, double fraction) {
+            Preconditions.checkArgument(0 <= fraction && fraction <= 1);
+            int[] sorted = this.points[team.ordinal()];
+            return sorted[(int) Math.min(sorted.length - 1, Math.floor(fraction * sorted.length))];
+        }
+
+        /**
+         * @return the time taken to play every game, in seconds
+         */
+        public double seconds() {
+            return this.nanos / 1e9;
+        }
+
+        /**
+         * @return the number of games played per second
+         */
+        public double gamesPerSecond() {
+            return games() / seconds();
+        }
+    }
+
+    private final Map<PlayerId, PlayerFactory> factories;
+    private final Map<PlayerId, String> names;
+    private final long[] gameSeeds;
+    private final int threads;
+
+    private Tournament(Builder builder) {
+        this.factories = new EnumMap<>(builder.factories);
+        this.names = new EnumMap<>(builder.names);
+        SplittableRandom rng = new SplittableRandom(builder.rngSeed);
+        this.gameSeeds = new long[builder.games];
+        for (int g = 0; g < this.gameSeeds.length; ++g) {
+            this.gameSeeds[g] = rng.nextLong();
+        }
+        this.threads = builder.threads;
+    }
+
+    /**
+     * @return the names of the players
+     */
+    public Map<PlayerId, String> names() {
+        return Collections.unmodifiableMap(this.names);
+    }
+
+    /**
+     * Play every game of this tournament, and wait for them to finish
+     *
+     * @param progress called with the number of games finished after each game,
+     *                 possibly from several threads at the same time
+     * @return the results of the games
+     */
+    public Result run(IntConsumer progress) {
+        int games = this.gameSeeds.length;
+        TeamId[] winners = new TeamId[games];
+        int[][] points = new int[TeamId.COUNT][games];
+        AtomicInteger finished = new AtomicInteger();
+        long start = System.nanoTime();
+
+        List<Callable<Void>> tasks = new ArrayList<>(games);
+        for (int g = 0; g < games; ++g) {
+            int game = g;
+            tasks.add(() -> {
+                JassGame jassGame = play(this.gameSeeds[game], this.factories, this.names);
+                // Each game writes to its own index, and invokeAll makes the writes visible
+                winners[game] = jassGame.winningTeam();
+                for (TeamId team : TeamId.ALL) {
+                    points[team.ordinal()][game] = jassGame.score().totalPoints(team);
+                }
+                progress.accept(finished.incrementAndGet());
+                return null;
+            });
+        }
+        runAll(tasks, this.threads);
+        return new Result(winners, points, System.nanoTime() - start);
+    }
+
+    /**
+     * Run tasks on a number of threads, and wait for all of them to finish
+     *
+     * @param tasks   the tasks to run
+     * @param threads the number of threads to use
+     * @return the results of the tasks, in the same order
+     * @throws IllegalStateException if a task failed, or if the calling thread was interrupted
+     */
+    static <T> List<T> runAll(List<Callable<T>> tasks, int threads) {
+        ExecutorService executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "tournament");
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            List<T> results = new ArrayList<>(tasks.size());
+            for (Future<T> future : executor.invokeAll(tasks)) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Play a complete game. The same seed always gives the same deals,
+     * and the same seeds to the players of each id.
+     *
+     * @param gameSeed  the seed of the game
+     * @param factories creates the player of each id
+     * @param names     the name of the player of each id
+     * @return the game, which is over, its players having been closed if they can be
+     */
+    static JassGame play(long gameSeed, Map<PlayerId, PlayerFactory> factories, Map<PlayerId, String> names) {
+        SplittableRandom rng = new SplittableRandom(gameSeed);
+        Map<PlayerId, Player> players = new EnumMap<>(PlayerId.class);
+        for (PlayerId id : PlayerId.ALL) {
+            players.put(id, factories.get(id).create(id, rng.nextLong()));
+        }
+        JassGame game = new JassGame(rng.nextLong(), players, names);
+        try {
+            while (!game.isGameOver()) {
+                game.advanceToEndOfNextTrick();
+            }
+        } finally {
+            closeAll(players.values());
+        }
+        return game;
+    }
+
+    // Release whatever the players of a game hold, such as the threads of an MctsPlayer
+    private static void closeAll(Collection<Player> players) {
+        for (Player player : players) {
+            if (player instanceof AutoCloseable) {
+                try {
+                    ((AutoCloseable) player).close();
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package ch.epfl.javass.jass;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Holds the statistics of the positions reached during the searches of a MctsPlayer,
+ * so that nodes reached by different sequences of cards share what was learned about them.
+ * <p>
+ * A position is identified by a 64 bit key, hashed from its packed score, unplayed cards
+ * and trick, along with the team that played the card leading to it, since the points
+ * of a node are those of that team. Two positions having the same key are considered equal.
+ * <p>
+ * The table has a fixed number of entries, allocated once, and is open-addressed:
+ * each key can only be stored in a small bucket of consecutive entries. When that bucket
+ * is full, the entry replaced is the one last used by the oldest search, and among those,
+ * the one with the fewest simulations. Entries from previous turns are simply ignored.
+ * <p>
+ * When the table is concurrent, several threads can use it at the same time.
+ * The statistics of an entry are updated atomically, but an entry might be replaced
+ * while another thread is reading it, which only adds a bit of noise to the search.
+ *
+ * @author Lúcás Críostóir Meier (300831)
+ * @author Ludovic Burnier (301308)
+ */
+final class TranspositionTable {
+    /**
+     * The maximum number of entries of a table
+     */
+    static final int MAX_CAPACITY = 1 << 26;
+    /**
+     * Returned by {@link #find} when a key isn't in the table
+     */
+    static final int ABSENT = -1;
+
+    // The number of entries in which a key can be stored
+    private static final int BUCKET_SIZE = 4;
+
+    private static final VarHandle INTS = MethodHandles.arrayElementVarHandle(int[].class);
+    private static final VarHandle LONGS = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private final int bucketMask;
+    private final boolean concurrent;
+    private final long[] keys;
+    // The search that last used each entry, 0 if it was never used
+    private final int[] ages;
+    private final int[] totalPoints;
+    private final int[] finishedTurns;
+    private final LongAdder probes = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+    // Entries older than turnStart belong to previous turns
+    private int age = 1;
+    private int turnStart = 1;
+
+    /**
+     * Construct a new empty table
+     *
+     * @param capacity   the minimal number of entries, rounded up to a power of two
+     * @param concurrent true if several threads might use this table at the same time
+     */
+    TranspositionTable(int capacity, boolean concurrent) {
+        assert 0 < capacity && capacity <= MAX_CAPACITY;
+        int entries = Math.max(BUCKET_SIZE, Integer.highestOneBit(capacity - 1) << 1);
+        this.bucketMask = entries / BUCKET_SIZE - 1;
+        this.concurrent = concurrent;
+        this.keys = new long[entries];
+        this.ages = new int[entries];
+        this.totalPoints = new int[entries];
+        this.finishedTurns = new int[entries];
+    }
+
+    /**
+     * Compute the key of a position
+     *
+     * @param pkScore         the score of the position
+     * @param pkUnplayedCards the cards that have yet to be played
+     * @param pkTrick         the trick of the position, collected if it was full
+     * @param team            the team that played the last card
+     * @return the key of that position
+     */
+    static long key(long pkScore, long pkUnplayedCards, int pkTrick, TeamId team) {
+        long h = pkUnplayedCards * 0x9E37_79B9_7F4A_7C15L;
+        h ^= Long.rotateLeft(pkScore * 0xC2B2_AE3D_27D4_EB4FL, 31);
+        h ^= ((Integer.toUnsignedLong(pkTrick) << 1) | team.ordinal()) * 0x1656_67B1_9E37_79F9L;
+        // Mix the upper bits into the lower ones, which choose the bucket
+        h ^= h >>> 29;
+        h *= 0xBF58_476D_1CE4_E5B9L;
+        return h ^ (h >>> 32);
+    }
+
+    /**
+     * @return the number of entries of this table
+     */
+    int capacity() {
+        return this.keys.length;
+    }
+
+    /**
+     * Forget every entry, typically at the start of a new turn
+     */
+    void clear() {
+        this.turnStart = ++this.age;
+    }
+
+    /**
+     * Signal that a new search starts: the entries used by the previous ones
+     * are kept, but replaced first.
+     */
+    void newSearch() {
+        ++this.age;
+    }
+
+    private long keyAt(int entry) {
+        return this.concurrent ? (long) LONGS.getOpaque(this.keys, entry) : this.keys[entry];
+    }
+
+    private int ageAt(int entry) {
+        return this.concurrent ? (int) INTS.getAcquire(this.ages, entry) : this.ages[entry];
+    }
+
+    private int firstEntry(long key) {
+        return ((int) key & this.bucketMask) * BUCKET_SIZE;
+    }
+
+    /**
+     * @return the entry holding a key, or ABSENT if it isn't in the table
+     */
+    int find(long key) {
+        int first = firstEntry(key);
+        for (int e = first; e < first + BUCKET_SIZE; ++e) {
+            if (keyAt(e) == key && ageAt(e) >= this.turnStart) {
+                return e;
+            }
+        }
+        return ABSENT;
+    }
+
+    /**
+     * Look for a key when creating a new node, counting how often it was already there
+     *
+     * @return true if the key is in the table
+     */
+    boolean probe(long key) {
+        boolean hit = find(key) != ABSENT;
+        this.probes.increment();
+        if (hit) {
+            this.hits.increment();
+        }
+        return hit;
+    }
+
+    /**
+     * @return the number of calls to {@link #probe} since this table was created
+     */
+    long probes() {
+        return this.probes.sum();
+    }
+
+    /**
+     * @return the number of calls to {@link #probe} that found their key
+     */
+    long hits() {
+        return this.hits.sum();
+    }
+
+    int totalPoints(int entry) {
+        return this.concurrent ? (int) INTS.getOpaque(this.totalPoints, entry) : this.totalPoints[entry];
+    }
+
+    int finishedTurns(int entry) {
+        return this.concurrent ? (int) INTS.getOpaque(this.finishedTurns, entry) : this.finishedTurns[entry];
+    }
+
+    /**
+     * Add the result of a simulation to the statistics of a position,
+     * inserting it if it isn't in the table yet
+     *
+     * @param key    the key of the position
+     * @param points the points its team made in that simulation
+     */
+    void add(long key, int points) {
+        int entry = find(key);
+        if (entry != ABSENT) {
+            if (this.concurrent) {
+                INTS.getAndAdd(this.totalPoints, entry, points);
+                INTS.getAndAdd(this.finishedTurns, entry, 1);
+            } else {
+                this.totalPoints[entry] += points;
+                ++this.finishedTurns[entry];
+            }
+            if (ageAt(entry) != this.age) {
+                INTS.setRelease(this.ages, entry, this.age);
+            }
+            return;
+        }
+        int victim = victim(firstEntry(key));
+        if (this.concurrent) {
+            long old = keyAt(victim);
+            // Another thread is replacing this entry, the result is simply lost
+            if (!LONGS.compareAndSet(this.keys, victim, old, key)) {
+                return;
+            }
+            INTS.setOpaque(this.totalPoints, victim, points);
+            INTS.setOpaque(this.finishedTurns, victim, 1);
+            INTS.setRelease(this.ages, victim, this.age);
+        } else {
+            this.keys[victim] = key;
+            this.totalPoints[victim] = points;
+            this.finishedTurns[victim] = 1;
+            this.ages[victim] = this.age;
+        }
+    }
+
+    // Choose the entry of a bucket to replace: an unused one if possible, then the one
+    // last used by the oldest search, then the one with the fewest simulations
+    private int victim(int first) {
+        int victim = first;
+        for (int e = first; e < first + BUCKET_SIZE; ++e) {
+            int age = ageAt(e);
+            if (age < this.turnStart) {
+                return e;
+            }
+            int victimAge = ageAt(victim);
+            if (age < victimAge || (age == victimAge && finishedTurns(e) < finishedTurns(victim))) {
+                victim = e;
+            }
+        }
+        return victim;
+    }
+}
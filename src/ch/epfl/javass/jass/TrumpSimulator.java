@@ -0,0 +1,335 @@
+package ch.epfl.javass.jass;
+
+import ch.epfl.javass.Preconditions;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Chooses the trump of a turn by simulation: the cards the player can't see are dealt
+ * to the other players at random, and the whole turn is played out once for each color,
+ * as well as for the color the partner would choose if the choice is delegated to them.
+ * The choice made is the one giving the most points to the team of the player, on average.
+ * <p>
+ * Every option is evaluated on the same deals, which makes the comparison between
+ * them much more accurate than with independent deals. The turns are played with the
+ * packed components of the states, following a {@link RolloutPolicy}.
+ * <p>
+ * The partner is assumed to choose with {@link #heuristicTrump}, which doesn't need
+ * any simulation. Announces aren't taken into account.
+ * <p>
+ * A simulator using several threads should be closed once it is no longer needed.
+ *
+ * @author Lúcás Críostóir Meier (300831)
+ * @author Ludovic Burnier (301308)
+ */
+public final class TrumpSimulator implements AutoCloseable {
+    /**
+     * The index of the value of delegating the choice, in the array returned by {@link #evaluate}
+     */
+    static final int DELEGATE = Card.Color.COUNT;
+
+    private static final int[] TRUMP_CARD_VALUES = {4, 4, 4, 7, 5, 7, 6, 6, 7};
+    // Below this value, the heuristic delegates the choice when it can
+    private static final int DELEGATE_LIMIT = 15;
+    // The deals are simulated in batches, between which the clock is read
+    private static final int BATCH_SIZE = 16;
+    private static final long NO_DEADLINE = Long.MAX_VALUE;
+
+    /**
+     * A builder allowing to configure a TrumpSimulator
+     */
+    public static final class Builder {
+        private final long rngSeed;
+        private int deals = 1024;
+        private int threads = 1;
+        // 0 means that every deal is simulated
+        private long timeBudgetMillis = 0;
+        private RolloutPolicy rolloutPolicy = RolloutPolicy.epsilonGreedy(RolloutPolicy.HEURISTIC, 0.2);
+        // null when the simulator creates its own pool
+        private ExecutorService executor = null;
+
+        /**
+         * Start building a new TrumpSimulator
+         *
+         * @param rngSeed the seed used for the deals and the simulations
+         */
+        public Builder(long rngSeed) {
+            this.rngSeed = rngSeed;
+        }
+
+        /**
+         * @param deals the number of deals on which every option is evaluated, 1024 by default
+         * @return this builder
+         * @throws IllegalArgumentException if deals &lt; 1
+         */
+        public Builder deals(int deals) {
+            Preconditions.checkArgument(deals >= 1);
+            this.deals = deals;
+            return this;
+        }
+
+        /**
+         * @param threads the number of threads the deals are spread over
+         * @return this builder
+         * @throws IllegalArgumentException if threads &lt; 1
+         */
+        public Builder threads(int threads) {
+            Preconditions.checkArgument(threads >= 1);
+            this.threads = threads;
+            return this;
+        }
+
+        /**
+         * Run the simulations on an existing pool instead of creating one.
+         * The simulator never shuts that pool down.
+         *
+         * @param executor a pool with at least as many threads as the simulator uses
+         * @return this builder
+         */
+        Builder executor(ExecutorService executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        /**
+         * Stop simulating once a certain time has elapsed, even if not every deal was simulated
+         *
+         * @param millis the time the simulator can take to choose a trump, in milliseconds
+         * @return this builder
+         * @throws IllegalArgumentException if millis &lt;= 0
+         */
+        public Builder timeBudget(long millis) {
+            Preconditions.checkArgument(millis > 0);
+            this.timeBudgetMillis = millis;
+            return this;
+        }
+
+        /**
+         * @param policy the policy used by every player to play out the turns
+         * @return this builder
+         */
+        public Builder rolloutPolicy(RolloutPolicy policy) {
+            this.rolloutPolicy = policy;
+            return this;
+        }
+
+        /**
+         * @return a new TrumpSimulator with the options given to this builder
+         */
+        public TrumpSimulator build() {
+            return new TrumpSimulator(this);
+        }
+    }
+
+    private final SplittableRandom rng;
+    private final int deals;
+    private final int threads;
+    private final long timeBudgetNanos;
+    private final RolloutPolicy rolloutPolicy;
+    // null when the simulations run on the calling thread only
+    private final ExecutorService executor;
+    // Whether the pool was created by this simulator, which has to shut it down
+    private final boolean ownsExecutor;
+    // The buffers of each thread
+    private final HandSampler[] samplers;
+    private final long[][] hands;
+    private final long[][] playedCards;
+    private final long[] possibleCards = new long[PlayerId.COUNT];
+    private final long[] knownCards = new long[PlayerId.COUNT];
+
+    private TrumpSimulator(Builder builder) {
+        this.rng = new SplittableRandom(builder.rngSeed);
+        this.deals = builder.deals;
+        this.threads = builder.threads;
+        this.timeBudgetNanos = builder.timeBudgetMillis * 1_000_000;
+        this.rolloutPolicy = builder.rolloutPolicy;
+        this.ownsExecutor = this.threads > 1 && builder.executor == null;
+        if (this.threads == 1) {
+            this.executor = null;
+        } else if (builder.executor != null) {
+            this.executor = builder.executor;
+        } else {
+            this.executor = Executors.newFixedThreadPool(this.threads, r -> {
+                Thread t = new Thread(r, "trump-simulator");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+        this.samplers = new HandSampler[this.threads];
+        for (int t = 0; t < this.threads; ++t) {
+            this.samplers[t] = new HandSampler();
+        }
+        this.hands = new long[this.threads][PlayerId.COUNT];
+        this.playedCards = new long[this.threads][PlayerId.COUNT];
+        Arrays.fill(this.possibleCards, PackedCardSet.ALL_CARDS);
+    }
+
+    /**
+     * Choose a trump quickly, by giving a value to every card of a hand, and choosing
+     * the color of the cards with the highest total value
+     *
+     * @param pkHand      the hand of the player choosing
+     * @param canDelegate whether or not the player can delegate the choice to its teammate
+     * @return the color chosen, or null if the choice is delegated
+     */
+    static Card.Color heuristicTrump(long pkHand, boolean canDelegate) {
+        int[] trumpValues = new int[Card.Color.COUNT];
+        for (long rest = pkHand; !PackedCardSet.isEmpty(rest); rest = PackedCardSet.withoutFirst(rest)) {
+            int pkCard = PackedCardSet.first(rest);
+            trumpValues[PackedCard.color(pkCard).ordinal()] += TRUMP_CARD_VALUES[PackedCard.rank(pkCard).ordinal()];
+        }
+        int best = 0;
+        for (int i = 1; i < Card.Color.COUNT; ++i) {
+            if (trumpValues[i] > trumpValues[best]) {
+                best = i;
+            }
+        }
+        if (canDelegate && trumpValues[best] < DELEGATE_LIMIT) {
+            return null;
+        }
+        return Card.Color.ALL.get(best);
+    }
+
+    /**
+     * Choose the trump of a turn
+     *
+     * @param ownId       the id of the player choosing
+     * @param hand        the hand of that player
+     * @param canDelegate whether or not the player can delegate the choice to its teammate,
+     *                    which is the case if and only if it plays first
+     * @return the color giving the most points on average, or null if delegating is better
+     */
+    public Card.Color chooseTrump(PlayerId ownId, CardSet hand, boolean canDelegate) {
+        double[] values = evaluate(ownId, hand.packed(), canDelegate);
+        int best = 0;
+        for (int i = 1; i < values.length; ++i) {
+            if (values[i] > values[best]) {
+                best = i;
+            }
+        }
+        return best == DELEGATE ? null : Card.Color.ALL.get(best);
+    }
+
+    /**
+     * Compute the average number of points the team of a player makes in a turn,
+     * for every trump it could choose
+     *
+     * @param ownId       the id of the player choosing
+     * @param pkHand      the hand of that player
+     * @param canDelegate whether or not the player can delegate the choice
+     * @return the average points for every color, by ordinal, followed by those of delegating,
+     * which are NaN if the player can't delegate
+     */
+    double[] evaluate(PlayerId ownId, long pkHand, boolean canDelegate) {
+        long deadline = this.timeBudgetNanos > 0 ? System.nanoTime() + this.timeBudgetNanos : NO_DEADLINE;
+        // The player choosing with delegation is the one playing first
+        PlayerId partner = PlayerId.ALL.get((ownId.ordinal() + 2) % PlayerId.COUNT);
+        PlayerId firstPlayer = canDelegate ? ownId : partner;
+        int firstTrick = PackedTrick.firstEmpty(Card.Color.SPADE, firstPlayer);
+        for (HandSampler sampler : this.samplers) {
+            sampler.reset(ownId, pkHand, PackedCardSet.ALL_CARDS, firstTrick, this.possibleCards, this.knownCards);
+        }
+
+        long[] totals = new long[DELEGATE + 1];
+        int dealt = 0;
+        if (this.executor == null) {
+            dealt = simulate(ownId, firstPlayer, canDelegate, this.deals, deadline, this.rng, 0, totals);
+        } else {
+            List<Callable<long[]>> tasks = new ArrayList<>(this.threads);
+            for (int t = 0; t < this.threads; ++t) {
+                SplittableRandom workerRng = this.rng.split();
+                int workerDeals = this.deals / this.threads + (t < this.deals % this.threads ? 1 : 0);
+                int worker = t;
+                tasks.add(() -> {
+                    long[] workerTotals = new long[DELEGATE + 2];
+                    // The number of deals is stored after the totals
+                    workerTotals[DELEGATE + 1] = simulate(ownId, firstPlayer, canDelegate, workerDeals,
+                            deadline, workerRng, worker, workerTotals);
+                    return workerTotals;
+                });
+            }
+            for (long[] workerTotals : runOnWorkers(tasks)) {
+                for (int i = 0; i <= DELEGATE; ++i) {
+                    totals[i] += workerTotals[i];
+                }
+                dealt += workerTotals[DELEGATE + 1];
+            }
+        }
+
+        double[] values = new double[DELEGATE + 1];
+        for (int i = 0; i <= DELEGATE; ++i) {
+            values[i] = (double) totals[i] / dealt;
+        }
+        if (!canDelegate) {
+            values[DELEGATE] = Double.NaN;
+        }
+        return values;
+    }
+
+    /**
+     * Stop the threads this simulator created, if any
+     */
+    @Override
+    public void close() {
+        if (this.ownsExecutor) {
+            this.executor.shutdown();
+        }
+    }
+
+    private <T> List<T> runOnWorkers(List<Callable<T>> tasks) {
+        try {
+            List<T> results = new ArrayList<>(tasks.size());
+            for (Future<T> future : this.executor.invokeAll(tasks)) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    // Play out every option on a number of deals, adding the points of the team to totals,
+    // and return the number of deals simulated. At least one batch is always simulated
+    private int simulate(PlayerId ownId, PlayerId firstPlayer, boolean canDelegate, int deals, long deadline,
+                         SplittableRandom rng, int worker, long[] totals) {
+        HandSampler sampler = this.samplers[worker];
+        long[] hands = this.hands[worker];
+        long[] played = this.playedCards[worker];
+        PlayerId partner = PlayerId.ALL.get((ownId.ordinal() + 2) % PlayerId.COUNT);
+        TeamId team = ownId.team();
+        int d = 0;
+        for (; d < deals; ++d) {
+            if (d % BATCH_SIZE == 0 && d > 0 && System.nanoTime() - deadline >= 0) {
+                break;
+            }
+            sampler.deal(rng, hands);
+            for (Card.Color trump : Card.Color.ALL) {
+                totals[trump.ordinal()] += playOut(trump, firstPlayer, hands, team, rng, played);
+            }
+            if (canDelegate) {
+                Card.Color trump = heuristicTrump(hands[partner.ordinal()], false);
+                totals[DELEGATE] += playOut(trump, firstPlayer, hands, team, rng, played);
+            }
+        }
+        return d;
+    }
+
+    // Play a whole turn with a given trump, and return the points of a team
+    private int playOut(Card.Color trump, PlayerId firstPlayer, long[] hands, TeamId team,
+                        SplittableRandom rng, long[] played) {
+        long pkScore = MctsPlayer.sampleEndTurnScore(PackedScore.INITIAL, PackedCardSet.ALL_CARDS,
+                PackedTrick.firstEmpty(trump, firstPlayer), hands, this.rolloutPolicy, rng, played);
+        return PackedScore.turnPoints(pkScore, team);
+    }
+}
@@ -0,0 +1,201 @@
+package ch.epfl.javass.jass;
+
+import ch.epfl.javass.Preconditions;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.IntConsumer;
+
+/**
+ * A table giving, for every hand a player can be dealt, the average number of points its team
+ * makes with each trump, computed once and for all by a {@link TrumpSimulator}.
+ * Choosing a trump then only takes a lookup.
+ * <p>
+ * Hands are stored up to a permutation of their colors, as {@link CanonicalHand}s.
+ * The table is stored in a binary file, made of a header followed by one entry per canonical hand,
+ * in the order of their numbers. The header contains, as big-endian ints: a magic number,
+ * the version of the format, the number of entries, and the number of deals each entry was
+ * computed with. Each entry is made of {@value #ENTRY_SIZE} unsigned bytes, holding rounded
+ * average points: those of each color of the canonical hand when the player plays first,
+ * then those of delegating the choice, then those of each color when its partner plays first.
+ * <p>
+ * A table can contain the first entries only, in which case the other hands
+ * are handled with {@link TrumpSimulator#heuristicTrump}.
+ * Loaded tables are mapped into memory rather than read, and can be shared between threads.
+ *
+ * @author Lúcás Críostóir Meier (300831)
+ * @author Ludovic Burnier (301308)
+ */
+public final class TrumpTable {
+    private static final int MAGIC = 0x4A_54_52_50;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 4 * Integer.BYTES;
+    private static final int ENTRY_SIZE = 2 * Card.Color.COUNT + 1;
+    private static final int DELEGATE_OFFSET = Card.Color.COUNT;
+    private static final int SECOND_OFFSET = Card.Color.COUNT + 1;
+    private static final int MAX_POINTS = 0xFF;
+
+    private final ByteBuffer entries;
+    private final int entryCount;
+    private final int deals;
+
+    private TrumpTable(ByteBuffer entries, int entryCount, int deals) {
+        this.entries = entries;
+        this.entryCount = entryCount;
+        this.deals = deals;
+    }
+
+    /**
+     * Map a table stored in a file into memory
+     *
+     * @param path the file containing the table
+     * @return the table
+     * @throws IOException              if the file can't be read
+     * @throws IllegalArgumentException if the file doesn't contain a valid table
+     */
+    public static TrumpTable load(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            Preconditions.checkArgument(size >= HEADER_SIZE);
+            // The mapping stays valid once the channel is closed
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            Preconditions.checkArgument(buffer.getInt(0) == MAGIC && buffer.getInt(4) == VERSION);
+            int entryCount = buffer.getInt(8);
+            int deals = buffer.getInt(12);
+            Preconditions.checkArgument(0 <= entryCount && entryCount <= CanonicalHand.COUNT
+                    && size == HEADER_SIZE + (long) entryCount * ENTRY_SIZE);
+            return new TrumpTable(buffer, entryCount, deals);
+        }
+    }
+
+    /**
+     * Compute a complete table, and write it to a file. This takes hours.
+     *
+     * @param path      the file to write to
+     * @param simulator the simulator used to evaluate the hands
+     * @param deals     the number of deals the simulator uses, stored in the file
+     * @param progress  called with the number of entries written, every now and then
+     * @throws IOException if the file can't be written
+     */
+    public static void generate(Path path, TrumpSimulator simulator, int deals, IntConsumer progress) throws IOException {
+        generate(path, simulator, deals, CanonicalHand.COUNT, progress);
+    }
+
+    /**
+     * Same as above, only computing the first entries of the table
+     *
+     * @param entryCount the number of entries to compute
+     */
+    static void generate(Path path, TrumpSimulator simulator, int deals, int entryCount, IntConsumer progress) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(entryCount);
+            out.writeInt(deals);
+            for (int rank = 0; rank < entryCount; ++rank) {
+                long hand = CanonicalHand.unrank(rank);
+                // The player choosing first is the one playing first, the other one is its partner
+                double[] first = simulator.evaluate(PlayerId.PLAYER_1, hand, true);
+                double[] second = simulator.evaluate(PlayerId.PLAYER_3, hand, false);
+                for (int c = 0; c < Card.Color.COUNT; ++c) {
+                    out.writeByte(toByte(first[c]));
+                }
+                out.writeByte(toByte(first[TrumpSimulator.DELEGATE]));
+                for (int c = 0; c < Card.Color.COUNT; ++c) {
+                    out.writeByte(toByte(second[c]));
+                }
+                if ((rank + 1) % 1024 == 0 || rank + 1 == entryCount) {
+                    progress.accept(rank + 1);
+                }
+            }
+        }
+    }
+
+    private static int toByte(double points) {
+        return (int) Math.min(MAX_POINTS, Math.round(points));
+    }
+
+    /**
+     * @return the number of hands having an entry in this table
+     */
+    public int entryCount() {
+        return this.entryCount;
+    }
+
+    /**
+     * @return the number of deals the entries of this table were computed with
+     */
+    public int deals() {
+        return this.deals;
+    }
+
+    private int points(int entry, int offset) {
+        return Byte.toUnsignedInt(this.entries.get(HEADER_SIZE + entry * ENTRY_SIZE + offset));
+    }
+
+    /**
+     * Return the average points a team makes with a given trump, as stored in this table
+     *
+     * @param hand        the hand of the player choosing
+     * @param canDelegate true if the player plays first, and can delegate the choice
+     * @param trump       the trump chosen, or null for the points of delegating the choice
+     * @return the average points of the team of the player, rounded,
+     * or -1 if the hand doesn't have an entry
+     * @throws IllegalArgumentException if hand doesn't have 9 cards, or if trump is null
+     *                                  and the player can't delegate
+     */
+    public int expectedPoints(CardSet hand, boolean canDelegate, Card.Color trump) {
+        Preconditions.checkArgument(hand.size() == Jass.HAND_SIZE && (trump != null || canDelegate));
+        int[] colors = new int[Card.Color.COUNT];
+        int entry = CanonicalHand.rank(CanonicalHand.canonicalize(hand.packed(), colors));
+        if (entry >= this.entryCount) {
+            return -1;
+        }
+        if (trump == null) {
+            return points(entry, DELEGATE_OFFSET);
+        }
+        int offset = canDelegate ? 0 : SECOND_OFFSET;
+        for (int c = 0; c < Card.Color.COUNT; ++c) {
+            if (colors[c] == trump.ordinal()) {
+                return points(entry, offset + c);
+            }
+        }
+        throw new Error("Unreachable code");
+    }
+
+    /**
+     * Choose the trump of a turn, falling back to {@link TrumpSimulator#heuristicTrump}
+     * if the hand doesn't have an entry in this table
+     *
+     * @param hand        the hand of the player choosing
+     * @param canDelegate whether or not the player can delegate the choice to its teammate,
+     *                    which is the case if and only if it plays first
+     * @return the color giving the most points on average, or null if delegating is better
+     * @throws IllegalArgumentException if hand doesn't have 9 cards
+     */
+    public Card.Color chooseTrump(CardSet hand, boolean canDelegate) {
+        Preconditions.checkArgument(hand.size() == Jass.HAND_SIZE);
+        int[] colors = new int[Card.Color.COUNT];
+        int entry = CanonicalHand.rank(CanonicalHand.canonicalize(hand.packed(), colors));
+        if (entry >= this.entryCount) {
+            return TrumpSimulator.heuristicTrump(hand.packed(), canDelegate);
+        }
+        int offset = canDelegate ? 0 : SECOND_OFFSET;
+        int best = 0;
+        for (int c = 1; c < Card.Color.COUNT; ++c) {
+            if (points(entry, offset + c) > points(entry, offset + best)) {
+                best = c;
+            }
+        }
+        if (canDelegate && points(entry, DELEGATE_OFFSET) > points(entry, best)) {
+            return null;
+        }
+        return Card.Color.ALL.get(colors[best]);
+    }
+}
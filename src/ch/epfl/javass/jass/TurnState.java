@@ -17,11 +17,14 @@ public final class TurnState {
     private final long pkScore;
     private final long pkUnplayedCard;
     private final int pkTrick;
+    // The tally of the trick, so that collecting it doesn't need to compare its cards again
+    private final int pkTally;
 
-    private TurnState(long pkScore, long pkUnplayedCard, int pkTrick) {
+    private TurnState(long pkScore, long pkUnplayedCard, int pkTrick, int pkTally) {
         this.pkScore = pkScore;
         this.pkUnplayedCard = pkUnplayedCard;
         this.pkTrick = pkTrick;
+        this.pkTally = pkTally;
     }
 
     /**
@@ -33,7 +36,8 @@ public final class TurnState {
      * @return the initial TurnState
      */
     public static TurnState initial(Card.Color trump, Score score, PlayerId firstPlayer) {
-        return new TurnState(score.packed(), PackedCardSet.ALL_CARDS, PackedTrick.firstEmpty(trump, firstPlayer));
+        return new TurnState(score.packed(), PackedCardSet.ALL_CARDS, PackedTrick.firstEmpty(trump, firstPlayer),
+                PackedTrick.EMPTY_TALLY);
     }
 
     /**
@@ -51,7 +55,7 @@ public final class TurnState {
         Preconditions.checkArgument(PackedCardSet.isValid(pkUnplayedCards));
         Preconditions.checkArgument(PackedTrick.isValid(pkTrick));
 
-        return new TurnState(pkScore, pkUnplayedCards, pkTrick);
+        return new TurnState(pkScore, pkUnplayedCards, pkTrick, PackedTrick.tally(pkTrick));
     }
 
     /**
@@ -126,9 +130,10 @@ public final class TurnState {
         }
 
         long newUnplayedCards = PackedCardSet.remove(this.pkUnplayedCard, card.packed());
+        int newTally = PackedTrick.tallyWithAddedCard(this.pkTally, this.pkTrick, card.packed());
         int newTrick = PackedTrick.withAddedCard(this.pkTrick, card.packed());
 
-        return new TurnState(this.pkScore, newUnplayedCards, newTrick);
+        return new TurnState(this.pkScore, newUnplayedCards, newTrick, newTally);
     }
 
     /**
@@ -142,12 +147,12 @@ public final class TurnState {
         if (!PackedTrick.isFull(this.pkTrick)) {
             throw new IllegalStateException("the trick isn't full");
         }
-        TeamId winningTeam = PackedTrick.winningPlayer(this.pkTrick).team();
-        int trickPoints = PackedTrick.points(this.pkTrick);
+        TeamId winningTeam = PackedTrick.winningPlayer(this.pkTrick, this.pkTally).team();
+        int trickPoints = PackedTrick.points(this.pkTrick, this.pkTally);
         long newPkScore = PackedScore.withAdditionalTrick(this.pkScore, winningTeam, trickPoints);
-        int newTrick = PackedTrick.nextEmpty(this.pkTrick);
+        int newTrick = PackedTrick.nextEmpty(this.pkTrick, this.pkTally);
 
-        return new TurnState(newPkScore, this.pkUnplayedCard, newTrick);
+        return new TurnState(newPkScore, this.pkUnplayedCard, newTrick, PackedTrick.EMPTY_TALLY);
     }
 
     /**
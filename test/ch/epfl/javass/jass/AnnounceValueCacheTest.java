@@ -0,0 +1,130 @@
+package ch.epfl.javass.jass;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static ch.epfl.test.TestRandomizer.RANDOM_ITERATIONS;
+import static ch.epfl.test.TestRandomizer.newRandom;
+import static org.junit.jupiter.api.Assertions.*;
+
+class AnnounceValueCacheTest {
+    private static long randomHand(SplittableRandom rng) {
+        long deck = PackedCardSet.ALL_CARDS;
+        long hand = PackedCardSet.EMPTY;
+        for (int i = 0; i < Jass.HAND_SIZE; ++i) {
+            int pkCard = PackedCardSet.get(deck, rng.nextInt(PackedCardSet.size(deck)));
+            deck = PackedCardSet.remove(deck, pkCard);
+            hand = PackedCardSet.add(hand, pkCard);
+        }
+        return hand;
+    }
+
+    private static AnnounceValueCache newCache(int capacity, AtomicInteger computed) {
+        return new AnnounceValueCache(capacity, pkCardSet -> {
+            computed.incrementAndGet();
+            return AnnounceValue.fromSet(CardSet.ofPacked(pkCardSet));
+        });
+    }
+
+    @Test
+    void capacityIsRoundedUpToAPowerOfTwo() {
+        assertEquals(2, newCache(1, new AtomicInteger()).capacity());
+        assertEquals(64, newCache(64, new AtomicInteger()).capacity());
+        assertEquals(128, newCache(65, new AtomicInteger()).capacity());
+    }
+
+    @Test
+    void valuesAreComputedOnceAndCounted() {
+        AtomicInteger computed = new AtomicInteger();
+        AnnounceValueCache cache = newCache(1 << 10, computed);
+        long hand = randomHand(newRandom());
+        AnnounceValue value = cache.get(hand);
+        for (int i = 0; i < 10; ++i) {
+            assertSame(value, cache.get(hand));
+        }
+        assertEquals(1, computed.get());
+        assertEquals(10, cache.hits());
+        assertEquals(1, cache.misses());
+    }
+
+    @Test
+    void twoSetsCanShareASlot() {
+        AtomicInteger computed = new AtomicInteger();
+        // A single slot of two entries
+        AnnounceValueCache cache = newCache(2, computed);
+        long first = PackedCardSet.singleton(0);
+        long second = PackedCardSet.singleton(1);
+        cache.get(first);
+        cache.get(second);
+        cache.get(first);
+        cache.get(second);
+        assertEquals(2, computed.get());
+        // first was used less recently than second, so it is the one replaced
+        cache.get(PackedCardSet.singleton(2));
+        cache.get(second);
+        assertEquals(3, computed.get());
+        cache.get(first);
+        assertEquals(4, computed.get());
+    }
+
+    @Test
+    void valuesAreCorrectWhenTheCacheIsFull() {
+        SplittableRandom rng = newRandom();
+        AnnounceValueCache cache = newCache(16, new AtomicInteger());
+        long[] hands = new long[64];
+        for (int i = 0; i < hands.length; ++i) {
+            hands[i] = randomHand(rng);
+        }
+        for (int i = 0; i < RANDOM_ITERATIONS; ++i) {
+            long hand = hands[rng.nextInt(hands.length)];
+            AnnounceValue expected = AnnounceValue.fromSet(CardSet.ofPacked(hand));
+            assertEquals(0, expected.compareTo(cache.get(hand)));
+            assertEquals(expected.points(), cache.get(hand).points());
+        }
+        assertEquals(2 * RANDOM_ITERATIONS, cache.hits() + cache.misses());
+    }
+
+    @Test
+    void cacheCanBeUsedByManyThreads() throws InterruptedException {
+        AnnounceValueCache cache = newCache(32, new AtomicInteger());
+        long[] hands = new long[128];
+        SplittableRandom rng = newRandom();
+        for (int i = 0; i < hands.length; ++i) {
+            hands[i] = randomHand(rng);
+        }
+        AtomicInteger errors = new AtomicInteger();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; ++t) {
+            SplittableRandom threadRng = rng.split();
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 10 * RANDOM_ITERATIONS; ++i) {
+                    long hand = hands[threadRng.nextInt(hands.length)];
+                    AnnounceValue value = cache.get(hand);
+                    if (value.points() != AnnounceValue.fromSet(CardSet.ofPacked(hand)).points()) {
+                        errors.incrementAndGet();
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(0, errors.get());
+        assertEquals(40 * RANDOM_ITERATIONS, cache.hits() + cache.misses());
+    }
+
+    @Test
+    void fromSetUsesTheSharedCache() {
+        long hand = randomHand(newRandom());
+        AnnounceValue.fromSet(CardSet.ofPacked(hand));
+        long hits = AnnounceValue.cacheHits();
+        AnnounceValue.fromSet(CardSet.ofPacked(hand));
+        assertTrue(AnnounceValue.cacheHits() > hits);
+    }
+}
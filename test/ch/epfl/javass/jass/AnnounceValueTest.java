@@ -0,0 +1,80 @@
+package ch.epfl.javass.jass;
+
+import ch.epfl.test.TestRandomizer;
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AnnounceValueTest {
+    private static long randomSet(SplittableRandom rng, long from, int size) {
+        long set = PackedCardSet.EMPTY;
+        for (int i = 0; i < size && !PackedCardSet.isEmpty(from); ++i) {
+            int pkCard = PackedCardSet.get(from, rng.nextInt(PackedCardSet.size(from)));
+            from = PackedCardSet.remove(from, pkCard);
+            set = PackedCardSet.add(set, pkCard);
+        }
+        return set;
+    }
+
+    private static void assertSameAnnounce(CardSet set) {
+        for (boolean sameSize : new boolean[] {false, true}) {
+            AnnounceValue.CardSetPair expected = AnnounceValue.bestSetByEnumeration(set, sameSize);
+            AnnounceValue.CardSetPair actual = AnnounceValue.bestSet(set, sameSize);
+            assertEquals(expected.points, actual.points);
+            assertEquals(expected.cardSet, actual.cardSet);
+        }
+    }
+
+    @Test
+    void bestSetIsTheSameAsByEnumerationForEverySubsetOfAColor() {
+        for (Card.Color color : Card.Color.ALL) {
+            long colorCards = PackedCardSet.subsetOfColor(PackedCardSet.ALL_CARDS, color);
+            for (long subset = colorCards; ; subset = (subset - 1) & colorCards) {
+                assertSameAnnounce(CardSet.ofPacked(subset));
+                if (PackedCardSet.isEmpty(subset)) {
+                    break;
+                }
+            }
+        }
+    }
+
+    @Test
+    void bestSetIsTheSameAsByEnumerationOnRandomHands() {
+        SplittableRandom rng = TestRandomizer.newRandom();
+        for (int i = 0; i < 10 * TestRandomizer.RANDOM_ITERATIONS; ++i) {
+            assertSameAnnounce(CardSet.ofPacked(randomSet(rng, PackedCardSet.ALL_CARDS, Jass.HAND_SIZE)));
+        }
+    }
+
+    @Test
+    void bestSetIsTheSameAsByEnumerationOnHandsWithManyAnnounces() {
+        SplittableRandom rng = TestRandomizer.newRandom();
+        for (int i = 0; i < 10 * TestRandomizer.RANDOM_ITERATIONS; ++i) {
+            // Few ranks give four cards of the same rank, few colors give suites
+            long ranks = randomSet(rng, PackedCardSet.subsetOfColor(PackedCardSet.ALL_CARDS, Card.Color.SPADE),
+                    1 + rng.nextInt(5)) * 0x0001_0001_0001_0001L;
+            long colors = PackedCardSet.subsetOfColor(PackedCardSet.ALL_CARDS, Card.Color.ALL.get(rng.nextInt(Card.Color.COUNT)));
+            long pool = PackedCardSet.union(ranks, colors);
+            assertSameAnnounce(CardSet.ofPacked(randomSet(rng, pool, Jass.HAND_SIZE + rng.nextInt(4) - 2)));
+        }
+    }
+
+    @Test
+    void bestSetIsTheSameAsByEnumerationOnUnionsOfAnnounces() {
+        SplittableRandom rng = TestRandomizer.newRandom();
+        for (int i = 0; i < TestRandomizer.RANDOM_ITERATIONS; ++i) {
+            CardSet set = CardSet.EMPTY;
+            for (int j = 0; j < 3; ++j) {
+                Card.Color color = Card.Color.ALL.get(rng.nextInt(Card.Color.COUNT));
+                int length = 3 + rng.nextInt(3);
+                int start = rng.nextInt(Card.Rank.COUNT - length + 1);
+                for (int k = 0; k < length; ++k) {
+                    set = set.add(Card.of(color, Card.Rank.ALL.get(start + k)));
+                }
+            }
+            assertSameAnnounce(set);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package ch.epfl.javass.jass;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static ch.epfl.test.TestRandomizer.RANDOM_ITERATIONS;
+import static ch.epfl.test.TestRandomizer.newRandom;
+import static org.junit.jupiter.api.Assertions.*;
+
+class CanonicalHandTest {
+    private static long randomHand(SplittableRandom rng) {
+        long hand = PackedCardSet.EMPTY;
+        while (PackedCardSet.size(hand) < Jass.HAND_SIZE) {
+            long rest = PackedCardSet.difference(PackedCardSet.ALL_CARDS, hand);
+            hand = PackedCardSet.add(hand, PackedCardSet.get(rest, rng.nextInt(PackedCardSet.size(rest))));
+        }
+        return hand;
+    }
+
+    // Move the cards of each color c to the color permutation[c]
+    private static long permuteColors(long pkHand, int[] permutation) {
+        long permuted = PackedCardSet.EMPTY;
+        for (Card.Color c : Card.Color.ALL) {
+            long subset = PackedCardSet.subsetOfColor(pkHand, c) >>> (c.ordinal() * 16);
+            permuted |= subset << (permutation[c.ordinal()] * 16);
+        }
+        return permuted;
+    }
+
+    @Test
+    void countIsTheNumberOfHandsUpToColorPermutations() {
+        // Burnside's lemma would give the same number, this is the value we found
+        assertEquals(4_102_499, CanonicalHand.COUNT);
+    }
+
+    @Test
+    void canonicalFormDoesNotDependOnColors() {
+        SplittableRandom rng = newRandom();
+        int[] colors = new int[Card.Color.COUNT];
+        for (int i = 0; i < RANDOM_ITERATIONS; ++i) {
+            long hand = randomHand(rng);
+            long canonical = CanonicalHand.canonicalize(hand, colors);
+            assertEquals(Jass.HAND_SIZE, PackedCardSet.size(canonical));
+            // The colors map the canonical hand back to the hand
+            long back = PackedCardSet.EMPTY;
+            for (int c = 0; c < Card.Color.COUNT; ++c) {
+                back |= ((canonical >>> (c * 16)) & 0x1FF) << (colors[c] * 16);
+            }
+            assertEquals(hand, back);
+
+            int[] permutation = {0, 1, 2, 3};
+            for (int j = permutation.length - 1; j > 0; --j) {
+                int k = rng.nextInt(j + 1);
+                int t = permutation[j];
+                permutation[j] = permutation[k];
+                permutation[k] = t;
+            }
+            assertEquals(canonical, CanonicalHand.canonicalize(permuteColors(hand, permutation), colors));
+        }
+    }
+
+    @Test
+    void rankAndUnrankAreInverses() {
+        SplittableRandom rng = newRandom();
+        int[] colors = new int[Card.Color.COUNT];
+        for (int i = 0; i < RANDOM_ITERATIONS; ++i) {
+            long canonical = CanonicalHand.canonicalize(randomHand(rng), colors);
+            int rank = CanonicalHand.rank(canonical);
+            assertTrue(0 <= rank && rank < CanonicalHand.COUNT);
+            assertEquals(canonical, CanonicalHand.unrank(rank));
+
+            int r = rng.nextInt(CanonicalHand.COUNT);
+            long hand = CanonicalHand.unrank(r);
+            assertEquals(hand, CanonicalHand.canonicalize(hand, colors));
+            assertEquals(r, CanonicalHand.rank(hand));
+        }
+    }
+
+    @Test
+    void firstAndLastHandsAreCorrect() {
+        assertEquals(PackedCardSet.subsetOfColor(PackedCardSet.ALL_CARDS, Card.Color.SPADE), CanonicalHand.unrank(0));
+        assertEquals(CanonicalHand.COUNT - 1, CanonicalHand.rank(CanonicalHand.unrank(CanonicalHand.COUNT - 1)));
+    }
+}
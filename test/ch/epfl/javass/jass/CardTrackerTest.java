@@ -0,0 +1,129 @@
+package ch.epfl.javass.jass;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+import ch.epfl.javass.jass.Card.Color;
+import ch.epfl.javass.jass.Card.Rank;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CardTrackerTest {
+    private static CardSet ofColor(Color color) {
+        return CardSet.ALL_CARDS.subsetOfColor(color);
+    }
+
+    private static CardTracker trackerAfter(Trick trick) {
+        CardTracker tracker = new CardTracker(PlayerId.PLAYER_4);
+        tracker.setTrump(trick.trump());
+        tracker.updateTrick(trick);
+        return tracker;
+    }
+
+    @Test
+    void ownPossibleCardsAreOwnHand() {
+        CardTracker tracker = new CardTracker(PlayerId.PLAYER_4);
+        CardSet hand = ofColor(Color.SPADE);
+        tracker.updateHand(hand);
+        assertEquals(hand, tracker.possibleCards(PlayerId.PLAYER_4));
+        assertEquals(hand, tracker.knownCards(PlayerId.PLAYER_4));
+        for (PlayerId p : PlayerId.ALL) {
+            if (p != PlayerId.PLAYER_4) {
+                assertEquals(CardSet.ALL_CARDS.difference(hand), tracker.possibleCards(p));
+                assertEquals(CardSet.EMPTY, tracker.knownCards(p));
+            }
+        }
+    }
+
+    @Test
+    void playedCardsAreNotPossible() {
+        Card played = Card.of(Color.HEART, Rank.SIX);
+        CardTracker tracker = trackerAfter(Trick.firstEmpty(Color.SPADE, PlayerId.PLAYER_1).withAddedCard(played));
+        for (PlayerId p : PlayerId.ALL) {
+            assertFalse(tracker.possibleCards(p).contains(played));
+        }
+    }
+
+    @Test
+    void notFollowingMeansNoCardOfBaseColor() {
+        Trick trick = Trick.firstEmpty(Color.SPADE, PlayerId.PLAYER_1)
+                .withAddedCard(Card.of(Color.HEART, Rank.SIX))
+                .withAddedCard(Card.of(Color.DIAMOND, Rank.SIX));
+        CardTracker tracker = trackerAfter(trick);
+        assertTrue(tracker.possibleCards(PlayerId.PLAYER_2).subsetOfColor(Color.HEART).isEmpty());
+        assertFalse(tracker.possibleCards(PlayerId.PLAYER_1).subsetOfColor(Color.HEART).isEmpty());
+        assertFalse(tracker.possibleCards(PlayerId.PLAYER_3).subsetOfColor(Color.HEART).isEmpty());
+    }
+
+    @Test
+    void cuttingTellsNothingAboutBaseColor() {
+        Trick trick = Trick.firstEmpty(Color.SPADE, PlayerId.PLAYER_1)
+                .withAddedCard(Card.of(Color.HEART, Rank.SIX))
+                .withAddedCard(Card.of(Color.SPADE, Rank.SIX));
+        CardTracker tracker = trackerAfter(trick);
+        assertEquals(ofColor(Color.HEART).remove(Card.of(Color.HEART, Rank.SIX)),
+                tracker.possibleCards(PlayerId.PLAYER_2).subsetOfColor(Color.HEART));
+    }
+
+    @Test
+    void notFollowingTrumpKeepsTheJack() {
+        Trick trick = Trick.firstEmpty(Color.SPADE, PlayerId.PLAYER_1)
+                .withAddedCard(Card.of(Color.SPADE, Rank.SIX))
+                .withAddedCard(Card.of(Color.HEART, Rank.SIX));
+        CardTracker tracker = trackerAfter(trick);
+        CardSet spades = tracker.possibleCards(PlayerId.PLAYER_2).subsetOfColor(Color.SPADE);
+        assertEquals(CardSet.EMPTY.add(Card.of(Color.SPADE, Rank.JACK)), spades);
+    }
+
+    @Test
+    void undercuttingMeansOnlyLowerTrumps() {
+        Trick trick = Trick.firstEmpty(Color.SPADE, PlayerId.PLAYER_1)
+                .withAddedCard(Card.of(Color.HEART, Rank.SIX))
+                .withAddedCard(Card.of(Color.SPADE, Rank.NINE))
+                .withAddedCard(Card.of(Color.SPADE, Rank.SIX));
+        CardTracker tracker = trackerAfter(trick);
+        CardSet possible = tracker.possibleCards(PlayerId.PLAYER_3);
+        assertFalse(possible.isEmpty());
+        assertEquals(possible, possible.subsetOfColor(Color.SPADE));
+        assertFalse(possible.contains(Card.of(Color.SPADE, Rank.JACK)));
+    }
+
+    @Test
+    void announcedCardsAreKnown() {
+        CardTracker tracker = new CardTracker(PlayerId.PLAYER_4);
+        tracker.setTrump(Color.SPADE);
+        CardSet announce = CardSet.EMPTY
+                .add(Card.of(Color.CLUB, Rank.SIX))
+                .add(Card.of(Color.CLUB, Rank.SEVEN))
+                .add(Card.of(Color.CLUB, Rank.EIGHT));
+        Map<PlayerId, CardSet> announces = new EnumMap<>(PlayerId.class);
+        for (PlayerId p : PlayerId.ALL) {
+            announces.put(p, p == PlayerId.PLAYER_2 ? announce : CardSet.EMPTY);
+        }
+        tracker.setAnnounce(announces);
+        assertEquals(announce, tracker.knownCards(PlayerId.PLAYER_2));
+        assertEquals(announce, tracker.possibleCards(PlayerId.PLAYER_2).intersection(announce));
+        assertTrue(tracker.possibleCards(PlayerId.PLAYER_1).intersection(announce).isEmpty());
+        assertTrue(tracker.possibleCards(PlayerId.PLAYER_3).intersection(announce).isEmpty());
+
+        Trick trick = Trick.firstEmpty(Color.SPADE, PlayerId.PLAYER_2).withAddedCard(Card.of(Color.CLUB, Rank.SIX));
+        tracker.updateTrick(trick);
+        assertEquals(announce.remove(Card.of(Color.CLUB, Rank.SIX)), tracker.knownCards(PlayerId.PLAYER_2));
+    }
+
+    @Test
+    void setTrumpForgetsEverything() {
+        Trick trick = Trick.firstEmpty(Color.SPADE, PlayerId.PLAYER_1)
+                .withAddedCard(Card.of(Color.HEART, Rank.SIX))
+                .withAddedCard(Card.of(Color.DIAMOND, Rank.SIX));
+        CardTracker tracker = trackerAfter(trick);
+        tracker.setTrump(Color.CLUB);
+        for (PlayerId p : PlayerId.ALL) {
+            if (p != PlayerId.PLAYER_4) {
+                assertEquals(CardSet.ALL_CARDS, tracker.possibleCards(p));
+            }
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package ch.epfl.javass.jass;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static ch.epfl.test.TestRandomizer.newRandom;
+import static org.junit.jupiter.api.Assertions.*;
+
+class EndgameSolverTest {
+    private static long[] randomDeal(SplittableRandom rng) {
+        long[] hands = new long[PlayerId.COUNT];
+        long remaining = PackedCardSet.ALL_CARDS;
+        for (int p = 0; p < PlayerId.COUNT; ++p) {
+            for (int c = 0; c < Jass.HAND_SIZE; ++c) {
+                int pkCard = PackedCardSet.get(remaining, rng.nextInt(PackedCardSet.size(remaining)));
+                remaining = PackedCardSet.remove(remaining, pkCard);
+                hands[p] = PackedCardSet.add(hands[p], pkCard);
+            }
+        }
+        return hands;
+    }
+
+    private static long playable(TurnState state, long[] hands) {
+        long hand = PackedCardSet.intersection(hands[state.nextPlayer().ordinal()], state.packedUnplayedCards());
+        return PackedTrick.playableCards(state.packedTrick(), hand);
+    }
+
+    // Plain minimax, without any pruning
+    private static int bruteForce(TurnState state, long[] hands, TeamId team) {
+        if (state.isTerminal()) {
+            return state.score().turnPoints(team);
+        }
+        boolean maximizing = state.nextPlayer().team() == team;
+        int best = maximizing ? Integer.MIN_VALUE : Integer.MAX_VALUE;
+        long cards = playable(state, hands);
+        for (int i = 0; i < PackedCardSet.size(cards); ++i) {
+            Card card = Card.ofPacked(PackedCardSet.get(cards, i));
+            int value = bruteForce(state.withNewCardPlayedAndTrickCollected(card), hands, team);
+            best = maximizing ? Math.max(best, value) : Math.min(best, value);
+        }
+        return best;
+    }
+
+    @Test
+    void solverMatchesBruteForce() {
+        SplittableRandom rng = newRandom();
+        EndgameSolver solver = new EndgameSolver();
+        int[] values = new int[Jass.HAND_SIZE];
+        for (int i = 0; i < 200; ++i) {
+            long[] hands = randomDeal(rng);
+            Card.Color trump = Card.Color.ALL.get(rng.nextInt(Card.Color.COUNT));
+            TurnState state = TurnState.initial(trump, Score.INITIAL, PlayerId.ALL.get(rng.nextInt(PlayerId.COUNT)));
+            // Leave between 1 and 4 tricks, possibly in the middle of one
+            int toPlay = rng.nextInt(20, 36);
+            for (int c = 0; c < toPlay; ++c) {
+                long cards = playable(state, hands);
+                state = state.withNewCardPlayedAndTrickCollected(Card.ofPacked(PackedCardSet.get(cards, rng.nextInt(PackedCardSet.size(cards)))));
+            }
+            TeamId team = TeamId.ALL.get(rng.nextInt(TeamId.COUNT));
+            long cards = playable(state, hands);
+            solver.solve(state.packedScore(), state.packedUnplayedCards(), state.packedTrick(), hands, team, cards, values);
+            int current = state.score().turnPoints(team);
+            for (int c = 0; c < PackedCardSet.size(cards); ++c) {
+                TurnState next = state.withNewCardPlayedAndTrickCollected(Card.ofPacked(PackedCardSet.get(cards, c)));
+                assertEquals(bruteForce(next, hands, team) - current, values[c]);
+            }
+        }
+    }
+
+    @Test
+    void solverCountsTheMatchBonus() {
+        // Player 1 holds every trump, and leads
+        SplittableRandom rng = newRandom();
+        long[] hands = new long[PlayerId.COUNT];
+        long spades = PackedCardSet.subsetOfColor(PackedCardSet.ALL_CARDS, Card.Color.SPADE);
+        long rest = PackedCardSet.difference(PackedCardSet.ALL_CARDS, spades);
+        hands[0] = spades;
+        for (int p = 1; p < PlayerId.COUNT; ++p) {
+            for (int c = 0; c < Jass.HAND_SIZE; ++c) {
+                int pkCard = PackedCardSet.get(rest, rng.nextInt(PackedCardSet.size(rest)));
+                rest = PackedCardSet.remove(rest, pkCard);
+                hands[p] = PackedCardSet.add(hands[p], pkCard);
+            }
+        }
+        TurnState state = TurnState.initial(Card.Color.SPADE, Score.INITIAL, PlayerId.PLAYER_1);
+        // Player 1 leads a trump every time, so team 1 wins every trick
+        while (state.trick().index() < Jass.TRICKS_PER_TURN - 1) {
+            long cards = playable(state, hands);
+            state = state.withNewCardPlayedAndTrickCollected(Card.ofPacked(PackedCardSet.get(cards, 0)));
+        }
+        EndgameSolver solver = new EndgameSolver();
+        int[] values = new int[1];
+        long cards = playable(state, hands);
+        solver.solve(state.packedScore(), state.packedUnplayedCards(), state.packedTrick(), hands, TeamId.TEAM_1, cards, values);
+        int current = state.score().turnPoints(TeamId.TEAM_1);
+        TurnState last = state.withNewCardPlayedAndTrickCollected(Card.ofPacked(PackedCardSet.get(cards, 0)));
+        assertEquals(bruteForce(last, hands, TeamId.TEAM_1) - current, values[0]);
+        assertTrue(values[0] >= Jass.MATCH_ADDITIONAL_POINTS);
+    }
+}
@@ -0,0 +1,177 @@
+package ch.epfl.javass.jass;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GameLogTest {
+    private static final int GAMES = 5;
+
+    // Plays at random, announces whenever it can, and delegates the trump half of the time
+    private static final class AnnouncingPlayer implements Player {
+        private final SplittableRandom rng;
+
+        AnnouncingPlayer(long rngSeed) {
+            this.rng = new SplittableRandom(rngSeed);
+        }
+
+        @Override
+        public Card cardToPlay(TurnState state, CardSet hand) {
+            CardSet playable = state.trick().playableCards(hand);
+            return playable.get(this.rng.nextInt(playable.size()));
+        }
+
+        @Override
+        public Card.Color chooseTrump(CardSet hand, boolean canDelegate) {
+            if (canDelegate && this.rng.nextBoolean()) {
+                return null;
+            }
+            return Card.Color.ALL.get(this.rng.nextInt(Card.Color.COUNT));
+        }
+
+        @Override
+        public CardSet announce(CardSet hand) {
+            return AnnounceValue.bestAnnounce(hand);
+        }
+    }
+
+    private static final class PlayedGame {
+        final JassGame game;
+        // The state at the end of every trick
+        final List<TurnState> states = new ArrayList<>();
+
+        PlayedGame(long seed, GameLog.Writer writer) {
+            Map<PlayerId, Player> players = new EnumMap<>(PlayerId.class);
+            Map<PlayerId, String> names = new EnumMap<>(PlayerId.class);
+            for (PlayerId id : PlayerId.ALL) {
+                players.put(id, new AnnouncingPlayer(seed + id.ordinal()));
+                names.put(id, "Joueur é" + id.ordinal());
+            }
+            this.game = new JassGame(seed, players, names, writer);
+            while (!this.game.isGameOver()) {
+                this.game.advanceToEndOfNextTrick();
+                if (!this.game.isGameOver()) {
+                    this.states.add(this.game.turnState());
+                }
+            }
+        }
+    }
+
+    private static byte[] record(List<PlayedGame> played) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GameLog.Writer writer = new GameLog.Writer(Channels.newChannel(bytes))) {
+            for (int g = 0; g < GAMES; ++g) {
+                played.add(new PlayedGame(1000 + g, writer));
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private static List<GameLog> readAll(byte[] bytes) throws IOException {
+        GameLog.Reader reader = new GameLog.Reader(Channels.newChannel(new ByteArrayInputStream(bytes)));
+        List<GameLog> logs = new ArrayList<>();
+        for (GameLog log = reader.next(); log != null; log = reader.next()) {
+            logs.add(log);
+        }
+        return logs;
+    }
+
+    private static void assertSameState(TurnState expected, TurnState actual) {
+        assertEquals(expected.packedScore(), actual.packedScore());
+        assertEquals(expected.packedUnplayedCards(), actual.packedUnplayedCards());
+        assertEquals(expected.packedTrick(), actual.packedTrick());
+    }
+
+    @Test
+    void recordedGamesAreReadBack() throws IOException {
+        List<PlayedGame> played = new ArrayList<>();
+        byte[] bytes = record(played);
+        List<GameLog> logs = readAll(bytes);
+        assertEquals(GAMES, logs.size());
+        // Around 40 bytes per turn, with a few turns per game
+        assertTrue(bytes.length < GAMES * 600);
+        boolean delegated = false;
+        boolean announced = false;
+        for (int g = 0; g < GAMES; ++g) {
+            GameLog log = logs.get(g);
+            assertEquals(1000 + g, log.rngSeed());
+            assertEquals("Joueur é2", log.names().get(PlayerId.PLAYER_3));
+            assertTrue(log.isComplete());
+            assertEquals(played.get(g).states.size(), log.trickCount());
+            for (int t = 0; t < log.turnCount(); ++t) {
+                delegated |= log.isTrumpDelegated(t);
+                for (PlayerId id : PlayerId.ALL) {
+                    announced |= !log.announce(t, id).isEmpty();
+                }
+            }
+        }
+        assertTrue(delegated);
+        assertTrue(announced);
+    }
+
+    @Test
+    void replayedGamesAreIdentical() throws IOException {
+        List<PlayedGame> played = new ArrayList<>();
+        List<GameLog> logs = readAll(record(played));
+        for (int g = 0; g < GAMES; ++g) {
+            GameLog log = logs.get(g);
+            List<TurnState> states = played.get(g).states;
+            JassGame replayed = log.replay();
+            for (TurnState state : states) {
+                replayed.advanceToEndOfNextTrick();
+                assertSameState(state, replayed.turnState());
+            }
+            // The last trick is collected, which ends the game
+            replayed.advanceToEndOfNextTrick();
+            assertTrue(replayed.isGameOver());
+            assertEquals(played.get(g).game.winningTeam(), replayed.winningTeam());
+            assertEquals(played.get(g).game.score(), replayed.score());
+
+            for (int trick : new int[]{1, 9, 10, states.size()}) {
+                assertSameState(states.get(trick - 1), log.turnState(trick));
+            }
+            assertNull(log.fastForward(0).turnState());
+        }
+    }
+
+    @Test
+    void truncatedLogsAreReadUpToTheirLastTrick() throws IOException {
+        List<PlayedGame> played = new ArrayList<>();
+        byte[] bytes = record(played);
+        List<GameLog> complete = readAll(bytes);
+        // The header of the log and of the first game take 58 bytes
+        assertThrows(IllegalArgumentException.class, () -> readAll(Arrays.copyOf(bytes, 57)));
+        for (int cut : new int[]{58, 60, 61, 62, 150}) {
+            List<GameLog> logs = readAll(Arrays.copyOf(bytes, cut));
+            assertEquals(1, logs.size());
+            GameLog log = logs.get(0);
+            assertFalse(log.isComplete());
+            assertTrue(log.trickCount() < complete.get(0).trickCount());
+            for (int i = 0; i < log.trickCount() * PlayerId.COUNT; ++i) {
+                assertEquals(complete.get(0).card(i), log.card(i));
+            }
+            if (log.trickCount() > 0) {
+                assertSameState(played.get(0).states.get(log.trickCount() - 1), log.turnState(log.trickCount()));
+            }
+            assertThrows(IllegalArgumentException.class, () -> log.fastForward(log.trickCount() + 1));
+        }
+    }
+
+    @Test
+    void invalidLogsFail() {
+        byte[] notALog = {1, 2, 3, 4, 5};
+        assertThrows(IllegalArgumentException.class, () -> readAll(notALog));
+        assertThrows(IllegalArgumentException.class, () -> readAll(new byte[0]));
+    }
+}
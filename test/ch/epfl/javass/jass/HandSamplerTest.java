@@ -0,0 +1,115 @@
+package ch.epfl.javass.jass;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import static ch.epfl.test.TestRandomizer.RANDOM_ITERATIONS;
+import static ch.epfl.test.TestRandomizer.newRandom;
+import static org.junit.jupiter.api.Assertions.*;
+
+class HandSamplerTest {
+    private static long[] allPossible() {
+        long[] possible = new long[PlayerId.COUNT];
+        Arrays.fill(possible, PackedCardSet.ALL_CARDS);
+        return possible;
+    }
+
+    private static long[] noneKnown() {
+        return new long[PlayerId.COUNT];
+    }
+
+    @Test
+    void dealsAreDisjointAndHaveTheRightSizes() {
+        SplittableRandom rng = newRandom();
+        HandSampler sampler = new HandSampler();
+        long[] hands = new long[PlayerId.COUNT];
+        for (int i = 0; i < RANDOM_ITERATIONS; ++i) {
+            TurnState state = TurnState.initial(Card.Color.SPADE, Score.INITIAL, PlayerId.PLAYER_1);
+            long ownHand = 0x0000_0000_0000_01FFL;
+            // Play a few cards from the other hands
+            int played = rng.nextInt(4);
+            for (int c = 0; c < played; ++c) {
+                long others = PackedCardSet.difference(state.packedUnplayedCards(), ownHand);
+                long playable = PackedTrick.playableCards(state.packedTrick(), others);
+                int pkCard = PackedCardSet.get(playable, rng.nextInt(PackedCardSet.size(playable)));
+                state = state.withNewCardPlayedAndTrickCollected(Card.ofPacked(pkCard));
+            }
+            sampler.reset(PlayerId.PLAYER_4, ownHand, state.packedUnplayedCards(), state.packedTrick(), allPossible(), noneKnown());
+            sampler.deal(rng, hands);
+
+            assertEquals(ownHand, hands[PlayerId.PLAYER_4.ordinal()]);
+            long union = PackedCardSet.EMPTY;
+            for (PlayerId p : PlayerId.ALL) {
+                long hand = hands[p.ordinal()];
+                assertEquals(PackedCardSet.EMPTY, PackedCardSet.intersection(union, hand));
+                union = PackedCardSet.union(union, hand);
+                int expectedSize = p.ordinal() < played ? Jass.HAND_SIZE - 1 : Jass.HAND_SIZE;
+                assertEquals(expectedSize, PackedCardSet.size(hand));
+            }
+            assertEquals(state.packedUnplayedCards(), union);
+        }
+    }
+
+    @Test
+    void dealsRespectKnownVoids() {
+        SplittableRandom rng = newRandom();
+        HandSampler sampler = new HandSampler();
+        long[] hands = new long[PlayerId.COUNT];
+        long ownHand = 0x0000_0000_0000_01FFL;
+        long[] possible = allPossible();
+        // Player 1 has no hearts, player 2 has no diamonds
+        possible[0] = PackedCardSet.difference(possible[0], PackedCardSet.subsetOfColor(PackedCardSet.ALL_CARDS, Card.Color.HEART));
+        possible[1] = PackedCardSet.difference(possible[1], PackedCardSet.subsetOfColor(PackedCardSet.ALL_CARDS, Card.Color.DIAMOND));
+        int pkTrick = PackedTrick.firstEmpty(Card.Color.CLUB, PlayerId.PLAYER_1);
+        sampler.reset(PlayerId.PLAYER_4, ownHand, PackedCardSet.ALL_CARDS, pkTrick, possible, noneKnown());
+        for (int i = 0; i < RANDOM_ITERATIONS; ++i) {
+            sampler.deal(rng, hands);
+            assertTrue(PackedCardSet.isEmpty(PackedCardSet.difference(hands[0], possible[0])));
+            assertTrue(PackedCardSet.isEmpty(PackedCardSet.difference(hands[1], possible[1])));
+            for (PlayerId p : PlayerId.ALL) {
+                assertEquals(Jass.HAND_SIZE, PackedCardSet.size(hands[p.ordinal()]));
+            }
+        }
+    }
+
+    @Test
+    void dealsGiveKnownCardsToTheirHolder() {
+        SplittableRandom rng = newRandom();
+        HandSampler sampler = new HandSampler();
+        long[] hands = new long[PlayerId.COUNT];
+        long ownHand = 0x0000_0000_0000_01FFL;
+        long[] known = noneKnown();
+        known[2] = PackedCardSet.union(
+                PackedCardSet.singleton(PackedCard.pack(Card.Color.CLUB, Card.Rank.KING)),
+                PackedCardSet.singleton(PackedCard.pack(Card.Color.CLUB, Card.Rank.ACE)));
+        int pkTrick = PackedTrick.firstEmpty(Card.Color.CLUB, PlayerId.PLAYER_1);
+        sampler.reset(PlayerId.PLAYER_4, ownHand, PackedCardSet.ALL_CARDS, pkTrick, allPossible(), known);
+        for (int i = 0; i < RANDOM_ITERATIONS; ++i) {
+            sampler.deal(rng, hands);
+            assertEquals(known[2], PackedCardSet.intersection(hands[2], known[2]));
+        }
+    }
+
+    @Test
+    void inconsistentKnowledgeStillDealsEveryCard() {
+        SplittableRandom rng = newRandom();
+        HandSampler sampler = new HandSampler();
+        long[] hands = new long[PlayerId.COUNT];
+        long ownHand = 0x0000_0000_0000_01FFL;
+        long[] possible = allPossible();
+        long hearts = PackedCardSet.subsetOfColor(PackedCardSet.ALL_CARDS, Card.Color.HEART);
+        for (int p = 0; p < 3; ++p) {
+            possible[p] = PackedCardSet.difference(possible[p], hearts);
+        }
+        int pkTrick = PackedTrick.firstEmpty(Card.Color.CLUB, PlayerId.PLAYER_1);
+        sampler.reset(PlayerId.PLAYER_4, ownHand, PackedCardSet.ALL_CARDS, pkTrick, possible, noneKnown());
+        sampler.deal(rng, hands);
+        long union = PackedCardSet.EMPTY;
+        for (long hand : hands) {
+            union = PackedCardSet.union(union, hand);
+        }
+        assertEquals(PackedCardSet.ALL_CARDS, union);
+    }
+}
@@ -0,0 +1,88 @@
+package ch.epfl.javass.jass;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LadderTest {
+    private static Ladder.Builder randomPlayers(long seed, int count) {
+        Ladder.Builder builder = new Ladder.Builder(seed);
+        for (int i = 0; i < count; ++i) {
+            builder.player("r" + i, (ownId, rngSeed) -> new RandomPlayer(rngSeed));
+        }
+        return builder;
+    }
+
+    @Test
+    void builderFailsWithInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> randomPlayers(0, 2).rounds(0));
+        assertThrows(IllegalArgumentException.class, () -> randomPlayers(0, 2).dealsPerMatch(0));
+        assertThrows(IllegalArgumentException.class, () -> randomPlayers(0, 2).threads(0));
+        assertThrows(IllegalArgumentException.class, () -> randomPlayers(0, 1).build());
+        assertThrows(IllegalArgumentException.class, () -> randomPlayers(0, 2)
+                .player("r0", (id, seed) -> new RandomPlayer(seed)));
+    }
+
+    @Test
+    void expectedScoreIsSymmetric() {
+        assertEquals(0.5, Ladder.expectedScore(1500, 1500, 350), 1e-9);
+        double better = Ladder.expectedScore(1700, 1500, 50);
+        assertTrue(better > 0.7);
+        assertEquals(1, better + Ladder.expectedScore(1500, 1700, 50), 1e-9);
+        // An uncertain opponent brings the expected score closer to 0.5
+        assertTrue(Ladder.expectedScore(1700, 1500, 350) < better);
+    }
+
+    @Test
+    void pairingsAlternateBetweenRounds() {
+        Ladder ladder = randomPlayers(0, 5).build();
+        List<int[]> even = ladder.pairings(0);
+        List<int[]> odd = ladder.pairings(1);
+        assertEquals(2, even.size());
+        assertArrayEquals(new int[]{0, 1}, even.get(0));
+        assertArrayEquals(new int[]{2, 3}, even.get(1));
+        assertEquals(2, odd.size());
+        assertArrayEquals(new int[]{1, 2}, odd.get(0));
+        assertArrayEquals(new int[]{3, 4}, odd.get(1));
+    }
+
+    @Test
+    void everyRoundUpdatesTheRatings() {
+        List<List<Ladder.Rating>> rounds = new ArrayList<>();
+        List<Ladder.Rating> standings = randomPlayers(2019, 4).rounds(3).dealsPerMatch(2).build().run(rounds::add);
+        assertEquals(3, rounds.size());
+        assertEquals(4, standings.size());
+        for (int i = 0; i < standings.size(); ++i) {
+            Ladder.Rating rating = standings.get(i);
+            // Everyone plays every round, on 2 deals
+            assertEquals(6, rating.deals());
+            assertTrue(rating.deviation() < 350);
+            assertTrue(rating.low() < rating.rating() && rating.rating() < rating.high());
+            assertTrue(0 <= rating.averageScore() && rating.averageScore() <= 1);
+            if (i > 0) {
+                assertTrue(standings.get(i - 1).rating() >= rating.rating());
+            }
+        }
+        // Each deal is worth 1 point in total, so the first round, played by players
+        // with the same deviation, doesn't change the total of the ratings
+        double total = 0;
+        for (Ladder.Rating rating : rounds.get(0)) {
+            total += rating.rating();
+        }
+        assertEquals(4 * 1500, total, 1e-6);
+    }
+
+    @Test
+    void resultsDoNotDependOnTheNumberOfThreads() {
+        List<Ladder.Rating> oneThread = randomPlayers(42, 3).rounds(2).dealsPerMatch(2).threads(1).build().run(r -> { });
+        List<Ladder.Rating> threeThreads = randomPlayers(42, 3).rounds(2).dealsPerMatch(2).threads(3).build().run(r -> { });
+        for (int i = 0; i < oneThread.size(); ++i) {
+            assertEquals(oneThread.get(i).name(), threeThreads.get(i).name());
+            assertEquals(oneThread.get(i).rating(), threeThreads.get(i).rating());
+            assertEquals(oneThread.get(i).deviation(), threeThreads.get(i).deviation());
+        }
+    }
+}
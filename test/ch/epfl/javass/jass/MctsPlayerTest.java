@@ -3,8 +3,14 @@ package ch.epfl.javass.jass;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.lang.management.ManagementFactory;
 import java.time.Duration;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.SplittableRandom;
 
 import org.junit.jupiter.api.Test;
 
@@ -26,6 +32,691 @@ public class MctsPlayerTest {
         }
     }
 
+    @Test
+    void constructorFailsWithTooFewThreads() {
+        for (int i = -10; i < 1; ++i) {
+            int threads = i;
+            assertThrows(IllegalArgumentException.class, () -> {
+                new MctsPlayer(PlayerId.PLAYER_1, 0, ITERATIONS, threads);
+            });
+        }
+    }
+
+    @Test
+    void rootParallelPlayerIsDeterministic() {
+        TurnState state = TurnState.initial(Color.SPADE, Score.INITIAL, PlayerId.PLAYER_1)
+                .withNewCardPlayed(Card.of(Color.HEART, Rank.SIX));
+        CardSet hand = CardSet.EMPTY
+                .add(Card.of(Color.SPADE, Rank.EIGHT))
+                .add(Card.of(Color.SPADE, Rank.NINE))
+                .add(Card.of(Color.HEART, Rank.TEN))
+                .add(Card.of(Color.HEART, Rank.SEVEN))
+                .add(Card.of(Color.HEART, Rank.KING))
+                .add(Card.of(Color.CLUB, Rank.EIGHT))
+                .add(Card.of(Color.CLUB, Rank.NINE))
+                .add(Card.of(Color.DIAMOND, Rank.TEN))
+                .add(Card.of(Color.DIAMOND, Rank.JACK));
+        assertTimeoutPreemptively(TIMEOUT, () -> {
+            for (long seed = 0; seed < 5; ++seed) {
+                MctsPlayer p1 = new MctsPlayer(PlayerId.PLAYER_2, seed, ITERATIONS, 4);
+                MctsPlayer p2 = new MctsPlayer(PlayerId.PLAYER_2, seed, ITERATIONS, 4);
+                assertEquals(p1.cardToPlay(state, hand), p2.cardToPlay(state, hand));
+            }
+        });
+    }
+
+    @Test
+    void rootParallelPlayerPlaysCorrectly() {
+        // Lots of points in this trick, over-cut to get them
+        MctsPlayer p = new MctsPlayer(PlayerId.PLAYER_4, SEED, ITERATIONS, 4);
+        TurnState state = TurnState.initial(Color.CLUB, Score.INITIAL, PlayerId.PLAYER_1)
+                .withNewCardPlayed(Card.of(Color.SPADE, Rank.TEN))
+                .withNewCardPlayed(Card.of(Color.HEART, Rank.TEN))
+                .withNewCardPlayed(Card.of(Color.CLUB, Rank.NINE));
+        CardSet hand = CardSet.EMPTY
+                .add(Card.of(Color.SPADE, Rank.EIGHT))
+                .add(Card.of(Color.SPADE, Rank.NINE))
+                .add(Card.of(Color.SPADE, Rank.JACK))
+                .add(Card.of(Color.CLUB, Rank.JACK))
+                .add(Card.of(Color.HEART, Rank.SEVEN))
+                .add(Card.of(Color.HEART, Rank.EIGHT))
+                .add(Card.of(Color.HEART, Rank.NINE))
+                .add(Card.of(Color.HEART, Rank.JACK))
+                .add(Card.of(Color.HEART, Rank.QUEEN));
+        assertTimeoutPreemptively(TIMEOUT, () -> {
+            Card c = p.cardToPlay(state, hand);
+            assertEquals(Card.of(Color.CLUB, Rank.JACK), c);
+        });
+    }
+
+    @Test
+    void treeParallelPlayerPlaysCorrectly() {
+        // Our team will win this trick, play the 10 to maximize points
+        MctsPlayer p = new MctsPlayer.Builder(PlayerId.PLAYER_4, SEED)
+                .iterations(ITERATIONS)
+                .threads(4)
+                .parallelism(MctsPlayer.Parallelism.TREE)
+                .build();
+        TurnState state = TurnState.initial(Color.CLUB, Score.INITIAL, PlayerId.PLAYER_1)
+                .withNewCardPlayed(Card.of(Color.SPADE, Rank.JACK))
+                .withNewCardPlayed(Card.of(Color.SPADE, Rank.QUEEN))
+                .withNewCardPlayed(Card.of(Color.SPADE, Rank.SIX));
+        CardSet hand = CardSet.EMPTY
+                .add(Card.of(Color.SPADE, Rank.EIGHT))
+                .add(Card.of(Color.SPADE, Rank.NINE))
+                .add(Card.of(Color.SPADE, Rank.TEN))
+                .add(Card.of(Color.CLUB, Rank.SIX))
+                .add(Card.of(Color.HEART, Rank.SEVEN))
+                .add(Card.of(Color.HEART, Rank.EIGHT))
+                .add(Card.of(Color.HEART, Rank.NINE))
+                .add(Card.of(Color.HEART, Rank.TEN))
+                .add(Card.of(Color.HEART, Rank.JACK));
+        assertTimeoutPreemptively(TIMEOUT, () -> {
+            Card c = p.cardToPlay(state, hand);
+            assertEquals(Card.of(Color.SPADE, Rank.TEN), c);
+        });
+    }
+
+    @Test
+    void timeBudgetFailsWhenNotPositive() {
+        for (int i = -10; i <= 0; ++i) {
+            int millis = i;
+            assertThrows(IllegalArgumentException.class, () -> {
+                new MctsPlayer.Builder(PlayerId.PLAYER_1, 0).timeBudget(millis);
+            });
+        }
+    }
+
+    @Test
+    void timedPlayerRespectsItsBudget() {
+        MctsPlayer p = new MctsPlayer.Builder(PlayerId.PLAYER_1, SEED)
+                .timeBudget(200)
+                .build();
+        TurnState state = TurnState.initial(Color.SPADE, Score.INITIAL, PlayerId.PLAYER_1);
+        CardSet hand = CardSet.EMPTY
+                .add(Card.of(Color.SPADE, Rank.SEVEN))
+                .add(Card.of(Color.SPADE, Rank.EIGHT))
+                .add(Card.of(Color.SPADE, Rank.TEN))
+                .add(Card.of(Color.SPADE, Rank.JACK))
+                .add(Card.of(Color.SPADE, Rank.KING))
+                .add(Card.of(Color.SPADE, Rank.ACE))
+                .add(Card.of(Color.HEART, Rank.NINE))
+                .add(Card.of(Color.HEART, Rank.JACK))
+                .add(Card.of(Color.HEART, Rank.QUEEN));
+        assertTimeoutPreemptively(Duration.ofSeconds(2), () -> {
+            Card c = p.cardToPlay(state, hand);
+            assertEquals(Card.of(Color.SPADE, Rank.JACK), c);
+        });
+        MctsPlayer.SearchStatistics stats = p.lastSearchStatistics();
+        assertTrue(stats.iterations() >= hand.size());
+        assertTrue(stats.elapsedNanos() >= 200_000_000L);
+    }
+
+    // Let a player choose a card in the last position of a trick, then tell it about that trick
+    // and the first two cards of the next one, so that it plays from a node of its previous tree
+    private static void assertTreeIsReused(MctsPlayer p) {
+        TurnState state = TurnState.initial(Color.CLUB, Score.INITIAL, PlayerId.PLAYER_1)
+                .withNewCardPlayed(Card.of(Color.SPADE, Rank.JACK))
+                .withNewCardPlayed(Card.of(Color.SPADE, Rank.QUEEN))
+                .withNewCardPlayed(Card.of(Color.SPADE, Rank.SIX));
+        CardSet hand = CardSet.EMPTY
+                .add(Card.of(Color.SPADE, Rank.EIGHT))
+                .add(Card.of(Color.SPADE, Rank.NINE))
+                .add(Card.of(Color.SPADE, Rank.TEN))
+                .add(Card.of(Color.CLUB, Rank.SIX))
+                .add(Card.of(Color.HEART, Rank.SEVEN))
+                .add(Card.of(Color.HEART, Rank.EIGHT))
+                .add(Card.of(Color.HEART, Rank.NINE))
+                .add(Card.of(Color.HEART, Rank.TEN))
+                .add(Card.of(Color.HEART, Rank.JACK));
+        Card played = p.cardToPlay(state, hand);
+        assertTrue(p.retainedTurns() > 0);
+        p.updateTrick(state.withNewCardPlayed(played).trick());
+        state = state.withNewCardPlayedAndTrickCollected(played);
+        hand = hand.remove(played);
+        for (Card card : new Card[]{Card.of(Color.DIAMOND, Rank.ACE), Card.of(Color.DIAMOND, Rank.SEVEN)}) {
+            p.updateTrick(state.trick());
+            state = state.withNewCardPlayed(card);
+        }
+        p.updateTrick(state.trick());
+        assertEquals(PlayerId.PLAYER_4, state.nextPlayer());
+        int previousTurns = p.retainedTurns();
+        assertTrue(previousTurns > 0);
+        p.cardToPlay(state, hand);
+        // The search continued from the node it was given
+        assertEquals(previousTurns + p.lastSearchStatistics().iterations(), p.retainedTurns());
+    }
+
+    @Test
+    void playerReusesItsTree() {
+        assertTimeoutPreemptively(TIMEOUT, () -> {
+            assertTreeIsReused(new MctsPlayer.Builder(PlayerId.PLAYER_4, SEED).iterations(ITERATIONS).build());
+        });
+    }
+
+    @Test
+    void timedPlayerReusesItsTree() {
+        assertTimeoutPreemptively(TIMEOUT, () -> {
+            // The search fills the whole tree, which is still worth reusing
+            assertTreeIsReused(new MctsPlayer.Builder(PlayerId.PLAYER_4, SEED).timeBudget(300).treeCapacity(20_000).build());
+        });
+    }
+
+    @Test
+    void ponderingPlayerGrowsItsTreeInTheBackground() {
+        MctsPlayer p = new MctsPlayer.Builder(PlayerId.PLAYER_4, SEED).iterations(1_000).ponder(5_000).build();
+        TurnState state = TurnState.initial(Color.CLUB, Score.INITIAL, PlayerId.PLAYER_1)
+                .withNewCardPlayed(Card.of(Color.SPADE, Rank.JACK))
+                .withNewCardPlayed(Card.of(Color.SPADE, Rank.QUEEN))
+                .withNewCardPlayed(Card.of(Color.SPADE, Rank.SIX));
+        CardSet hand = CardSet.EMPTY
+                .add(Card.of(Color.SPADE, Rank.EIGHT))
+                .add(Card.of(Color.SPADE, Rank.NINE))
+                .add(Card.of(Color.SPADE, Rank.TEN))
+                .add(Card.of(Color.CLUB, Rank.SIX))
+                .add(Card.of(Color.HEART, Rank.SEVEN))
+                .add(Card.of(Color.HEART, Rank.EIGHT))
+                .add(Card.of(Color.HEART, Rank.NINE))
+                .add(Card.of(Color.HEART, Rank.TEN))
+                .add(Card.of(Color.HEART, Rank.JACK));
+        assertTimeoutPreemptively(TIMEOUT, () -> {
+            Card played = p.cardToPlay(state, hand);
+            p.updateTrick(state.withNewCardPlayed(played).trick());
+            // The search of the decision went through the new root less than 1000 times
+            for (int i = 0; i < 1_000 && p.isPondering(); ++i) {
+                Thread.sleep(10);
+            }
+            p.cancelPondering();
+            assertTrue(p.retainedTurns() >= 5_000);
+        });
+        p.close();
+    }
+
+    @Test
+    void treeCapacityFailsWhenTooSmall() {
+        for (int i = -10; i <= Jass.HAND_SIZE; ++i) {
+            int nodes = i;
+            assertThrows(IllegalArgumentException.class, () -> {
+                new MctsPlayer.Builder(PlayerId.PLAYER_1, 0).treeCapacity(nodes);
+            });
+        }
+    }
+
+    @Test
+    void treeOnlyAllocatesTheRoomItUses() {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long id = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(id);
+        SearchTree tree = new SearchTree(1 << 23);
+        long allocated = threads.getThreadAllocatedBytes(id) - before;
+        // The full tree would take about 400 MB
+        assertTrue(allocated < 1 << 20, "allocated " + allocated + " bytes");
+        assertEquals(1 << 23, tree.capacity());
+    }
+
+    @Test
+    void fullTreeDoesNotGrowWhenReservingFails() {
+        SearchTree tree = new SearchTree(40);
+        long[] hands = new long[PlayerId.COUNT];
+        Arrays.fill(hands, PackedCardSet.ALL_CARDS);
+        tree.configure(PlayerId.PLAYER_1, hands, false);
+        int trick = PackedTrick.firstEmpty(Color.SPADE, PlayerId.PLAYER_1);
+        int root = tree.newRoot(PackedScore.INITIAL, PackedCardSet.ALL_CARDS, trick, PackedCardSet.ALL_CARDS);
+        // The root and its 36 children fit, but not the 35 children of one of them
+        int child = tree.descend(root, PackedCardSet.get(PackedCardSet.ALL_CARDS, 0));
+        assertTrue(child != SearchTree.NONE);
+        assertEquals(37, tree.size());
+        assertEquals(SearchTree.NONE, tree.descend(child, PackedCardSet.get(PackedCardSet.ALL_CARDS, 1)));
+        assertEquals(37, tree.size());
+    }
+
+    @Test
+    void playersWithFullTreesCanPlayAWholeGame() {
+        assertTimeoutPreemptively(TIMEOUT, () -> {
+            Map<PlayerId, Player> players = new EnumMap<>(PlayerId.class);
+            Map<PlayerId, String> names = new EnumMap<>(PlayerId.class);
+            for (PlayerId id : PlayerId.ALL) {
+                players.put(id, new MctsPlayer.Builder(id, SEED).iterations(1_000).treeCapacity(50).ponder(500).build());
+                names.put(id, id.name());
+            }
+            JassGame game = new JassGame(SEED, players, names);
+            while (!game.isGameOver()) {
+                game.advanceToEndOfNextTrick();
+            }
+        });
+    }
+
+    @Test
+    void timedPlayersWithFullTreesCanPlayAWholeGame() {
+        assertTimeoutPreemptively(TIMEOUT, () -> {
+            Map<PlayerId, Player> players = new EnumMap<>(PlayerId.class);
+            Map<PlayerId, String> names = new EnumMap<>(PlayerId.class);
+            for (PlayerId id : PlayerId.ALL) {
+                // The trees fill up during the first trick of each turn
+                players.put(id, new MctsPlayer.Builder(id, SEED).timeBudget(5).treeCapacity(2_000).build());
+                names.put(id, id.name());
+            }
+            JassGame game = new JassGame(SEED, players, names);
+            while (!game.isGameOver()) {
+                game.advanceToEndOfNextTrick();
+            }
+        });
+    }
+
+    @Test
+    void searchDoesNotAllocatePerIteration() {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        MctsPlayer p = new MctsPlayer.Builder(PlayerId.PLAYER_4, SEED)
+                .iterations(ITERATIONS)
+                .reuseTree(false)
+                .build();
+        TurnState state = TurnState.initial(Color.CLUB, Score.INITIAL, PlayerId.PLAYER_1)
+                .withNewCardPlayed(Card.of(Color.SPADE, Rank.JACK));
+        CardSet hand = CardSet.EMPTY
+                .add(Card.of(Color.SPADE, Rank.EIGHT))
+                .add(Card.of(Color.SPADE, Rank.NINE))
+                .add(Card.of(Color.SPADE, Rank.TEN))
+                .add(Card.of(Color.CLUB, Rank.SIX))
+                .add(Card.of(Color.HEART, Rank.SEVEN))
+                .add(Card.of(Color.HEART, Rank.EIGHT))
+                .add(Card.of(Color.HEART, Rank.NINE))
+                .add(Card.of(Color.HEART, Rank.TEN))
+                .add(Card.of(Color.HEART, Rank.JACK));
+        assertTimeoutPreemptively(TIMEOUT, () -> {
+            // The first search loads the classes it needs, and grows the tree
+            p.cardToPlay(state, hand);
+            long id = Thread.currentThread().getId();
+            long before = threads.getThreadAllocatedBytes(id);
+            p.cardToPlay(state, hand);
+            long allocated = threads.getThreadAllocatedBytes(id) - before;
+            assertEquals(ITERATIONS, p.lastSearchStatistics().iterations());
+            // A few small objects per search, but nothing per iteration
+            assertTrue(allocated < ITERATIONS, "allocated " + allocated + " bytes");
+        });
+    }
+
+    @Test
+    void playersWithEachOptionPlayCorrectly() {
+        // Our team will win this trick, play the 10 to maximize points
+        TurnState state = TurnState.initial(Color.CLUB, Score.INITIAL, PlayerId.PLAYER_1)
+                .withNewCardPlayed(Card.of(Color.SPADE, Rank.JACK))
+                .withNewCardPlayed(Card.of(Color.SPADE, Rank.QUEEN))
+                .withNewCardPlayed(Card.of(Color.SPADE, Rank.SIX));
+        CardSet hand = CardSet.EMPTY
+                .add(Card.of(Color.SPADE, Rank.EIGHT))
+                .add(Card.of(Color.SPADE, Rank.NINE))
+                .add(Card.of(Color.SPADE, Rank.TEN))
+                .add(Card.of(Color.CLUB, Rank.SIX))
+                .add(Card.of(Color.HEART, Rank.SEVEN))
+                .add(Card.of(Color.HEART, Rank.EIGHT))
+                .add(Card.of(Color.HEART, Rank.NINE))
+                .add(Card.of(Color.HEART, Rank.TEN))
+                .add(Card.of(Color.HEART, Rank.JACK));
+        MctsPlayer.Builder[] configurations = {
+                new MctsPlayer.Builder(PlayerId.PLAYER_4, SEED).determinize(true),
+                new MctsPlayer.Builder(PlayerId.PLAYER_4, SEED).transpositionTable(1 << 16),
+        };
+        for (MctsPlayer.Builder configuration : configurations) {
+            MctsPlayer p = configuration.iterations(ITERATIONS).build();
+            assertTimeoutPreemptively(TIMEOUT, () -> {
+                Card c = p.cardToPlay(state, hand);
+                assertEquals(Card.of(Color.SPADE, Rank.TEN), c);
+            });
+        }
+    }
+
+    // Return the cards played by the player of the nodes two levels below the root, and visited at least once
+    private static long visitedGrandchildCards(SearchTree tree, int root) {
+        long visited = PackedCardSet.EMPTY;
+        for (int i = 0; i < PackedCardSet.size(tree.cards(root)); ++i) {
+            int child = tree.child(root, i, false);
+            if (child == SearchTree.NONE) {
+                continue;
+            }
+            for (int j = 0; j < PackedCardSet.size(tree.cards(child)); ++j) {
+                int grandchild = tree.child(child, j, false);
+                if (grandchild != SearchTree.NONE && tree.finishedTurns(grandchild) > 0) {
+                    visited = PackedCardSet.add(visited, PackedCardSet.get(tree.cards(child), j));
+                }
+            }
+        }
+        return visited;
+    }
+
+    @Test
+    void determinizedHandsRespectWhatIsKnown() {
+        // PLAYER_2 announced three spades, so it must follow when spades are led,
+        // while PLAYER_1 might not have any
+        CardSet announce = CardSet.EMPTY
+                .add(Card.of(Color.SPADE, Rank.SEVEN))
+                .add(Card.of(Color.SPADE, Rank.EIGHT))
+                .add(Card.of(Color.SPADE, Rank.NINE));
+        CardSet hand = CardSet.EMPTY
+                .add(Card.of(Color.SPADE, Rank.TEN))
+                .add(Card.of(Color.CLUB, Rank.SIX))
+                .add(Card.of(Color.HEART, Rank.SEVEN))
+                .add(Card.of(Color.HEART, Rank.EIGHT))
+                .add(Card.of(Color.HEART, Rank.NINE))
+                .add(Card.of(Color.HEART, Rank.TEN))
+                .add(Card.of(Color.HEART, Rank.JACK))
+                .add(Card.of(Color.DIAMOND, Rank.SIX))
+                .add(Card.of(Color.DIAMOND, Rank.SEVEN));
+        TurnState state = TurnState.initial(Color.CLUB, Score.INITIAL, PlayerId.PLAYER_3)
+                .withNewCardPlayed(Card.of(Color.SPADE, Rank.JACK));
+        Map<PlayerId, CardSet> announces = new EnumMap<>(PlayerId.class);
+        for (PlayerId id : PlayerId.ALL) {
+            announces.put(id, id == PlayerId.PLAYER_2 ? announce : CardSet.EMPTY);
+        }
+        MctsPlayer p = new MctsPlayer.Builder(PlayerId.PLAYER_4, SEED)
+                .iterations(ITERATIONS)
+                .determinize(true)
+                .build();
+        assertTimeoutPreemptively(TIMEOUT, () -> {
+            p.updateHand(hand);
+            p.setTrump(Color.CLUB);
+            p.setAnnounce(announces, TeamId.TEAM_1);
+            p.updateTrick(state.trick());
+            p.cardToPlay(state, hand);
+        });
+        SearchTree tree = p.retainedTree();
+        int root = p.retainedRoot();
+        long spadesOrTrumps = PackedCardSet.union(
+                PackedCardSet.subsetOfColor(PackedCardSet.ALL_CARDS, Color.SPADE),
+                PackedCardSet.subsetOfColor(PackedCardSet.ALL_CARDS, Color.CLUB));
+        for (int i = 0; i < PackedCardSet.size(tree.cards(root)); ++i) {
+            int child = tree.child(root, i, false);
+            if (child != SearchTree.NONE) {
+                long played = visitedGrandchildCards(tree, child);
+                assertEquals(PackedCardSet.EMPTY, PackedCardSet.difference(played, spadesOrTrumps));
+            }
+        }
+        // PLAYER_1 discards in the deals where it has no spade
+        long firstDiscards = PackedCardSet.difference(visitedGrandchildCards(tree, root), spadesOrTrumps);
+        assertTrue(!PackedCardSet.isEmpty(firstDiscards));
+    }
+
+    @Test
+    void endgameFailsWithInvalidCardCount() {
+        for (int i = -10; i <= 20; ++i) {
+            if (0 <= i && i <= 4) {
+                continue;
+            }
+            int cards = i;
+            assertThrows(IllegalArgumentException.class, () -> {
+                new MctsPlayer.Builder(PlayerId.PLAYER_1, 0).endgame(cards);
+            });
+        }
+    }
+
+    // Return the empty seventh trick of a turn, led by PLAYER_4,
+    // who won the first six tricks by leading the jack of trump
+    private static int seventhTrick(Color trump) {
+        int trick = PackedTrick.firstEmpty(trump, PlayerId.PLAYER_4);
+        for (int t = 0; t < 6; ++t) {
+            trick = PackedTrick.withAddedCard(trick, Card.of(trump, Rank.JACK).packed());
+            for (Rank rank : new Rank[]{Rank.SIX, Rank.SEVEN, Rank.EIGHT}) {
+                trick = PackedTrick.withAddedCard(trick, Card.of(trump, rank).packed());
+            }
+            trick = PackedTrick.nextEmpty(trick);
+        }
+        return trick;
+    }
+
+    @Test
+    void endgameSolvingPlayerPlaysTheSolversCard() {
+        // Three tricks are left, and the other players announced the three cards they still hold
+        Map<PlayerId, CardSet> announces = new EnumMap<>(PlayerId.class);
+        announces.put(PlayerId.PLAYER_1, CardSet.EMPTY
+                .add(Card.of(Color.DIAMOND, Rank.SEVEN))
+                .add(Card.of(Color.DIAMOND, Rank.EIGHT))
+                .add(Card.of(Color.DIAMOND, Rank.NINE)));
+        announces.put(PlayerId.PLAYER_2, CardSet.EMPTY
+                .add(Card.of(Color.HEART, Rank.SIX))
+                .add(Card.of(Color.HEART, Rank.SEVEN))
+                .add(Card.of(Color.HEART, Rank.EIGHT)));
+        announces.put(PlayerId.PLAYER_3, CardSet.EMPTY
+                .add(Card.of(Color.SPADE, Rank.QUEEN))
+                .add(Card.of(Color.SPADE, Rank.KING))
+                .add(Card.of(Color.SPADE, Rank.ACE)));
+        announces.put(PlayerId.PLAYER_4, CardSet.EMPTY);
+        // Only leading the ace of hearts gets any points
+        CardSet hand = CardSet.EMPTY
+                .add(Card.of(Color.SPADE, Rank.TEN))
+                .add(Card.of(Color.HEART, Rank.ACE))
+                .add(Card.of(Color.DIAMOND, Rank.SIX));
+        long[] deal = new long[PlayerId.COUNT];
+        long unplayed = PackedCardSet.EMPTY;
+        for (PlayerId id : PlayerId.ALL) {
+            deal[id.ordinal()] = id == PlayerId.PLAYER_4 ? hand.packed() : announces.get(id).packed();
+            unplayed = PackedCardSet.union(unplayed, deal[id.ordinal()]);
+        }
+        int trick = seventhTrick(Color.CLUB);
+        TurnState state = TurnState.ofPackedComponents(PackedScore.INITIAL, unplayed, trick);
+
+        MctsPlayer p = new MctsPlayer.Builder(PlayerId.PLAYER_4, SEED).iterations(ITERATIONS).endgame(3).build();
+        p.updateHand(hand);
+        p.setTrump(Color.CLUB);
+        p.setAnnounce(announces, TeamId.TEAM_1);
+        Card c = p.cardToPlay(state, hand);
+        assertEquals(32, p.lastSearchStatistics().iterations());
+
+        int[] values = new int[hand.size()];
+        new EndgameSolver().solve(state.packedScore(), unplayed, trick, deal, TeamId.TEAM_2, hand.packed(), values);
+        int best = 0;
+        for (int i = 1; i < hand.size(); ++i) {
+            if (values[i] > values[best]) {
+                best = i;
+            }
+        }
+        assertEquals(Card.of(Color.HEART, Rank.ACE), hand.get(best));
+        assertEquals(hand.get(best), c);
+    }
+
+    @Test
+    void transpositionTableFailsWithInvalidSize() {
+        for (int entries : new int[] {-1, -100, Integer.MIN_VALUE, Integer.MAX_VALUE, (1 << 26) + 1}) {
+            assertThrows(IllegalArgumentException.class, () -> {
+                new MctsPlayer.Builder(PlayerId.PLAYER_1, 0).transpositionTable(entries);
+            });
+        }
+    }
+
+    // Follow a line of cards from a node, creating the nodes as needed
+    private static int descend(SearchTree tree, int node, Card... cards) {
+        for (Card card : cards) {
+            node = tree.descend(node, card.packed());
+        }
+        return node;
+    }
+
+    @Test
+    void transpositionTableSharesTheStatisticsOfTransposingLines() {
+        // PLAYER_4 wins the next two tricks whatever the order of its trumps, and the other
+        // players announced the cards they hold, so many lines reach the same positions
+        Map<PlayerId, CardSet> announces = new EnumMap<>(PlayerId.class);
+        announces.put(PlayerId.PLAYER_1, CardSet.EMPTY
+                .add(Card.of(Color.SPADE, Rank.SIX))
+                .add(Card.of(Color.SPADE, Rank.SEVEN))
+                .add(Card.of(Color.SPADE, Rank.EIGHT)));
+        announces.put(PlayerId.PLAYER_2, CardSet.EMPTY
+                .add(Card.of(Color.HEART, Rank.SIX))
+                .add(Card.of(Color.HEART, Rank.SEVEN))
+                .add(Card.of(Color.HEART, Rank.EIGHT)));
+        announces.put(PlayerId.PLAYER_3, CardSet.EMPTY
+                .add(Card.of(Color.DIAMOND, Rank.SIX))
+                .add(Card.of(Color.DIAMOND, Rank.SEVEN))
+                .add(Card.of(Color.DIAMOND, Rank.EIGHT)));
+        announces.put(PlayerId.PLAYER_4, CardSet.EMPTY);
+        CardSet hand = CardSet.EMPTY
+                .add(Card.of(Color.CLUB, Rank.KING))
+                .add(Card.of(Color.CLUB, Rank.ACE))
+                .add(Card.of(Color.HEART, Rank.ACE));
+        long[] deal = new long[PlayerId.COUNT];
+        long unplayed = PackedCardSet.EMPTY;
+        for (PlayerId id : PlayerId.ALL) {
+            deal[id.ordinal()] = id == PlayerId.PLAYER_4 ? hand.packed() : announces.get(id).packed();
+            unplayed = PackedCardSet.union(unplayed, deal[id.ordinal()]);
+        }
+        int trick = seventhTrick(Color.CLUB);
+        TurnState state = TurnState.ofPackedComponents(PackedScore.INITIAL, unplayed, trick);
+
+        // Every position is reached by a single line, unless it transposes
+        MctsPlayer p = new MctsPlayer.Builder(PlayerId.PLAYER_4, SEED)
+                .iterations(ITERATIONS)
+                .transpositionTable(1 << 12)
+                .build();
+        p.updateHand(hand);
+        p.setTrump(Color.CLUB);
+        p.setAnnounce(announces, TeamId.TEAM_1);
+        assertTimeoutPreemptively(TIMEOUT, () -> p.cardToPlay(state, hand));
+        double hitRate = p.lastSearchStatistics().transpositionHitRate();
+        assertTrue(0 < hitRate && hitRate < 1);
+
+        // Playing the trumps in either order leads to the same position, which shares one entry
+        TranspositionTable table = new TranspositionTable(1 << 12, false);
+        SearchTree tree = new SearchTree(1_000, table, 0);
+        tree.configure(PlayerId.PLAYER_4, deal, false);
+        int root = tree.newRoot(PackedScore.INITIAL, unplayed, trick, PackedTrick.playableCards(trick, hand.packed()));
+        Card[] first = {Card.of(Color.CLUB, Rank.ACE), Card.of(Color.SPADE, Rank.SIX),
+                Card.of(Color.HEART, Rank.SIX), Card.of(Color.DIAMOND, Rank.SIX)};
+        Card[] second = {Card.of(Color.CLUB, Rank.KING), Card.of(Color.SPADE, Rank.SEVEN),
+                Card.of(Color.HEART, Rank.SEVEN), Card.of(Color.DIAMOND, Rank.SEVEN)};
+        int a = descend(tree, descend(tree, root, first), second);
+        int b = descend(tree, descend(tree, root, second), first);
+        assertTrue(a != SearchTree.NONE && b != SearchTree.NONE && a != b);
+        tree.addToTable(a, 10);
+        long key = TranspositionTable.key(tree.packedScore(b), tree.packedUnplayedCards(b), tree.packedTrick(b), TeamId.TEAM_1);
+        assertTrue(table.probe(key));
+        tree.addToTable(b, 20);
+        int entry = table.find(key);
+        assertEquals(2, table.finishedTurns(entry));
+        assertEquals(30, table.totalPoints(entry));
+    }
+
+    @Test
+    void raveFailsWithNegativeEquivalence() {
+        for (int i = -10; i < 0; ++i) {
+            int equivalence = i;
+            assertThrows(IllegalArgumentException.class, () -> {
+                new MctsPlayer.Builder(PlayerId.PLAYER_1, 0).rave(equivalence);
+            });
+        }
+    }
+
+    // Return the number of visits of each child of the retained root of a player
+    private static int[] rootChildTurns(MctsPlayer p) {
+        SearchTree tree = p.retainedTree();
+        int root = p.retainedRoot();
+        int[] turns = new int[PackedCardSet.size(tree.cards(root))];
+        for (int i = 0; i < turns.length; ++i) {
+            int child = tree.child(root, i, false);
+            turns[i] = child == SearchTree.NONE ? 0 : tree.finishedTurns(child);
+        }
+        return turns;
+    }
+
+    @Test
+    void raveChangesTheValuesOfTheChildren() {
+        TurnState state = TurnState.initial(Color.CLUB, Score.INITIAL, PlayerId.PLAYER_1)
+                .withNewCardPlayed(Card.of(Color.SPADE, Rank.JACK))
+                .withNewCardPlayed(Card.of(Color.SPADE, Rank.QUEEN))
+                .withNewCardPlayed(Card.of(Color.SPADE, Rank.SIX));
+        CardSet hand = CardSet.EMPTY
+                .add(Card.of(Color.SPADE, Rank.EIGHT))
+                .add(Card.of(Color.SPADE, Rank.NINE))
+                .add(Card.of(Color.SPADE, Rank.TEN))
+                .add(Card.of(Color.CLUB, Rank.SIX))
+                .add(Card.of(Color.HEART, Rank.SEVEN))
+                .add(Card.of(Color.HEART, Rank.EIGHT))
+                .add(Card.of(Color.HEART, Rank.NINE))
+                .add(Card.of(Color.HEART, Rank.TEN))
+                .add(Card.of(Color.HEART, Rank.JACK));
+        MctsPlayer withoutRave = new MctsPlayer.Builder(PlayerId.PLAYER_4, SEED).iterations(2_000).rave(0).build();
+        MctsPlayer again = new MctsPlayer.Builder(PlayerId.PLAYER_4, SEED).iterations(2_000).rave(0).build();
+        MctsPlayer withRave = new MctsPlayer.Builder(PlayerId.PLAYER_4, SEED).iterations(2_000).rave(200).build();
+        assertTimeoutPreemptively(TIMEOUT, () -> {
+            withoutRave.cardToPlay(state, hand);
+            again.cardToPlay(state, hand);
+            withRave.cardToPlay(state, hand);
+        });
+        // The searches draw the same random numbers, so only RAVE can make them visit other children
+        int[] turns = rootChildTurns(withoutRave);
+        int[] raveTurns = rootChildTurns(withRave);
+        assertTrue(Arrays.equals(turns, rootChildTurns(again)));
+        assertEquals(Arrays.stream(turns).sum(), Arrays.stream(raveTurns).sum());
+        assertTrue(!Arrays.equals(turns, raveTurns));
+    }
+
+    @Test
+    void earlyStoppingPlayerStopsOnObviousDecisions() {
+        // Our team will win this trick, play the 10 to maximize points
+        MctsPlayer p = new MctsPlayer.Builder(PlayerId.PLAYER_4, SEED)
+                .iterations(ITERATIONS)
+                .earlyStopping(true)
+                .build();
+        TurnState state = TurnState.initial(Color.CLUB, Score.INITIAL, PlayerId.PLAYER_1)
+                .withNewCardPlayed(Card.of(Color.SPADE, Rank.JACK))
+                .withNewCardPlayed(Card.of(Color.SPADE, Rank.QUEEN))
+                .withNewCardPlayed(Card.of(Color.SPADE, Rank.SIX));
+        CardSet hand = CardSet.EMPTY
+                .add(Card.of(Color.SPADE, Rank.EIGHT))
+                .add(Card.of(Color.SPADE, Rank.NINE))
+                .add(Card.of(Color.SPADE, Rank.TEN))
+                .add(Card.of(Color.CLUB, Rank.SIX))
+                .add(Card.of(Color.HEART, Rank.SEVEN))
+                .add(Card.of(Color.HEART, Rank.EIGHT))
+                .add(Card.of(Color.HEART, Rank.NINE))
+                .add(Card.of(Color.HEART, Rank.TEN))
+                .add(Card.of(Color.HEART, Rank.JACK));
+        assertTimeoutPreemptively(TIMEOUT, () -> {
+            Card c = p.cardToPlay(state, hand);
+            assertEquals(Card.of(Color.SPADE, Rank.TEN), c);
+            long iterations = p.lastSearchStatistics().iterations();
+            assertTrue(0 < iterations && iterations < ITERATIONS);
+        });
+    }
+
+    @Test
+    void trumpDealsFailsWhenNegative() {
+        for (int i = -10; i < 0; ++i) {
+            int deals = i;
+            assertThrows(IllegalArgumentException.class, () -> {
+                new MctsPlayer.Builder(PlayerId.PLAYER_1, 0).trumpDeals(deals);
+            });
+        }
+    }
+
+    @Test
+    void trumpIsChosenWithoutSimulatingByDefault() {
+        for (long seed = 0; seed < 20; ++seed) {
+            MctsPlayer p = new MctsPlayer.Builder(PlayerId.PLAYER_1, seed).build();
+            CardSet hand = CardSet.EMPTY;
+            SplittableRandom rng = new SplittableRandom(seed);
+            while (hand.size() < Jass.HAND_SIZE) {
+                hand = hand.add(CardSet.ALL_CARDS.get(rng.nextInt(CardSet.ALL_CARDS.size())));
+            }
+            for (boolean canDelegate : new boolean[]{true, false}) {
+                assertEquals(TrumpSimulator.heuristicTrump(hand.packed(), canDelegate), p.chooseTrump(hand, canDelegate));
+            }
+        }
+    }
+
+    @Test
+    void curiosityFailsWhenNegative() {
+        for (double curiosity : new double[] {-1, -0.5, Double.NEGATIVE_INFINITY}) {
+            assertThrows(IllegalArgumentException.class, () -> {
+                new MctsPlayer.Builder(PlayerId.PLAYER_1, 0).curiosity(curiosity);
+            });
+        }
+    }
+
+    @Test
+    void cancelPonderingWorksWithoutPondering() {
+        MctsPlayer p = new MctsPlayer.Builder(PlayerId.PLAYER_1, SEED).ponder(2_000).build();
+        p.cancelPondering();
+        p.cancelPondering();
+    }
+
     @Test
     void mctsPlayerPlaysCorrectly1() {
         // Opponent team will win this trick, we have to minimize loss
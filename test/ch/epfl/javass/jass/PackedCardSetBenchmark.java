@@ -0,0 +1,71 @@
+package ch.epfl.javass.jass;
+
+import java.util.SplittableRandom;
+
+/**
+ * Compares the time PackedCardSet.get takes with the time a loop clearing
+ * the lowest bits of the set takes, for sets of every size.
+ * <p>
+ * This is not a test: it is meant to be run by hand, as the main program.
+ *
+ * @author Lúcás Críostóir Meier (300831)
+ * @author Ludovic Burnier (301308)
+ */
+final class PackedCardSetBenchmark {
+    private static final int SETS = 1 << 10;
+    private static final int ROUNDS = 2_000;
+    private static final int WARMUP_ROUNDS = 500;
+
+    private PackedCardSetBenchmark() {
+    }
+
+    // What PackedCardSet.get used to do
+    private static int getByLoop(long pkCardSet, int index) {
+        for (int i = 0; i < index; ++i) {
+            pkCardSet = pkCardSet ^ Long.lowestOneBit(pkCardSet);
+        }
+        return Long.numberOfTrailingZeros(pkCardSet);
+    }
+
+    private static long randomSet(SplittableRandom rng, int size) {
+        long set = PackedCardSet.EMPTY;
+        while (PackedCardSet.size(set) < size) {
+            set = PackedCardSet.add(set, PackedCardSet.get(PackedCardSet.ALL_CARDS, rng.nextInt(36)));
+        }
+        return set;
+    }
+
+    // Return the nanoseconds per call, the sum being printed so that the calls can't be removed
+    private static double time(long[] sets, int[] indices, boolean loop, int rounds) {
+        long sum = 0;
+        long start = System.nanoTime();
+        for (int r = 0; r < rounds; ++r) {
+            for (int i = 0; i < SETS; ++i) {
+                sum += loop ? getByLoop(sets[i], indices[i]) : PackedCardSet.get(sets[i], indices[i]);
+            }
+        }
+        double nanos = (double) (System.nanoTime() - start) / ((long) rounds * SETS);
+        if (sum == 42) {
+            System.out.println(sum);
+        }
+        return nanos;
+    }
+
+    public static void main(String[] args) {
+        SplittableRandom rng = new SplittableRandom(0);
+        System.out.println("size  loop (ns)  select (ns)");
+        for (int size = 1; size <= 36; ++size) {
+            long[] sets = new long[SETS];
+            int[] indices = new int[SETS];
+            for (int i = 0; i < SETS; ++i) {
+                sets[i] = randomSet(rng, size);
+                indices[i] = rng.nextInt(size);
+            }
+            time(sets, indices, true, WARMUP_ROUNDS);
+            time(sets, indices, false, WARMUP_ROUNDS);
+            double loop = time(sets, indices, true, ROUNDS);
+            double select = time(sets, indices, false, ROUNDS);
+            System.out.printf("%4d  %9.2f  %11.2f%n", size, loop, select);
+        }
+    }
+}
@@ -3,6 +3,11 @@ package ch.epfl.javass.jass;
 import ch.epfl.javass.bits.Bits64;
 import org.junit.jupiter.api.Test;
 
+import java.util.SplittableRandom;
+
+import static ch.epfl.test.TestRandomizer.RANDOM_ITERATIONS;
+import static ch.epfl.test.TestRandomizer.newRandom;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class PackedCardSetTest {
@@ -222,6 +227,34 @@ class PackedCardSetTest {
         }
     }
 
+    @Test
+    void getReturnsTheCardsInIncreasingOrder() {
+        SplittableRandom rng = newRandom();
+        for (int i = 0; i < RANDOM_ITERATIONS; ++i) {
+            long set = rng.nextLong() & PackedCardSet.ALL_CARDS;
+            long rest = set;
+            for (int index = 0; index < PackedCardSet.size(set); ++index) {
+                assertEquals(Long.numberOfTrailingZeros(rest), PackedCardSet.get(set, index));
+                rest ^= Long.lowestOneBit(rest);
+            }
+        }
+        assertEquals(PackedCard.pack(Card.Color.CLUB, Card.Rank.ACE), PackedCardSet.get(PackedCardSet.ALL_CARDS, 35));
+    }
+
+    @Test
+    void firstAndWithoutFirstGoThroughTheSetInOrder() {
+        SplittableRandom rng = newRandom();
+        for (int i = 0; i < RANDOM_ITERATIONS; ++i) {
+            long set = rng.nextLong() & PackedCardSet.ALL_CARDS;
+            int index = 0;
+            for (long rest = set; !PackedCardSet.isEmpty(rest); rest = PackedCardSet.withoutFirst(rest)) {
+                assertEquals(PackedCardSet.get(set, index++), PackedCardSet.first(rest));
+            }
+            assertEquals(PackedCardSet.size(set), index);
+        }
+        assertEquals(PackedCardSet.EMPTY, PackedCardSet.withoutFirst(PackedCardSet.EMPTY));
+    }
+
     @Test
     void toStringReturnsTheRightThing() {
         long s = PackedCardSet.EMPTY;
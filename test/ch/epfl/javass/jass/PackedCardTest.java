@@ -169,4 +169,23 @@ public final class PackedCardTest {
             assertEquals(152, s);
         }
     }
+
+    @Test
+    void isBetterAndPointsAreTheSameAsWithTheRules() {
+        for (Card.Color trump : getAllColors()) {
+            for (Card.Color c1 : getAllColors()) {
+                for (Card.Rank r1 : getAllRanks()) {
+                    int pkCard1 = PackedCard.pack(c1, r1);
+                    assertEquals(PackedCard.pointsByRules(trump, pkCard1), PackedCard.points(trump, pkCard1));
+                    for (Card.Color c2 : getAllColors()) {
+                        for (Card.Rank r2 : getAllRanks()) {
+                            int pkCard2 = PackedCard.pack(c2, r2);
+                            assertEquals(PackedCard.isBetterByRules(trump, pkCard1, pkCard2),
+                                    PackedCard.isBetter(trump, pkCard1, pkCard2));
+                        }
+                    }
+                }
+            }
+        }
+    }
 }
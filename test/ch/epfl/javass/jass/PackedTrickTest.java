@@ -8,6 +8,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Random;
+import java.util.SplittableRandom;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -213,4 +214,111 @@ class PackedTrickTest {
         }
 
     }
+
+    // Check playableCards against playableCardsByRules, for every trick
+    // starting with the cards given, and a few hands for each one
+    private static void checkPlayableCards(int pkTrick, long trickCards, SplittableRandom rng) {
+        if (!PackedTrick.isEmpty(pkTrick)) {
+            long free = PackedCardSet.difference(PackedCardSet.ALL_CARDS, trickCards);
+            Card.Color trump = PackedTrick.trump(pkTrick);
+            Card.Color base = PackedTrick.baseColor(pkTrick);
+            long trumps = PackedCardSet.subsetOfColor(free, trump);
+            long notBase = PackedCardSet.difference(free, PackedCardSet.subsetOfColor(free, base));
+            long jack = PackedCardSet.singleton(Card.of(trump, Card.Rank.JACK).packed());
+            long[] hands = {
+                    free & rng.nextLong(),
+                    free & rng.nextLong() & rng.nextLong(),
+                    notBase & rng.nextLong(),
+                    trumps,
+                    trumps & rng.nextLong(),
+                    PackedCardSet.intersection(free, jack),
+                    PackedCardSet.intersection(free, jack | (notBase & rng.nextLong())),
+                    PackedCardSet.intersection(free, jack | PackedCardSet.singleton(PackedCardSet.first(free)))
+            };
+            for (long hand : hands) {
+                if (!PackedCardSet.isEmpty(hand)) {
+                    assertEquals(PackedTrick.playableCardsByRules(pkTrick, hand),
+                            PackedTrick.playableCards(pkTrick, hand));
+                }
+            }
+        }
+        if (PackedTrick.size(pkTrick) == PlayerId.COUNT - 1) {
+            return;
+        }
+        for (long rest = PackedCardSet.difference(PackedCardSet.ALL_CARDS, trickCards);
+             !PackedCardSet.isEmpty(rest); rest = PackedCardSet.withoutFirst(rest)) {
+            int pkCard = PackedCardSet.first(rest);
+            checkPlayableCards(PackedTrick.withAddedCard(pkTrick, pkCard),
+                    PackedCardSet.add(trickCards, pkCard), rng);
+        }
+    }
+
+    @Test
+    void playableCardsIsTheSameAsWithTheRulesForEveryTrick() {
+        SplittableRandom rng = TestRandomizer.newRandom();
+        for (Card.Color trump : Card.Color.ALL) {
+            checkPlayableCards(PackedTrick.firstEmpty(trump, PlayerId.PLAYER_1), PackedCardSet.EMPTY, rng);
+        }
+    }
+
+    @Test
+    void playableCardsIsTheSameAsWithTheRulesForEveryTrumpSubset() {
+        for (Card.Color trump : Card.Color.ALL) {
+            long trumps = PackedCardSet.subsetOfColor(PackedCardSet.ALL_CARDS, trump);
+            for (Card.Color base : Card.Color.ALL) {
+                Card.Color other = Card.Color.ALL.get((Math.max(trump.ordinal(), base.ordinal()) + 1) % Card.Color.COUNT);
+                long otherCard = PackedCardSet.singleton(Card.of(other, Card.Rank.SIX).packed());
+                long baseCards = PackedCardSet.subsetOfColor(PackedCardSet.ALL_CARDS, base);
+                // Without any trump played, then with each trump card played after the first card
+                for (int best = -1; best < Card.Rank.COUNT; ++best) {
+                    int pkTrick = PackedTrick.firstEmpty(trump, PlayerId.PLAYER_1);
+                    pkTrick = PackedTrick.withAddedCard(pkTrick, Card.of(base, Card.Rank.SEVEN).packed());
+                    if (best >= 0 && Card.Rank.ALL.get(best) != Card.Rank.SEVEN) {
+                        pkTrick = PackedTrick.withAddedCard(pkTrick, Card.of(trump, Card.Rank.ALL.get(best)).packed());
+                    }
+                    long[] baseSubsets = {PackedCardSet.EMPTY, baseCards & 0x1L * 0x1_0001_0001_0001L, baseCards};
+                    for (long subset = trumps; ; subset = (subset - 1) & trumps) {
+                        for (long baseSubset : baseSubsets) {
+                            for (long rest : new long[] {PackedCardSet.EMPTY, otherCard}) {
+                                long hand = subset | baseSubset | rest;
+                                if (!PackedCardSet.isEmpty(hand)) {
+                                    assertEquals(PackedTrick.playableCardsByRules(pkTrick, hand),
+                                            PackedTrick.playableCards(pkTrick, hand));
+                                }
+                            }
+                        }
+                        if (PackedCardSet.isEmpty(subset)) {
+                            break;
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void tallyGivesTheSameWinnerAndPointsAsTheCards() {
+        SplittableRandom rng = TestRandomizer.newRandom();
+        for (int i = 0; i < 10 * TestRandomizer.RANDOM_ITERATIONS; ++i) {
+            Card.Color trump = Card.Color.ALL.get(rng.nextInt(Card.Color.COUNT));
+            int pkTrick = PackedTrick.firstEmpty(trump, PlayerId.ALL.get(rng.nextInt(PlayerId.COUNT)));
+            for (int index = rng.nextInt(Jass.TRICKS_PER_TURN); index > 0; --index) {
+                pkTrick = PackedTrick.nextEmpty(PackedTrick.withAddedCard(PackedTrick.withAddedCard(
+                        PackedTrick.withAddedCard(PackedTrick.withAddedCard(pkTrick, 0), 1), 2), 3));
+            }
+            assertEquals(PackedTrick.EMPTY_TALLY, PackedTrick.tally(pkTrick));
+            int pkTally = PackedTrick.EMPTY_TALLY;
+            long deck = PackedCardSet.ALL_CARDS;
+            for (int j = 0; j < PlayerId.COUNT; ++j) {
+                int pkCard = PackedCardSet.get(deck, rng.nextInt(PackedCardSet.size(deck)));
+                deck = PackedCardSet.remove(deck, pkCard);
+                pkTally = PackedTrick.tallyWithAddedCard(pkTally, pkTrick, pkCard);
+                pkTrick = PackedTrick.withAddedCard(pkTrick, pkCard);
+                assertEquals(PackedTrick.tally(pkTrick), pkTally);
+                assertEquals(PackedTrick.winningPlayer(pkTrick), PackedTrick.winningPlayer(pkTrick, pkTally));
+            }
+            assertEquals(PackedTrick.points(pkTrick), PackedTrick.points(pkTrick, pkTally));
+            assertEquals(PackedTrick.nextEmpty(pkTrick), PackedTrick.nextEmpty(pkTrick, pkTally));
+        }
+    }
 }
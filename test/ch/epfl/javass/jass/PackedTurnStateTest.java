@@ -0,0 +1,56 @@
+package ch.epfl.javass.jass;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static ch.epfl.test.TestRandomizer.RANDOM_ITERATIONS;
+import static ch.epfl.test.TestRandomizer.newRandom;
+import static org.junit.jupiter.api.Assertions.*;
+
+class PackedTurnStateTest {
+    @Test
+    void collectingDoesNothingWhenTrickIsNotFull() {
+        int pkTrick = PackedTrick.firstEmpty(Card.Color.HEART, PlayerId.PLAYER_2);
+        for (int i = 0; i < 3; ++i) {
+            long pkScore = PackedScore.pack(2, 30, 100, 1, 12, 50);
+            assertEquals(pkScore, PackedTurnState.collectedScore(pkScore, pkTrick));
+            assertEquals(pkTrick, PackedTurnState.collectedTrick(pkTrick));
+            pkTrick = PackedTrick.withAddedCard(pkTrick, PackedCard.pack(Card.Color.SPADE, Card.Rank.ALL.get(i)));
+        }
+    }
+
+    @Test
+    void collectedTrickIsTerminalAfterLastTrick() {
+        assertTrue(PackedTurnState.isTerminal(PackedTrick.INVALID));
+        assertFalse(PackedTurnState.isTerminal(PackedTrick.firstEmpty(Card.Color.CLUB, PlayerId.PLAYER_1)));
+    }
+
+    @Test
+    void playingRandomTurnsMatchesTurnState() {
+        SplittableRandom rng = newRandom();
+        for (int i = 0; i < RANDOM_ITERATIONS; ++i) {
+            Card.Color trump = Card.Color.ALL.get(rng.nextInt(Card.Color.COUNT));
+            PlayerId first = PlayerId.ALL.get(rng.nextInt(PlayerId.COUNT));
+            TurnState state = TurnState.initial(trump, Score.INITIAL, first);
+            long pkScore = state.packedScore();
+            long pkUnplayedCards = state.packedUnplayedCards();
+            int pkTrick = state.packedTrick();
+            while (!state.isTerminal()) {
+                long playable = PackedTrick.playableCards(pkTrick, pkUnplayedCards);
+                int pkCard = PackedCardSet.get(playable, rng.nextInt(PackedCardSet.size(playable)));
+                state = state.withNewCardPlayedAndTrickCollected(Card.ofPacked(pkCard));
+
+                pkUnplayedCards = PackedCardSet.remove(pkUnplayedCards, pkCard);
+                pkTrick = PackedTrick.withAddedCard(pkTrick, pkCard);
+                pkScore = PackedTurnState.collectedScore(pkScore, pkTrick);
+                pkTrick = PackedTurnState.collectedTrick(pkTrick);
+
+                assertEquals(state.packedScore(), pkScore);
+                assertEquals(state.packedUnplayedCards(), pkUnplayedCards);
+                assertEquals(state.packedTrick(), pkTrick);
+            }
+            assertTrue(PackedTurnState.isTerminal(pkTrick));
+        }
+    }
+}
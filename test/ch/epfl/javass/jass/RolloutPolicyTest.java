@@ -0,0 +1,107 @@
+package ch.epfl.javass.jass;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import ch.epfl.javass.jass.Card.Color;
+import ch.epfl.javass.jass.Card.Rank;
+
+import static ch.epfl.test.TestRandomizer.RANDOM_ITERATIONS;
+import static ch.epfl.test.TestRandomizer.newRandom;
+import static org.junit.jupiter.api.Assertions.*;
+
+class RolloutPolicyTest {
+    private static int card(Color color, Rank rank) {
+        return PackedCard.pack(color, rank);
+    }
+
+    private static long cards(int... pkCards) {
+        long set = PackedCardSet.EMPTY;
+        for (int c : pkCards) {
+            set = PackedCardSet.add(set, c);
+        }
+        return set;
+    }
+
+    private static int trick(Color trump, int... pkCards) {
+        int pkTrick = PackedTrick.firstEmpty(trump, PlayerId.PLAYER_1);
+        for (int c : pkCards) {
+            pkTrick = PackedTrick.withAddedCard(pkTrick, c);
+        }
+        return pkTrick;
+    }
+
+    @Test
+    void policiesPlayPlayableCards() {
+        SplittableRandom rng = newRandom();
+        RolloutPolicy[] policies = {
+                RolloutPolicy.UNIFORM,
+                RolloutPolicy.HEURISTIC,
+                RolloutPolicy.epsilonGreedy(RolloutPolicy.HEURISTIC, 0.5)
+        };
+        for (int i = 0; i < RANDOM_ITERATIONS; ++i) {
+            TurnState state = TurnState.initial(Color.ALL.get(rng.nextInt(Color.COUNT)), Score.INITIAL, PlayerId.PLAYER_1);
+            long hand = PackedCardSet.EMPTY;
+            int played = rng.nextInt(PlayerId.COUNT);
+            for (int c = 0; c < played; ++c) {
+                long unplayed = state.packedUnplayedCards();
+                state = state.withNewCardPlayed(Card.ofPacked(PackedCardSet.get(unplayed, rng.nextInt(PackedCardSet.size(unplayed)))));
+            }
+            for (int c = 0; c < Jass.HAND_SIZE; ++c) {
+                long rest = PackedCardSet.difference(state.packedUnplayedCards(), hand);
+                hand = PackedCardSet.add(hand, PackedCardSet.get(rest, rng.nextInt(PackedCardSet.size(rest))));
+            }
+            long playable = PackedTrick.playableCards(state.packedTrick(), hand);
+            for (RolloutPolicy policy : policies) {
+                assertTrue(PackedCardSet.contains(playable, policy.cardToPlay(state.packedTrick(), playable, rng)));
+            }
+        }
+    }
+
+    @Test
+    void heuristicTakesTheTrickCheaply() {
+        int pkTrick = trick(Color.SPADE, card(Color.HEART, Rank.KING));
+        long playable = cards(card(Color.HEART, Rank.SIX), card(Color.HEART, Rank.TEN), card(Color.HEART, Rank.ACE));
+        assertEquals(card(Color.HEART, Rank.ACE), RolloutPolicy.HEURISTIC.cardToPlay(pkTrick, playable, newRandom()));
+    }
+
+    @Test
+    void heuristicGivesAwayFewPointsWhenLosing() {
+        int pkTrick = trick(Color.SPADE, card(Color.HEART, Rank.ACE));
+        long playable = cards(card(Color.HEART, Rank.TEN), card(Color.HEART, Rank.SEVEN), card(Color.HEART, Rank.KING));
+        assertEquals(card(Color.HEART, Rank.SEVEN), RolloutPolicy.HEURISTIC.cardToPlay(pkTrick, playable, newRandom()));
+    }
+
+    @Test
+    void heuristicGivesPointsToItsPartner() {
+        // Player 1 is winning, player 3 plays
+        int pkTrick = trick(Color.SPADE, card(Color.HEART, Rank.ACE), card(Color.HEART, Rank.SIX));
+        long playable = cards(card(Color.DIAMOND, Rank.TEN), card(Color.CLUB, Rank.SEVEN), card(Color.SPADE, Rank.JACK));
+        assertEquals(card(Color.DIAMOND, Rank.TEN), RolloutPolicy.HEURISTIC.cardToPlay(pkTrick, playable, newRandom()));
+    }
+
+    @Test
+    void epsilonGreedyFailsWithInvalidEpsilon() {
+        for (double epsilon : new double[] {-0.1, 1.1, Double.NaN}) {
+            assertThrows(IllegalArgumentException.class, () -> {
+                RolloutPolicy.epsilonGreedy(RolloutPolicy.HEURISTIC, epsilon);
+            });
+        }
+    }
+
+    @Test
+    void epsilonGreedyWithoutEpsilonIsGreedy() {
+        RolloutPolicy greedy = (pkTrick, pkPlayableCards, rng) -> PackedCardSet.get(pkPlayableCards, 0);
+        RolloutPolicy policy = RolloutPolicy.epsilonGreedy(greedy, 0);
+        SplittableRandom rng = newRandom();
+        int pkTrick = trick(Color.SPADE);
+        for (int i = 0; i < RANDOM_ITERATIONS; ++i) {
+            long playable = rng.nextLong() & PackedCardSet.ALL_CARDS;
+            if (PackedCardSet.isEmpty(playable)) {
+                continue;
+            }
+            assertEquals(PackedCardSet.get(playable, 0), policy.cardToPlay(pkTrick, playable, rng));
+        }
+    }
+}
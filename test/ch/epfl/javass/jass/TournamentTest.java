@@ -0,0 +1,119 @@
+package ch.epfl.javass.jass;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TournamentTest {
+    private static Tournament.Builder randomPlayers(long seed) {
+        Tournament.Builder builder = new Tournament.Builder(seed);
+        for (PlayerId id : PlayerId.ALL) {
+            builder.player(id, id.name(), (ownId, rngSeed) -> new RandomPlayer(rngSeed));
+        }
+        return builder;
+    }
+
+    @Test
+    void builderFailsWithInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> randomPlayers(0).games(0));
+        assertThrows(IllegalArgumentException.class, () -> randomPlayers(0).threads(0));
+        assertThrows(IllegalArgumentException.class, () -> new Tournament.Builder(0)
+                .player(PlayerId.PLAYER_1, "a", (id, seed) -> new RandomPlayer(seed))
+                .build());
+    }
+
+    @Test
+    void everyGameIsPlayedAndWon() {
+        AtomicInteger calls = new AtomicInteger();
+        Tournament.Result result = randomPlayers(2019).games(20).threads(2).build().run(n -> calls.incrementAndGet());
+        assertEquals(20, result.games());
+        assertEquals(20, calls.get());
+        assertEquals(20, result.wins(TeamId.TEAM_1) + result.wins(TeamId.TEAM_2));
+        assertEquals(1.0, result.winRate(TeamId.TEAM_1) + result.winRate(TeamId.TEAM_2), 1e-9);
+        for (TeamId team : TeamId.ALL) {
+            assertEquals(20, result.points(team).size());
+            assertTrue(result.pointsPercentile(team, 0) <= result.pointsPercentile(team, 0.5));
+            assertTrue(result.pointsPercentile(team, 0.5) <= result.pointsPercentile(team, 1));
+        }
+        int winnerPoints = Math.max(result.pointsPercentile(TeamId.TEAM_1, 1), result.pointsPercentile(TeamId.TEAM_2, 1));
+        assertTrue(winnerPoints >= Jass.WINNING_POINTS);
+    }
+
+    // A random player counting how many times it was closed
+    private static final class ClosingPlayer implements Player, AutoCloseable {
+        private final RandomPlayer player;
+        private final AtomicInteger closed;
+
+        ClosingPlayer(long rngSeed, AtomicInteger closed) {
+            this.player = new RandomPlayer(rngSeed);
+            this.closed = closed;
+        }
+
+        @Override
+        public Card cardToPlay(TurnState state, CardSet hand) {
+            return this.player.cardToPlay(state, hand);
+        }
+
+        @Override
+        public Card.Color chooseTrump(CardSet hand, boolean canDelegate) {
+            return this.player.chooseTrump(hand, canDelegate);
+        }
+
+        @Override
+        public void close() {
+            this.closed.incrementAndGet();
+        }
+    }
+
+    @Test
+    void playersAreClosedAfterTheirGame() {
+        AtomicInteger closed = new AtomicInteger();
+        Tournament.Builder builder = randomPlayers(7)
+                .player(PlayerId.PLAYER_2, "c", (ownId, rngSeed) -> new ClosingPlayer(rngSeed, closed));
+        builder.games(5).threads(2).build().run(n -> { });
+        assertEquals(5, closed.get());
+    }
+
+    @Test
+    void mctsPlayersReleaseTheirThreads() throws InterruptedException {
+        // Other tests might have left their own players' threads running
+        Set<Thread> before = searchThreads();
+        Tournament.Builder builder = new Tournament.Builder(3);
+        for (PlayerId id : PlayerId.ALL) {
+            builder.player(id, id.name(), (ownId, rngSeed) -> new MctsPlayer.Builder(ownId, rngSeed)
+                    .iterations(20)
+                    .threads(2)
+                    .ponder(100)
+                    .trumpDeals(64)
+                    .build());
+        }
+        builder.games(3).build().run(n -> { });
+        // The pools shut down once their last task is over
+        Set<Thread> left = searchThreads();
+        for (int i = 0; i < 500 && !before.containsAll(left); ++i) {
+            Thread.sleep(10);
+            left = searchThreads();
+        }
+        assertTrue(before.containsAll(left));
+    }
+
+    private static Set<Thread> searchThreads() {
+        return Thread.getAllStackTraces().keySet().stream()
+                .filter(t -> t.getName().startsWith("mcts-") || t.getName().equals("trump-simulator"))
+                .collect(Collectors.toSet());
+    }
+
+    @Test
+    void resultsDoNotDependOnTheNumberOfThreads() {
+        Tournament.Result oneThread = randomPlayers(42).games(12).threads(1).build().run(n -> { });
+        Tournament.Result threeThreads = randomPlayers(42).games(12).threads(3).build().run(n -> { });
+        for (TeamId team : TeamId.ALL) {
+            assertEquals(oneThread.wins(team), threeThreads.wins(team));
+            assertEquals(oneThread.points(team), threeThreads.points(team));
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package ch.epfl.javass.jass;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static ch.epfl.test.TestRandomizer.RANDOM_ITERATIONS;
+import static ch.epfl.test.TestRandomizer.newRandom;
+import static org.junit.jupiter.api.Assertions.*;
+
+class TranspositionTableTest {
+    private static long randomKey(SplittableRandom rng) {
+        int pkTrick = PackedTrick.firstEmpty(Card.Color.ALL.get(rng.nextInt(Card.Color.COUNT)), PlayerId.PLAYER_1);
+        return TranspositionTable.key(PackedScore.INITIAL, rng.nextLong() & PackedCardSet.ALL_CARDS, pkTrick, TeamId.TEAM_1);
+    }
+
+    @Test
+    void keyDependsOnEveryComponent() {
+        long score = PackedScore.INITIAL;
+        long unplayed = PackedCardSet.ALL_CARDS;
+        int trick = PackedTrick.firstEmpty(Card.Color.SPADE, PlayerId.PLAYER_1);
+        long key = TranspositionTable.key(score, unplayed, trick, TeamId.TEAM_1);
+        assertEquals(key, TranspositionTable.key(score, unplayed, trick, TeamId.TEAM_1));
+        assertNotEquals(key, TranspositionTable.key(score, unplayed, trick, TeamId.TEAM_2));
+        assertNotEquals(key, TranspositionTable.key(PackedScore.withAdditionalTrick(score, TeamId.TEAM_1, 10), unplayed, trick, TeamId.TEAM_1));
+        assertNotEquals(key, TranspositionTable.key(score, PackedCardSet.remove(unplayed, 0), trick, TeamId.TEAM_1));
+        assertNotEquals(key, TranspositionTable.key(score, unplayed, PackedTrick.firstEmpty(Card.Color.CLUB, PlayerId.PLAYER_1), TeamId.TEAM_1));
+    }
+
+    @Test
+    void capacityIsRoundedUpToAPowerOfTwo() {
+        assertEquals(4, new TranspositionTable(1, false).capacity());
+        assertEquals(64, new TranspositionTable(64, false).capacity());
+        assertEquals(128, new TranspositionTable(65, false).capacity());
+    }
+
+    @Test
+    void statisticsAreSummedForTheSameKey() {
+        SplittableRandom rng = newRandom();
+        TranspositionTable table = new TranspositionTable(1 << 10, false);
+        for (int i = 0; i < RANDOM_ITERATIONS; ++i) {
+            long key = randomKey(rng);
+            table.clear();
+            assertEquals(TranspositionTable.ABSENT, table.find(key));
+            table.add(key, 10);
+            table.add(key, 32);
+            int entry = table.find(key);
+            assertNotEquals(TranspositionTable.ABSENT, entry);
+            assertEquals(42, table.totalPoints(entry));
+            assertEquals(2, table.finishedTurns(entry));
+        }
+    }
+
+    @Test
+    void clearForgetsEveryEntry() {
+        SplittableRandom rng = newRandom();
+        TranspositionTable table = new TranspositionTable(1 << 10, false);
+        long[] keys = new long[100];
+        for (int i = 0; i < keys.length; ++i) {
+            keys[i] = randomKey(rng);
+            table.add(keys[i], 1);
+        }
+        table.clear();
+        for (long key : keys) {
+            assertEquals(TranspositionTable.ABSENT, table.find(key));
+        }
+    }
+
+    @Test
+    void fullTableKeepsTheMostVisitedEntries() {
+        // A single bucket, filled with entries visited more and more
+        TranspositionTable table = new TranspositionTable(4, false);
+        SplittableRandom rng = newRandom();
+        long[] keys = new long[4];
+        for (int i = 0; i < keys.length; ++i) {
+            keys[i] = randomKey(rng);
+            for (int t = 0; t <= i; ++t) {
+                table.add(keys[i], 1);
+            }
+        }
+        long newKey = randomKey(rng);
+        table.add(newKey, 1);
+        assertNotEquals(TranspositionTable.ABSENT, table.find(newKey));
+        assertEquals(TranspositionTable.ABSENT, table.find(keys[0]));
+        for (int i = 1; i < keys.length; ++i) {
+            assertNotEquals(TranspositionTable.ABSENT, table.find(keys[i]));
+        }
+    }
+
+    @Test
+    void entriesOfPreviousSearchesAreReplacedFirst() {
+        TranspositionTable table = new TranspositionTable(4, false);
+        SplittableRandom rng = newRandom();
+        long old = randomKey(rng);
+        for (int t = 0; t < 100; ++t) {
+            table.add(old, 1);
+        }
+        table.newSearch();
+        // The entry is still there, but goes first
+        assertNotEquals(TranspositionTable.ABSENT, table.find(old));
+        for (int i = 0; i < 4; ++i) {
+            table.add(randomKey(rng), 1);
+        }
+        assertEquals(TranspositionTable.ABSENT, table.find(old));
+    }
+
+    @Test
+    void probesCountTheirHits() {
+        SplittableRandom rng = newRandom();
+        TranspositionTable table = new TranspositionTable(1 << 10, false);
+        long key = randomKey(rng);
+        assertFalse(table.probe(key));
+        table.add(key, 1);
+        assertTrue(table.probe(key));
+        assertEquals(2, table.probes());
+        assertEquals(1, table.hits());
+    }
+}
@@ -0,0 +1,95 @@
+package ch.epfl.javass.jass;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import ch.epfl.javass.jass.Card.Color;
+import ch.epfl.javass.jass.Card.Rank;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TrumpSimulatorTest {
+    private static final Duration TIMEOUT = Duration.ofSeconds(15);
+
+    // The best hearts, along with three small spades
+    private static CardSet strongHearts() {
+        return CardSet.EMPTY
+                .add(Card.of(Color.HEART, Rank.JACK))
+                .add(Card.of(Color.HEART, Rank.NINE))
+                .add(Card.of(Color.HEART, Rank.ACE))
+                .add(Card.of(Color.HEART, Rank.KING))
+                .add(Card.of(Color.HEART, Rank.QUEEN))
+                .add(Card.of(Color.HEART, Rank.TEN))
+                .add(Card.of(Color.SPADE, Rank.SIX))
+                .add(Card.of(Color.SPADE, Rank.SEVEN))
+                .add(Card.of(Color.SPADE, Rank.EIGHT));
+    }
+
+    // Small cards of every color
+    private static CardSet weakHand() {
+        return CardSet.EMPTY
+                .add(Card.of(Color.SPADE, Rank.SIX))
+                .add(Card.of(Color.SPADE, Rank.SEVEN))
+                .add(Card.of(Color.HEART, Rank.SIX))
+                .add(Card.of(Color.HEART, Rank.SEVEN))
+                .add(Card.of(Color.DIAMOND, Rank.SIX))
+                .add(Card.of(Color.DIAMOND, Rank.SEVEN))
+                .add(Card.of(Color.CLUB, Rank.SIX))
+                .add(Card.of(Color.CLUB, Rank.SEVEN))
+                .add(Card.of(Color.CLUB, Rank.EIGHT));
+    }
+
+    @Test
+    void builderFailsWithInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> new TrumpSimulator.Builder(0).deals(0));
+        assertThrows(IllegalArgumentException.class, () -> new TrumpSimulator.Builder(0).threads(0));
+        assertThrows(IllegalArgumentException.class, () -> new TrumpSimulator.Builder(0).timeBudget(0));
+    }
+
+    @Test
+    void heuristicChoosesTheStrongestColor() {
+        assertEquals(Color.HEART, TrumpSimulator.heuristicTrump(strongHearts().packed(), true));
+        assertEquals(Color.HEART, TrumpSimulator.heuristicTrump(strongHearts().packed(), false));
+    }
+
+    @Test
+    void heuristicDelegatesWithAWeakHand() {
+        assertNull(TrumpSimulator.heuristicTrump(weakHand().packed(), true));
+        assertNotNull(TrumpSimulator.heuristicTrump(weakHand().packed(), false));
+    }
+
+    @Test
+    void simulatorChoosesTheStrongestColor() {
+        assertTimeoutPreemptively(TIMEOUT, () -> {
+            TrumpSimulator simulator = new TrumpSimulator.Builder(0).deals(256).build();
+            assertEquals(Color.HEART, simulator.chooseTrump(PlayerId.PLAYER_1, strongHearts(), true));
+            assertEquals(Color.HEART, simulator.chooseTrump(PlayerId.PLAYER_3, strongHearts(), false));
+        });
+    }
+
+    @Test
+    void simulatorOnlyDelegatesWhenItCan() {
+        assertTimeoutPreemptively(TIMEOUT, () -> {
+            try (TrumpSimulator simulator = new TrumpSimulator.Builder(0).deals(64).threads(2).build()) {
+                double[] values = simulator.evaluate(PlayerId.PLAYER_2, weakHand().packed(), false);
+                assertEquals(Color.COUNT + 1, values.length);
+                assertTrue(Double.isNaN(values[TrumpSimulator.DELEGATE]));
+                for (Color c : Color.ALL) {
+                    assertTrue(0 <= values[c.ordinal()] && values[c.ordinal()] <= Jass.MATCH_ADDITIONAL_POINTS + 157);
+                }
+                assertNotNull(simulator.chooseTrump(PlayerId.PLAYER_2, weakHand(), false));
+            }
+        });
+    }
+
+    @Test
+    void simulatorRespectsItsTimeBudget() {
+        assertTimeoutPreemptively(TIMEOUT, () -> {
+            TrumpSimulator simulator = new TrumpSimulator.Builder(0).deals(Integer.MAX_VALUE).timeBudget(100).build();
+            long start = System.nanoTime();
+            simulator.chooseTrump(PlayerId.PLAYER_1, weakHand(), true);
+            assertTrue(System.nanoTime() - start < 1_000_000_000L);
+        });
+    }
+}
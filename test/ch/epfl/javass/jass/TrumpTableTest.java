@@ -0,0 +1,84 @@
+package ch.epfl.javass.jass;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import ch.epfl.javass.jass.Card.Color;
+import ch.epfl.javass.jass.Card.Rank;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TrumpTableTest {
+    private static final int ENTRIES = 16;
+    private static final int DEALS = 8;
+
+    private static TrumpTable smallTable() throws IOException {
+        Path path = Files.createTempFile("trumps", ".bin");
+        try {
+            TrumpSimulator simulator = new TrumpSimulator.Builder(0).deals(DEALS).build();
+            TrumpTable.generate(path, simulator, DEALS, ENTRIES, written -> {});
+            return TrumpTable.load(path);
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    private static CardSet ofColor(Color color) {
+        return CardSet.ALL_CARDS.subsetOfColor(color);
+    }
+
+    @Test
+    void loadedTableHasItsHeader() throws IOException {
+        TrumpTable table = smallTable();
+        assertEquals(ENTRIES, table.entryCount());
+        assertEquals(DEALS, table.deals());
+    }
+
+    @Test
+    void handWithAllCardsOfAColorChoosesThatColor() throws IOException {
+        TrumpTable table = smallTable();
+        for (Color c : Color.ALL) {
+            assertEquals(c, table.chooseTrump(ofColor(c), true));
+            assertEquals(c, table.chooseTrump(ofColor(c), false));
+            assertTrue(table.expectedPoints(ofColor(c), true, c) > 200);
+        }
+    }
+
+    @Test
+    void pointsDoNotDependOnColors() throws IOException {
+        TrumpTable table = smallTable();
+        // An entry of the table, in two different colors
+        CardSet hand1 = ofColor(Color.HEART).remove(Card.of(Color.HEART, Rank.ACE)).add(Card.of(Color.CLUB, Rank.SIX));
+        CardSet hand2 = ofColor(Color.DIAMOND).remove(Card.of(Color.DIAMOND, Rank.ACE)).add(Card.of(Color.SPADE, Rank.SIX));
+        assertNotEquals(-1, table.expectedPoints(hand1, true, Color.HEART));
+        assertEquals(table.expectedPoints(hand1, true, Color.HEART), table.expectedPoints(hand2, true, Color.DIAMOND));
+        assertEquals(table.expectedPoints(hand1, false, Color.CLUB), table.expectedPoints(hand2, false, Color.SPADE));
+        assertEquals(table.expectedPoints(hand1, true, null), table.expectedPoints(hand2, true, null));
+    }
+
+    @Test
+    void handsWithoutEntryUseTheHeuristic() throws IOException {
+        TrumpTable table = smallTable();
+        CardSet hand = CardSet.EMPTY;
+        for (Color c : Color.ALL) {
+            hand = hand.add(Card.of(c, Rank.SIX)).add(Card.of(c, Rank.SEVEN));
+        }
+        hand = hand.add(Card.of(Color.CLUB, Rank.EIGHT));
+        assertEquals(-1, table.expectedPoints(hand, true, Color.CLUB));
+        assertEquals(TrumpSimulator.heuristicTrump(hand.packed(), true), table.chooseTrump(hand, true));
+    }
+
+    @Test
+    void loadFailsWithInvalidFile() throws IOException {
+        Path path = Files.createTempFile("trumps", ".bin");
+        try {
+            Files.write(path, new byte[] {1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16});
+            assertThrows(IllegalArgumentException.class, () -> TrumpTable.load(path));
+        } finally {
+            Files.delete(path);
+        }
+    }
+}